@@ -0,0 +1,19 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import android.app.Activity;
+
+import io.flutter.plugin.common.MethodChannel;
+
+/**
+ * A channel handler that needs the current Activity, e.g. to launch store UI.
+ */
+interface ActivityAwareCallHandler extends MethodChannel.MethodCallHandler {
+    void setActivity(Activity activity);
+
+    void onDetachedFromActivity();
+
+    /**
+     * Called when the engine detaches; releases everything the handler holds.
+     */
+    void dispose();
+}
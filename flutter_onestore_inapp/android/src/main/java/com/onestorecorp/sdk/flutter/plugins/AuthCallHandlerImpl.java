@@ -14,15 +14,25 @@ import java.util.Map;
 import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel;
 
-public class AuthCallHandlerImpl implements MethodChannel.MethodCallHandler {
+public class AuthCallHandlerImpl implements ActivityAwareCallHandler {
     private static final String TAG = "AuthCallHandlerImpl";
 
+    interface ClientFactory {
+        GaaSignInClient create(Context context);
+    }
+
     private final Context applicationContext;
+    private final ClientFactory clientFactory;
     private GaaSignInClient signInClient;
 
 
     public AuthCallHandlerImpl(Context context) {
+        this(context, GaaSignInClient::getClient);
+    }
+
+    AuthCallHandlerImpl(Context context, ClientFactory clientFactory) {
         this.applicationContext = context.getApplicationContext();
+        this.clientFactory = clientFactory;
     }
 
     private Activity activity;
@@ -33,11 +43,13 @@ public class AuthCallHandlerImpl implements MethodChannel.MethodCallHandler {
 
     public void onDetachedFromActivity() {}
 
+    public void dispose() {}
+
     @Override
     public void onMethodCall(@NotNull MethodCall call, @NotNull MethodChannel.Result result) {
         if (signInClient == null) {
             Logger.d(TAG, "create GaaSignInClient instance");
-            signInClient = GaaSignInClient.getClient(applicationContext);
+            signInClient = clientFactory.create(applicationContext);
         }
 
         if ("launchSignInFlow".equals(call.method)) {
@@ -48,6 +60,10 @@ public class AuthCallHandlerImpl implements MethodChannel.MethodCallHandler {
     }
 
     private void launchSignInFlow(final MethodChannel.Result result) {
+        if (activity == null) {
+            result.error("-1", "No Activity is attached.", null);
+            return;
+        }
         signInClient.launchSignInFlow(activity, signInResult -> {
             Map<String, Object> resultData = new HashMap<>();
             resultData.put("code", signInResult.getCode());
@@ -0,0 +1,164 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.gaa.sdk.base.Logger;
+import com.gaa.sdk.iap.IapResult;
+import com.gaa.sdk.iap.PurchaseData;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.flutter.FlutterInjector;
+import io.flutter.embedding.engine.FlutterEngine;
+import io.flutter.embedding.engine.dart.DartExecutor;
+import io.flutter.embedding.engine.loader.FlutterLoader;
+import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.MethodChannel;
+import io.flutter.view.FlutterCallbackInformation;
+
+/**
+ * Runs the Dart purchase callback registered with {@code registerBackgroundHandler} on a Flutter
+ * engine of its own, for purchases that arrive while no Activity is attached.
+ *
+ * <p>The engine is started on the first purchase and destroyed once it was idle for
+ * {@link #IDLE_TIMEOUT_MILLIS}. Purchases are queued until the Dart dispatcher reports that it is
+ * ready; at most {@link #MAX_QUEUED_UPDATES} are kept and the oldest is dropped first. The callback
+ * handles are persisted so that they survive a process restart.
+ */
+final class BackgroundPurchaseEngine implements MethodChannel.MethodCallHandler {
+    private static final String TAG = "BackgroundPurchaseEngine";
+
+    private static final String CHANNEL_NAME = "com.onestorecorp.sdk.flutter.plugins/purchase_background";
+    private static final String PREFS_NAME = "com.onestorecorp.sdk.flutter.plugins.background";
+    private static final String KEY_DISPATCHER_HANDLE = "dispatcherHandle";
+    private static final String KEY_CALLBACK_HANDLE = "callbackHandle";
+
+    static final long IDLE_TIMEOUT_MILLIS = 60000L;
+    static final int MAX_QUEUED_UPDATES = PluginPurchasesUpdatedListener.DEFAULT_BUFFER_SIZE;
+
+    private static BackgroundPurchaseEngine instance;
+
+    private final Context context;
+    private final SharedPreferences preferences;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable idleRunnable = this::destroyEngine;
+    private final ArrayDeque<Map<String, Object>> queue = new ArrayDeque<>();
+
+    private FlutterEngine engine;
+    private MethodChannel channel;
+    private boolean ready = false;
+
+    private BackgroundPurchaseEngine(Context context) {
+        this.context = context;
+        this.preferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    static synchronized BackgroundPurchaseEngine getInstance(Context context) {
+        if (instance == null) {
+            instance = new BackgroundPurchaseEngine(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    void setCallbackHandles(long dispatcherHandle, long callbackHandle) {
+        preferences.edit()
+                .putLong(KEY_DISPATCHER_HANDLE, dispatcherHandle)
+                .putLong(KEY_CALLBACK_HANDLE, callbackHandle)
+                .apply();
+    }
+
+    void clearCallbackHandles() {
+        preferences.edit().clear().apply();
+        destroyEngine();
+    }
+
+    boolean hasCallback() {
+        return preferences.contains(KEY_CALLBACK_HANDLE);
+    }
+
+    void dispatch(IapResult iapResult, List<PurchaseData> list) {
+        final Map<String, Object> args = new HashMap<>();
+        args.put("iapResult", FlutterInAppHelper.fromIapResult(iapResult));
+        args.put("purchasesList", FlutterInAppHelper.fromPurchasesList(list));
+        if (queue.size() >= MAX_QUEUED_UPDATES) {
+            queue.poll();
+            Logger.w(TAG, "background queue is full, dropped the oldest purchase update");
+        }
+        queue.add(args);
+
+        if (engine == null && !startEngine()) {
+            queue.clear();
+            return;
+        }
+        if (ready) {
+            flush();
+        }
+        handler.removeCallbacks(idleRunnable);
+        handler.postDelayed(idleRunnable, IDLE_TIMEOUT_MILLIS);
+    }
+
+    private boolean startEngine() {
+        // The callback lookup reads the loaded Dart snapshot, so the loader has to be initialized first.
+        final FlutterLoader flutterLoader = FlutterInjector.instance().flutterLoader();
+        flutterLoader.startInitialization(context);
+        flutterLoader.ensureInitializationComplete(context, null);
+
+        final FlutterCallbackInformation callbackInformation = FlutterCallbackInformation
+                .lookupCallbackInformation(preferences.getLong(KEY_DISPATCHER_HANDLE, 0L));
+        if (callbackInformation == null) {
+            Logger.e(TAG, "The background dispatcher could not be found.");
+            return false;
+        }
+
+        Logger.d(TAG, "starting the background engine");
+        engine = new FlutterEngine(context);
+        channel = new MethodChannel(engine.getDartExecutor(), CHANNEL_NAME);
+        channel.setMethodCallHandler(this);
+        engine.getDartExecutor().executeDartCallback(new DartExecutor.DartCallback(
+                context.getAssets(), flutterLoader.findAppBundlePath(), callbackInformation));
+        return true;
+    }
+
+    @Override
+    public void onMethodCall(@NotNull MethodCall call, @NotNull MethodChannel.Result result) {
+        if ("backgroundReady".equals(call.method)) {
+            ready = true;
+            flush();
+            result.success(null);
+        } else {
+            result.notImplemented();
+        }
+    }
+
+    private void flush() {
+        final long callbackHandle = preferences.getLong(KEY_CALLBACK_HANDLE, 0L);
+        final List<Map<String, Object>> pending = new ArrayList<>(queue);
+        queue.clear();
+        for (Map<String, Object> args : pending) {
+            args.put("callbackHandle", callbackHandle);
+            channel.invokeMethod("onPurchasesUpdated", args);
+        }
+    }
+
+    private void destroyEngine() {
+        handler.removeCallbacks(idleRunnable);
+        queue.clear();
+        ready = false;
+        if (engine != null) {
+            Logger.d(TAG, "destroying the background engine");
+            channel.setMethodCallHandler(null);
+            engine.destroy();
+        }
+        engine = null;
+        channel = null;
+    }
+}
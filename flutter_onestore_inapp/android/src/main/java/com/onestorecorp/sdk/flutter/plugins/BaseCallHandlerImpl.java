@@ -1,11 +1,7 @@
 package com.onestorecorp.sdk.flutter.plugins;
 
-import android.content.Context;
 import android.util.Log;
 
-import com.gaa.sdk.base.Logger;
-import com.gaa.sdk.base.StoreEnvironment;
-
 import org.jetbrains.annotations.NotNull;
 
 import io.flutter.plugin.common.MethodCall;
@@ -14,22 +10,64 @@ import io.flutter.plugin.common.MethodChannel;
 public class BaseCallHandlerImpl implements MethodChannel.MethodCallHandler {
     private static final String TAG = "BaseCallHandlerImpl";
 
-    private final Context context;
+    private final CallMetrics callMetrics;
+    private final CallTracker callTracker;
+    private final StoreEnvironmentCache storeEnvironment;
 
 
-    public BaseCallHandlerImpl(Context context) {
-        this.context = context;
+    public BaseCallHandlerImpl(CallMetrics callMetrics, CallTracker callTracker, StoreEnvironmentCache storeEnvironment) {
+        this.callMetrics = callMetrics;
+        this.callTracker = callTracker;
+        this.storeEnvironment = storeEnvironment;
     }
 
     @Override
     public void onMethodCall(@NotNull MethodCall call, @NotNull MethodChannel.Result result) {
         switch (call.method) {
             case "setLogLevel":
-                Logger.setLogLevel(toLogLevel(call));
+                PluginLog.setLevel(toLogLevel(call));
+                result.success(null);
+                break;
+            case "getLogEvents":
+                result.success(PluginLog.dump());
+                break;
+            case "clearLogEvents":
+                PluginLog.clear();
+                result.success(null);
+                break;
+            case "setLogEventCapacity":
+                PluginLog.setCapacity(FlutterInAppHelper.argumentAsInt(
+                        call, "capacity", PluginLog.DEFAULT_CAPACITY));
+                result.success(null);
                 break;
             case "getStoreType":
-                int storeType = StoreEnvironment.getStoreType(context);
-                result.success(storeType);
+                result.success(storeEnvironment.storeType());
+                break;
+            case "getEnvironment":
+                result.success(storeEnvironment.snapshot());
+                break;
+            case "getMetrics":
+                result.success(callMetrics.snapshot());
+                break;
+            case "resetMetrics":
+                callMetrics.reset();
+                result.success(null);
+                break;
+            case "getPendingCalls":
+                result.success(callTracker.pendingCalls());
+                break;
+            case "getCallStats":
+                result.success(callTracker.stats());
+                break;
+            case "cancelCall":
+                result.success(callTracker.cancel(FlutterInAppHelper.argumentAsInt(call, "callId", 0)));
+                break;
+            case "setCallTimeouts":
+                callTracker.setTimeouts(
+                        FlutterInAppHelper.argumentAsLong(
+                                call, "defaultTimeoutMillis", CallTracker.DEFAULT_TIMEOUT_MILLIS),
+                        call.argument("methodTimeoutMillis"));
+                result.success(null);
                 break;
             default:
                 result.notImplemented();
@@ -0,0 +1,96 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs an asynchronous SDK operation for every item of a list, keeping at most {@code maxInFlight}
+ * operations outstanding, and reports the results in input order once all of them completed.
+ *
+ * <p>Must be used on the platform thread, which is where the SDK delivers its callbacks.
+ */
+final class BatchRunner<T, R> {
+
+    static final int DEFAULT_MAX_IN_FLIGHT = 4;
+
+    interface Operation<T, R> {
+        void start(T item, Completion<R> completion);
+    }
+
+    interface Completion<R> {
+        void complete(R result);
+    }
+
+    interface Callback<R> {
+        void onFinished(List<R> results);
+    }
+
+    private final List<T> items;
+    private final int maxInFlight;
+    private final Operation<T, R> operation;
+    private final Callback<R> callback;
+    private final Object[] results;
+
+    private int nextIndex = 0;
+    private int inFlight = 0;
+    private int completed = 0;
+    private boolean starting = false;
+
+    private BatchRunner(List<T> items, int maxInFlight, Operation<T, R> operation, Callback<R> callback) {
+        this.items = items;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.operation = operation;
+        this.callback = callback;
+        this.results = new Object[items.size()];
+    }
+
+    static <T, R> void run(List<T> items, int maxInFlight, Operation<T, R> operation, Callback<R> callback) {
+        new BatchRunner<>(items, maxInFlight, operation, callback).startMore();
+    }
+
+    private void startMore() {
+        // An operation may complete synchronously; the loop picks up the freed slot instead of recursing.
+        if (starting) {
+            return;
+        }
+        starting = true;
+        while (inFlight < maxInFlight && nextIndex < items.size()) {
+            final int index = nextIndex++;
+            inFlight++;
+            operation.start(items.get(index), new Completion<R>() {
+                private boolean done = false;
+
+                @Override
+                public void complete(R result) {
+                    if (done) {
+                        return;
+                    }
+                    done = true;
+                    onComplete(index, result);
+                }
+            });
+        }
+        starting = false;
+        finishIfDone();
+    }
+
+    private void onComplete(int index, R result) {
+        results[index] = result;
+        inFlight--;
+        completed++;
+        startMore();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void finishIfDone() {
+        if (completed != items.size()) {
+            return;
+        }
+        completed = -1;
+        final List<R> list = new ArrayList<>(results.length);
+        for (Object result : results) {
+            list.add((R) result);
+        }
+        callback.onFinished(list);
+    }
+}
@@ -0,0 +1,147 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Per-method counters and latency histograms for the plugin's method channels.
+ *
+ * <p>Latencies are recorded in microseconds into power-of-two buckets, so recording is a couple of
+ * arithmetic operations and a snapshot can still report percentiles with at most 2x error.
+ * Handler time is measured from the channel call until the handler returns; reply time is measured
+ * from there until the Result is answered. Calls the handler parks in a queue, such as a busy
+ * scheduler class or a product details batch window, return early, so their queue wait is counted
+ * in reply time rather than handler time.
+ */
+class CallMetrics {
+    static final int BUCKET_COUNT = 32;
+
+    private final Map<String, MethodStats> stats = new HashMap<>();
+
+    synchronized MethodStats statsFor(String channel, String method) {
+        final String key = channel + "/" + method;
+        MethodStats methodStats = stats.get(key);
+        if (methodStats == null) {
+            methodStats = new MethodStats();
+            stats.put(key, methodStats);
+        }
+        return methodStats;
+    }
+
+    synchronized Map<String, Object> snapshot() {
+        final Map<String, Object> snapshot = new TreeMap<>();
+        for (Map.Entry<String, MethodStats> entry : stats.entrySet()) {
+            snapshot.put(entry.getKey(), entry.getValue().toMap());
+        }
+        return snapshot;
+    }
+
+    synchronized void reset() {
+        for (MethodStats methodStats : stats.values()) {
+            methodStats.reset();
+        }
+    }
+
+    static final class MethodStats {
+        private long count;
+        private long errors;
+        private int inFlight;
+        private final Histogram handler = new Histogram();
+        private final Histogram reply = new Histogram();
+
+        synchronized void onHandled(long handlerNanos) {
+            count++;
+            inFlight++;
+            handler.record(handlerNanos);
+        }
+
+        synchronized void onReplied(long replyNanos, boolean error) {
+            if (error) {
+                errors++;
+            }
+            inFlight--;
+            reply.record(replyNanos);
+        }
+
+        /**
+         * Clears the counters and histograms. The in-flight gauge is kept, the calls it counts are
+         * still going to reply.
+         */
+        synchronized void reset() {
+            count = 0;
+            errors = 0;
+            handler.reset();
+            reply.reset();
+        }
+
+        synchronized Map<String, Object> toMap() {
+            final Map<String, Object> map = new HashMap<>();
+            map.put("count", count);
+            map.put("errors", errors);
+            map.put("inFlight", inFlight);
+            map.put("handler", handler.toMap());
+            map.put("reply", reply.toMap());
+            return map;
+        }
+    }
+
+    static final class Histogram {
+        private final long[] buckets = new long[BUCKET_COUNT];
+        private long total;
+        private long maxMicros;
+
+        void record(long nanos) {
+            final long micros = Math.max(0L, nanos / 1000L);
+            // Bucket i holds values in [2^(i-1), 2^i) microseconds, bucket 0 holds zero.
+            final int bucket = Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(micros));
+            buckets[bucket]++;
+            total++;
+            if (micros > maxMicros) {
+                maxMicros = micros;
+            }
+        }
+
+        void reset() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = 0;
+            }
+            total = 0;
+            maxMicros = 0;
+        }
+
+        /**
+         * @return the upper bound of the bucket that contains the given percentile.
+         */
+        long percentile(double p) {
+            if (total == 0) {
+                return 0L;
+            }
+            final long rank = (long) Math.ceil(total * p);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    return Math.min(maxMicros, i == 0 ? 0L : (1L << i) - 1);
+                }
+            }
+            return maxMicros;
+        }
+
+        Map<String, Object> toMap() {
+            final List<Long> counts = new ArrayList<>(BUCKET_COUNT);
+            for (long bucket : buckets) {
+                counts.add(bucket);
+            }
+            final Map<String, Object> map = new HashMap<>();
+            map.put("p50", percentile(0.50));
+            map.put("p90", percentile(0.90));
+            map.put("p99", percentile(0.99));
+            map.put("max", maxMicros);
+            map.put("buckets", counts);
+            return map;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+
+import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.MethodChannel;
+
+/**
+ * Orders the SDK calls of one engine by priority class.
+ *
+ * <p>Interactive calls, the flows the user is looking at, start at once. Normal and background calls
+ * are limited per class, so a burst of catalog refreshes never piles up inside the SDK in front of
+ * a purchase. Background calls also hold back while normal work is queued or an interactive call is
+ * running, until one of them has waited {@code maxWaitMillis}; then it starts anyway. A call keeps
+ * its slot until its Result is answered, or for at most {@code slotTimeoutMillis} if the SDK never
+ * calls back. A queued call whose {@link CallTracker} Result was answered meanwhile, e.g. because it
+ * timed out or was cancelled, is dropped without running. Everything runs on the main thread.
+ */
+class CallScheduler {
+    static final int INTERACTIVE = 0;
+    static final int NORMAL = 1;
+    static final int BACKGROUND = 2;
+
+    static final int DEFAULT_NORMAL_CONCURRENCY = 4;
+    static final int DEFAULT_BACKGROUND_CONCURRENCY = 1;
+    static final long DEFAULT_MAX_WAIT_MILLIS = 2000L;
+    static final long DEFAULT_SLOT_TIMEOUT_MILLIS = 30000L;
+
+    interface Task {
+        void run(MethodChannel.Result result);
+    }
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final ArrayDeque<ScheduledCall> normalQueue = new ArrayDeque<>();
+    private final ArrayDeque<ScheduledCall> backgroundQueue = new ArrayDeque<>();
+    private final int[] inFlight = new int[3];
+    private final Runnable drainRunnable = () -> {
+        drainScheduled = false;
+        drain();
+    };
+
+    private int normalConcurrency = DEFAULT_NORMAL_CONCURRENCY;
+    private int backgroundConcurrency = DEFAULT_BACKGROUND_CONCURRENCY;
+    private long maxWaitMillis = DEFAULT_MAX_WAIT_MILLIS;
+    private long slotTimeoutMillis = DEFAULT_SLOT_TIMEOUT_MILLIS;
+    private boolean drainScheduled = false;
+    private boolean draining = false;
+    private boolean drainAgain = false;
+
+    void configure(int normalConcurrency, int backgroundConcurrency, long maxWaitMillis) {
+        this.normalConcurrency = Math.max(1, normalConcurrency);
+        this.backgroundConcurrency = Math.max(1, backgroundConcurrency);
+        this.maxWaitMillis = Math.max(0L, maxWaitMillis);
+        drain();
+    }
+
+    void setSlotTimeoutMillis(long slotTimeoutMillis) {
+        this.slotTimeoutMillis = slotTimeoutMillis;
+    }
+
+    /**
+     * @return the class named by the optional {@code priority} argument of {@code call}, or
+     * {@code defaultPriority}.
+     */
+    static int priorityOf(MethodCall call, int defaultPriority) {
+        final Object priority = (call.arguments instanceof Map) ? call.argument("priority") : null;
+        if ("interactive".equals(priority)) {
+            return INTERACTIVE;
+        } else if ("normal".equals(priority)) {
+            return NORMAL;
+        } else if ("background".equals(priority)) {
+            return BACKGROUND;
+        }
+        return defaultPriority;
+    }
+
+    void submit(int priority, MethodChannel.Result result, Task task) {
+        final ScheduledCall scheduledCall = new ScheduledCall(priority, result, task);
+        if (priority == INTERACTIVE) {
+            start(scheduledCall);
+            return;
+        }
+        (priority == NORMAL ? normalQueue : backgroundQueue).add(scheduledCall);
+        drain();
+    }
+
+    /**
+     * Answers every queued call through {@code rejection}; calls already started are left alone.
+     */
+    void rejectQueued(Task rejection) {
+        handler.removeCallbacks(drainRunnable);
+        drainScheduled = false;
+        final ArrayDeque<ScheduledCall> queued = new ArrayDeque<>(normalQueue);
+        queued.addAll(backgroundQueue);
+        normalQueue.clear();
+        backgroundQueue.clear();
+        for (ScheduledCall scheduledCall : queued) {
+            rejection.run(scheduledCall.result);
+        }
+    }
+
+    /**
+     * Gives back the slot of a started call before its Result is answered, for work that is handed
+     * on to something that bounds the store requests itself. Answering the Result later is fine.
+     */
+    void releaseSlot(MethodChannel.Result scheduled) {
+        if (scheduled instanceof ScheduledCall) {
+            release((ScheduledCall) scheduled);
+        }
+    }
+
+    int queued() {
+        removeAnswered(normalQueue);
+        removeAnswered(backgroundQueue);
+        return normalQueue.size() + backgroundQueue.size();
+    }
+
+    int inFlight(int priority) {
+        return inFlight[priority];
+    }
+
+    private void drain() {
+        if (draining) {
+            // A call started by this drain answered or gave back its slot right away.
+            drainAgain = true;
+            return;
+        }
+        draining = true;
+        try {
+            do {
+                drainAgain = false;
+                drainOnce();
+            } while (drainAgain);
+        } finally {
+            draining = false;
+        }
+    }
+
+    private void drainOnce() {
+        removeAnswered(normalQueue);
+        removeAnswered(backgroundQueue);
+        while (!normalQueue.isEmpty() && inFlight[NORMAL] < normalConcurrency) {
+            start(normalQueue.poll());
+        }
+
+        final boolean busy = !normalQueue.isEmpty() || inFlight[INTERACTIVE] > 0;
+        while (!backgroundQueue.isEmpty() && inFlight[BACKGROUND] < backgroundConcurrency) {
+            final long waited = SystemClock.elapsedRealtime() - backgroundQueue.peek().queuedAt;
+            if (busy && waited < maxWaitMillis) {
+                scheduleDrain(maxWaitMillis - waited);
+                return;
+            }
+            start(backgroundQueue.poll());
+        }
+    }
+
+    private static void removeAnswered(ArrayDeque<ScheduledCall> queue) {
+        final Iterator<ScheduledCall> iterator = queue.iterator();
+        while (iterator.hasNext()) {
+            if (CallTracker.isAnswered(iterator.next().result)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private void scheduleDrain(long delayMillis) {
+        if (drainScheduled) {
+            return;
+        }
+        drainScheduled = true;
+        handler.postDelayed(drainRunnable, delayMillis);
+    }
+
+    private void start(ScheduledCall scheduledCall) {
+        inFlight[scheduledCall.priority]++;
+        if (slotTimeoutMillis > 0) {
+            handler.postDelayed(scheduledCall, slotTimeoutMillis);
+        }
+        scheduledCall.task.run(scheduledCall);
+    }
+
+    private void release(ScheduledCall scheduledCall) {
+        if (scheduledCall.released) {
+            return;
+        }
+        scheduledCall.released = true;
+        handler.removeCallbacks(scheduledCall);
+        inFlight[scheduledCall.priority]--;
+        drain();
+    }
+
+    private final class ScheduledCall implements MethodChannel.Result, CallTracker.TrackedCall, Runnable {
+        final int priority;
+        final MethodChannel.Result result;
+        final Task task;
+        final long queuedAt = SystemClock.elapsedRealtime();
+        boolean released = false;
+
+        ScheduledCall(int priority, MethodChannel.Result result, Task task) {
+            this.priority = priority;
+            this.result = result;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            // The SDK has not answered for too long, stop counting the call against its class.
+            release(this);
+        }
+
+        @Override
+        public boolean isAnswered() {
+            return CallTracker.isAnswered(result);
+        }
+
+        @Override
+        public void success(Object value) {
+            result.success(value);
+            release(this);
+        }
+
+        @Override
+        public void error(@NotNull String errorCode, String errorMessage, Object errorDetails) {
+            result.error(errorCode, errorMessage, errorDetails);
+            release(this);
+        }
+
+        @Override
+        public void notImplemented() {
+            result.notImplemented();
+            release(this);
+        }
+    }
+}
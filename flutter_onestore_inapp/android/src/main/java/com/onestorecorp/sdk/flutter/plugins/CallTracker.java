@@ -0,0 +1,284 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.gaa.sdk.base.Logger;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.MethodChannel;
+
+/**
+ * Gives every pending channel call an ID and a deadline, and makes sure it is answered exactly once.
+ *
+ * <p>An SDK that never calls back would otherwise keep the {@link MethodChannel.Result}, and the
+ * Activity its listener captured, alive forever while the Dart future hangs. A call that passes its
+ * deadline or is cancelled from Dart is answered with an error and forgets its Result; whatever the
+ * SDK replies afterwards is dropped and counted as late.
+ *
+ * <p>A caller that wants to cancel its call passes its own positive {@code callId} argument, so that
+ * it knows the ID without guessing from {@link #pendingCalls()}. Calls without one, or with an ID
+ * that is already pending, get a negative ID from the tracker.
+ */
+class CallTracker {
+    private static final String TAG = "CallTracker";
+
+    static final long DEFAULT_TIMEOUT_MILLIS = 60000L;
+    // Flows that wait for the user get much longer, a sign-in or an update can take minutes.
+    static final long INTERACTIVE_TIMEOUT_MILLIS = 600000L;
+
+    /**
+     * Implemented by the Results {@link #track} hands to the handlers, so that work queued for a call
+     * can be skipped once the call was answered.
+     */
+    interface TrackedCall {
+        boolean isAnswered();
+    }
+
+    /**
+     * @return true if {@code result} is a tracked call that was already answered.
+     */
+    static boolean isAnswered(MethodChannel.Result result) {
+        return result instanceof TrackedCall && ((TrackedCall) result).isAnswered();
+    }
+
+    static final String ERROR_TIMEOUT = "timeout";
+    static final String ERROR_CANCELLED = "cancelled";
+
+    private static final String[] INTERACTIVE_METHODS = {
+            "auth/launchSignInFlow",
+            "license/queryLicense",
+            "license/strictQueryLicense",
+            "purchase/startConnection",
+            "purchase/launchPurchaseFlow",
+            "purchase/launchUpdateOrInstallFlow",
+            "purchase/launchManageSubscription",
+    };
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Map<Integer, TrackedResult> pending = new LinkedHashMap<>();
+    private final Map<String, Long> methodTimeouts = new HashMap<>();
+
+    private long defaultTimeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+    private int nextCallId = -1;
+    private long timedOut;
+    private long cancelled;
+    private long lateReplies;
+
+    CallTracker() {
+        resetTimeouts();
+    }
+
+    MethodChannel.MethodCallHandler track(final String channelName, final MethodChannel.MethodCallHandler delegate) {
+        return (call, result) -> {
+            final TrackedResult trackedResult = start(channelName, call.method, callerCallId(call), result);
+            try {
+                delegate.onMethodCall(call, trackedResult);
+            } catch (RuntimeException e) {
+                // The channel answers uncaught exceptions itself, the deadline must not answer again.
+                finish(trackedResult, null);
+                throw e;
+            }
+        };
+    }
+
+    /**
+     * Sets the deadline of every method, and overrides it per {@code channel/method} key. Zero or less
+     * means no deadline. Calls already pending keep their deadline.
+     */
+    synchronized void setTimeouts(long defaultTimeoutMillis, Map<String, Object> methodTimeoutMillis) {
+        resetTimeouts();
+        this.defaultTimeoutMillis = defaultTimeoutMillis;
+        if (methodTimeoutMillis == null) {
+            return;
+        }
+        for (Map.Entry<String, Object> entry : methodTimeoutMillis.entrySet()) {
+            if (entry.getValue() instanceof Number) {
+                methodTimeouts.put(entry.getKey(), ((Number) entry.getValue()).longValue());
+            }
+        }
+    }
+
+    /**
+     * Answers the pending call {@code callId} with a {@link #ERROR_CANCELLED} error.
+     *
+     * @return false if the call has already been answered.
+     */
+    boolean cancel(int callId) {
+        final TrackedResult trackedResult;
+        synchronized (this) {
+            trackedResult = pending.get(callId);
+        }
+        return trackedResult != null && trackedResult.expire(ERROR_CANCELLED, "The call was cancelled.");
+    }
+
+    /**
+     * @return the pending calls, oldest first, as {@code {callId, channel, method, elapsedMillis}}.
+     */
+    synchronized List<Map<String, Object>> pendingCalls() {
+        final long now = SystemClock.elapsedRealtime();
+        final List<Map<String, Object>> calls = new ArrayList<>(pending.size());
+        for (TrackedResult trackedResult : pending.values()) {
+            final Map<String, Object> item = new HashMap<>();
+            item.put("callId", trackedResult.callId);
+            item.put("channel", trackedResult.channelName);
+            item.put("method", trackedResult.method);
+            item.put("elapsedMillis", now - trackedResult.startedAt);
+            calls.add(item);
+        }
+        return calls;
+    }
+
+    synchronized Map<String, Object> stats() {
+        final Map<String, Object> stats = new HashMap<>();
+        stats.put("pending", pending.size());
+        stats.put("timedOut", timedOut);
+        stats.put("cancelled", cancelled);
+        stats.put("lateReplies", lateReplies);
+        return stats;
+    }
+
+    /**
+     * Forgets the pending calls without answering them, their channel is gone.
+     */
+    synchronized void clear() {
+        for (TrackedResult trackedResult : pending.values()) {
+            mainHandler.removeCallbacks(trackedResult);
+            trackedResult.result = null;
+        }
+        pending.clear();
+    }
+
+    private synchronized TrackedResult start(String channelName, String method, Integer callerCallId,
+                                             MethodChannel.Result result) {
+        final int callId;
+        if (callerCallId != null && !pending.containsKey(callerCallId)) {
+            callId = callerCallId;
+        } else {
+            if (callerCallId != null) {
+                PluginLog.d(TAG, "Replaced a call ID that is already pending => ", callerCallId);
+            }
+            callId = nextCallId--;
+        }
+        final TrackedResult trackedResult = new TrackedResult(callId, channelName, method, result);
+        pending.put(callId, trackedResult);
+        final Long methodTimeout = methodTimeouts.get(channelName + "/" + method);
+        final long timeoutMillis = (methodTimeout == null) ? defaultTimeoutMillis : methodTimeout;
+        if (timeoutMillis > 0) {
+            mainHandler.postDelayed(trackedResult, timeoutMillis);
+        }
+        return trackedResult;
+    }
+
+    /**
+     * @return the Result to answer, or null if {@code trackedResult} has already been answered.
+     */
+    private synchronized MethodChannel.Result finish(TrackedResult trackedResult, String expiredBy) {
+        final MethodChannel.Result result = trackedResult.result;
+        if (result == null) {
+            lateReplies++;
+            PluginLog.d(TAG, "Dropped a late reply of ", trackedResult.method);
+            return null;
+        }
+        trackedResult.result = null;
+        pending.remove(trackedResult.callId);
+        mainHandler.removeCallbacks(trackedResult);
+        if (ERROR_TIMEOUT.equals(expiredBy)) {
+            timedOut++;
+        } else if (ERROR_CANCELLED.equals(expiredBy)) {
+            cancelled++;
+        }
+        return result;
+    }
+
+    private static Integer callerCallId(MethodCall call) {
+        final Object callId = (call.arguments instanceof Map) ? call.argument("callId") : null;
+        if (callId instanceof Number && ((Number) callId).intValue() > 0) {
+            return ((Number) callId).intValue();
+        }
+        return null;
+    }
+
+    private void resetTimeouts() {
+        methodTimeouts.clear();
+        for (String method : INTERACTIVE_METHODS) {
+            methodTimeouts.put(method, INTERACTIVE_TIMEOUT_MILLIS);
+        }
+    }
+
+    private final class TrackedResult implements MethodChannel.Result, Runnable, TrackedCall {
+        final int callId;
+        final String channelName;
+        final String method;
+        final long startedAt = SystemClock.elapsedRealtime();
+        MethodChannel.Result result;
+
+        TrackedResult(int callId, String channelName, String method, MethodChannel.Result result) {
+            this.callId = callId;
+            this.channelName = channelName;
+            this.method = method;
+            this.result = result;
+        }
+
+        @Override
+        public boolean isAnswered() {
+            synchronized (CallTracker.this) {
+                return result == null;
+            }
+        }
+
+        @Override
+        public void run() {
+            if (expire(ERROR_TIMEOUT, "No reply within the deadline.") && PluginLog.isLoggable(Log.WARN)) {
+                Logger.w(TAG, channelName + "/" + method + " timed out");
+            }
+        }
+
+        boolean expire(String errorCode, String errorMessage) {
+            final MethodChannel.Result target = finish(this, errorCode);
+            if (target == null) {
+                return false;
+            }
+            final Map<String, Object> details = new HashMap<>();
+            details.put("callId", callId);
+            details.put("channel", channelName);
+            details.put("method", method);
+            target.error(errorCode, errorMessage, details);
+            return true;
+        }
+
+        @Override
+        public void success(Object value) {
+            final MethodChannel.Result target = finish(this, null);
+            if (target != null) {
+                target.success(value);
+            }
+        }
+
+        @Override
+        public void error(@NotNull String errorCode, String errorMessage, Object errorDetails) {
+            final MethodChannel.Result target = finish(this, null);
+            if (target != null) {
+                target.error(errorCode, errorMessage, errorDetails);
+            }
+        }
+
+        @Override
+        public void notImplemented() {
+            final MethodChannel.Result target = finish(this, null);
+            if (target != null) {
+                target.notImplemented();
+            }
+        }
+    }
+}
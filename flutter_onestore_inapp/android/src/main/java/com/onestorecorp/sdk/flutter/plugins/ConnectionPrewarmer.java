@@ -0,0 +1,132 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.gaa.sdk.base.Logger;
+
+import org.jetbrains.annotations.NotNull;
+
+import io.flutter.plugin.common.MethodChannel;
+
+/**
+ * Starts the shared purchase connection as soon as an Activity attaches, so that the first purchase
+ * call finds the service already bound.
+ *
+ * <p>This is opt-in: the application declares its public key in the {@link #META_DATA_PUBLIC_KEY}
+ * meta-data of its manifest. It happens once per process, and engines that never attach an
+ * Activity, such as the background purchase engine, never start it. The pre-warm reference is
+ * dropped as soon as an engine acquires its own client, which keeps the connection alive only when
+ * the keys match, or after {@link #DEFAULT_HOLD_MILLIS} if no engine ever does. Runs on the main
+ * thread.
+ */
+final class ConnectionPrewarmer {
+    private static final String TAG = "ConnectionPrewarmer";
+
+    static final String META_DATA_PUBLIC_KEY = "com.onestorecorp.sdk.flutter.plugins.prewarm_public_key";
+    static final long DEFAULT_HOLD_MILLIS = 30000L;
+
+    private static final Runnable expireRunnable = () -> {
+        Logger.d(TAG, "no engine took over the prewarmed connection");
+        release();
+    };
+
+    private static boolean keyLoaded = false;
+    private static String declaredKey;
+    private static boolean started = false;
+    private static Handler handler;
+    private static PurchaseClientRegistry.SharedClient sharedClient;
+
+    private ConnectionPrewarmer() {}
+
+    /**
+     * @return the public key declared for pre-warming, or null if the application did not opt in.
+     * The manifest is only read once per process.
+     */
+    static String publicKeyOf(Context context) {
+        if (keyLoaded) {
+            return declaredKey;
+        }
+        keyLoaded = true;
+        try {
+            final ApplicationInfo applicationInfo = context.getPackageManager()
+                    .getApplicationInfo(context.getPackageName(), PackageManager.GET_META_DATA);
+            final Bundle metaData = applicationInfo.metaData;
+            declaredKey = (metaData == null) ? null : metaData.getString(META_DATA_PUBLIC_KEY);
+        } catch (PackageManager.NameNotFoundException e) {
+            declaredKey = null;
+        }
+        return declaredKey;
+    }
+
+    static void start(Context context) {
+        if (started) {
+            return;
+        }
+        final String publicKey = publicKeyOf(context);
+        if (publicKey != null) {
+            start(context, publicKey, DEFAULT_HOLD_MILLIS);
+        }
+    }
+
+    static void start(Context context, String publicKey, long holdMillis) {
+        if (started) {
+            return;
+        }
+        started = true;
+        sharedClient = PurchaseClientRegistry.acquire(context, publicKey);
+        sharedClient.connection.connect(new MethodChannel.Result() {
+            @Override
+            public void success(Object result) {
+                PluginLog.d(TAG, "prewarmed => ", result);
+            }
+
+            @Override
+            public void error(@NotNull String errorCode, String errorMessage, Object errorDetails) {
+                if (PluginLog.isLoggable(Log.WARN)) {
+                    Logger.w(TAG, "prewarm failed => " + errorCode + ", " + errorMessage);
+                }
+            }
+
+            @Override
+            public void notImplemented() {
+            }
+        });
+        handler = new Handler(Looper.getMainLooper());
+        handler.postDelayed(expireRunnable, holdMillis);
+    }
+
+    /**
+     * Drops the pre-warm reference once an engine holds a client of its own.
+     */
+    static void handOff() {
+        release();
+    }
+
+    /**
+     * Forgets the process-wide state, for tests.
+     */
+    static void reset() {
+        release();
+        started = false;
+        keyLoaded = false;
+        declaredKey = null;
+    }
+
+    private static void release() {
+        if (handler != null) {
+            handler.removeCallbacks(expireRunnable);
+            handler = null;
+        }
+        if (sharedClient == null) {
+            return;
+        }
+        PurchaseClientRegistry.release(sharedClient);
+        sharedClient = null;
+    }
+}
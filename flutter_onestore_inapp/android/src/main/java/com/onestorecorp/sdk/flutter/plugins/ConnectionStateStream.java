@@ -0,0 +1,63 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import com.gaa.sdk.iap.PurchaseClient;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import io.flutter.plugin.common.EventChannel;
+
+/**
+ * Streams the purchase connection state of one engine to Dart over an EventChannel.
+ *
+ * <p>Each event carries the state, the response code, the reason of the transition and the wall
+ * clock time it happened. A new Dart listener first receives the last known state. The same state
+ * reported again, for example by a second owner of the shared connection, is not sent twice. Runs
+ * on the main thread.
+ */
+class ConnectionStateStream implements EventChannel.StreamHandler, PurchaseConnection.StateListener {
+    private static final String TAG = "ConnectionStateStream";
+
+    private EventChannel.EventSink eventSink;
+    private Map<String, Object> lastEvent = toEvent(PurchaseConnection.State.DISCONNECTED,
+            PurchaseClient.ResponseCode.RESULT_SERVICE_UNAVAILABLE, PurchaseConnection.REASON_ENDED);
+
+    @Override
+    public void onListen(Object arguments, EventChannel.EventSink events) {
+        eventSink = events;
+        events.success(lastEvent);
+    }
+
+    @Override
+    public void onCancel(Object arguments) {
+        eventSink = null;
+    }
+
+    @Override
+    public void onStateChanged(PurchaseConnection.State state, int responseCode, String reason) {
+        final Map<String, Object> event = toEvent(state, responseCode, reason);
+        if (event.get("state").equals(lastEvent.get("state"))) {
+            return;
+        }
+        PluginLog.d(TAG, "state => ", event);
+        lastEvent = event;
+        if (eventSink != null) {
+            eventSink.success(event);
+        }
+    }
+
+    void dispose() {
+        // The engine is going away, there is nobody left to end the stream for.
+        eventSink = null;
+    }
+
+    private static Map<String, Object> toEvent(PurchaseConnection.State state, int responseCode, String reason) {
+        final Map<String, Object> event = new HashMap<>();
+        event.put("state", state.name().toLowerCase(Locale.US));
+        event.put("responseCode", responseCode);
+        event.put("reason", reason);
+        event.put("timestamp", System.currentTimeMillis());
+        return event;
+    }
+}
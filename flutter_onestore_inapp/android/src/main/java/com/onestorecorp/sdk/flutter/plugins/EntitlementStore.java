@@ -0,0 +1,408 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.TextUtils;
+
+import com.gaa.sdk.base.Logger;
+import com.gaa.sdk.iap.PurchaseClient;
+import com.gaa.sdk.iap.PurchaseData;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Append-only on-device copy of the purchases the store reported last, so that entitlements can be
+ * granted on cold start before the PurchaseClient has connected.
+ *
+ * <p>Each record is {@code u8 op, utf productType, utf purchaseToken} followed, for puts, by the
+ * length-prefixed originalJson and signature. The file is rewritten when a query result replaces
+ * the purchases of a product type or when removed records outweigh the live ones. Signatures are
+ * verified again every time the file is loaded, so an edited file only loses entries.
+ */
+class EntitlementStore {
+    private static final String TAG = "EntitlementStore";
+    private static final String FILE_NAME = "onestore_entitlements.dat";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final byte OP_PUT = 1;
+    private static final byte OP_REMOVE = 2;
+    private static final int MAX_FIELD_LENGTH = 64 * 1024;
+    private static final List<String> PRODUCT_TYPES =
+            Arrays.asList(PurchaseClient.ProductType.INAPP, PurchaseClient.ProductType.SUBS);
+
+    interface LoadCallback {
+        void onLoaded(List<PurchaseData> purchases);
+    }
+
+    private static final class Entry {
+        final String productType;
+        final String originalJson;
+        final String signature;
+        // Product types whose query did not return an untyped entry. Kept in memory only.
+        private Set<String> missedBy;
+
+        Entry(String productType, String originalJson, String signature) {
+            this.productType = productType;
+            this.originalJson = originalJson;
+            this.signature = signature;
+        }
+
+        /**
+         * @return true once the query of every product type came back without this entry.
+         */
+        boolean missedBy(String productType) {
+            if (missedBy == null) {
+                missedBy = new HashSet<>();
+            }
+            missedBy.add(productType);
+            return missedBy.containsAll(PRODUCT_TYPES);
+        }
+    }
+
+    private final File file;
+    private final SignatureVerifier verifier;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Executor ioExecutor;
+
+    // Only touched on the io executor.
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private boolean loaded = false;
+    private int recordCount = 0;
+
+    // Owners that opted in, guarded by this.
+    private final Set<Object> owners = new HashSet<>();
+    private volatile boolean enabled = false;
+
+    private static EntitlementStore instance;
+
+    /**
+     * Every engine in the process shares one store so that all writes go through the same executor.
+     */
+    static synchronized EntitlementStore getInstance(Context context) {
+        if (instance == null) {
+            final File file = new File(context.getApplicationContext().getFilesDir(), FILE_NAME);
+            instance = new EntitlementStore(file, new SignatureVerifier(), Executors.newSingleThreadExecutor(
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "onestore-entitlements");
+                        thread.setDaemon(true);
+                        return thread;
+                    }));
+        }
+        return instance;
+    }
+
+    EntitlementStore(File file, SignatureVerifier verifier, Executor ioExecutor) {
+        this.file = file;
+        this.verifier = verifier;
+        this.ioExecutor = ioExecutor;
+    }
+
+    /**
+     * Opts {@code owner} in or out. The store stays enabled while any owner has opted in, and the
+     * file is only deleted when the last owner that opted in opts out again, so an engine that never
+     * asked for the snapshot cannot remove it.
+     */
+    synchronized void setEnabled(Object owner, boolean enabled) {
+        if (enabled) {
+            owners.add(owner);
+            this.enabled = true;
+            return;
+        }
+        if (!owners.remove(owner) || !owners.isEmpty()) {
+            return;
+        }
+        this.enabled = false;
+        ioExecutor.execute(() -> {
+            entries.clear();
+            recordCount = 0;
+            if (file.exists() && !file.delete()) {
+                Logger.w(TAG, "Failed to delete " + file);
+            }
+        });
+    }
+
+    /**
+     * Drops the opt-in of a disposed owner. The file is kept for the next cold start.
+     */
+    synchronized void release(Object owner) {
+        if (owners.remove(owner) && owners.isEmpty()) {
+            enabled = false;
+        }
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Loads the stored purchases, drops every entry whose signature does not match
+     * {@code base64PublicKey} and delivers the rest on the platform thread. Without a key nothing
+     * can be verified, so nothing is delivered and nothing is dropped.
+     */
+    void load(final String base64PublicKey, final LoadCallback callback) {
+        if (!enabled || TextUtils.isEmpty(base64PublicKey)) {
+            callback.onLoaded(new ArrayList<>());
+            return;
+        }
+
+        ioExecutor.execute(() -> {
+            ensureLoaded();
+            final List<PurchaseData> purchases = new ArrayList<>(entries.size());
+            final Iterator<Entry> iterator = entries.values().iterator();
+            boolean dropped = false;
+            while (iterator.hasNext()) {
+                final Entry entry = iterator.next();
+                if (verifier.verify(base64PublicKey, entry.originalJson, entry.signature)) {
+                    purchases.add(new PurchaseData(entry.originalJson, entry.signature, null));
+                } else {
+                    iterator.remove();
+                    dropped = true;
+                }
+            }
+            if (dropped) {
+                Logger.w(TAG, "Dropped entitlements with an invalid signature");
+                rewrite();
+            }
+            mainHandler.post(() -> callback.onLoaded(purchases));
+        });
+    }
+
+    /**
+     * Records purchases reported outside a query, e.g. by onPurchasesUpdated. {@code productType}
+     * may be null when it is not known.
+     */
+    void putAll(final String productType, final List<PurchaseData> purchases) {
+        if (!enabled || purchases == null || purchases.isEmpty()) {
+            return;
+        }
+
+        ioExecutor.execute(() -> {
+            ensureLoaded();
+            DataOutputStream out = null;
+            try {
+                out = openForAppend();
+                for (PurchaseData purchase : purchases) {
+                    // An update of a purchase that was already queried keeps its known type.
+                    final Entry previous = entries.get(purchase.getPurchaseToken());
+                    final String type = (productType == null && previous != null) ? previous.productType : productType;
+                    final Entry entry = new Entry(type, purchase.getOriginalJson(), purchase.getSignature());
+                    entries.put(purchase.getPurchaseToken(), entry);
+                    writePut(out, purchase.getPurchaseToken(), entry);
+                }
+            } catch (IOException e) {
+                Logger.w(TAG, "Failed to append entitlements: " + e);
+            } finally {
+                closeQuietly(out);
+            }
+        });
+    }
+
+    void remove(final String purchaseToken) {
+        if (!enabled || purchaseToken == null) {
+            return;
+        }
+
+        ioExecutor.execute(() -> {
+            ensureLoaded();
+            if (entries.remove(purchaseToken) == null) {
+                return;
+            }
+            DataOutputStream out = null;
+            try {
+                out = openForAppend();
+                writeRemove(out, purchaseToken);
+            } catch (IOException e) {
+                Logger.w(TAG, "Failed to append entitlements: " + e);
+            } finally {
+                closeQuietly(out);
+            }
+            compactIfNeeded();
+        });
+    }
+
+    /**
+     * Replaces the stored purchases of {@code productType} with the live query result. Entries
+     * recorded without a product type take the type of the query that returns them, and are only
+     * dropped once the queries of every product type came back without them.
+     */
+    void reconcile(final String productType, final List<PurchaseData> purchases) {
+        if (!enabled) {
+            return;
+        }
+
+        ioExecutor.execute(() -> {
+            ensureLoaded();
+            final Set<String> liveTokens = new HashSet<>();
+            if (purchases != null) {
+                for (PurchaseData purchase : purchases) {
+                    liveTokens.add(purchase.getPurchaseToken());
+                }
+            }
+
+            final Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                final Map.Entry<String, Entry> entry = iterator.next();
+                if (liveTokens.contains(entry.getKey())) {
+                    continue;
+                }
+                final String type = entry.getValue().productType;
+                if (type == null ? entry.getValue().missedBy(productType) : type.equals(productType)) {
+                    iterator.remove();
+                }
+            }
+            if (purchases != null) {
+                for (PurchaseData purchase : purchases) {
+                    entries.put(purchase.getPurchaseToken(),
+                            new Entry(productType, purchase.getOriginalJson(), purchase.getSignature()));
+                }
+            }
+            rewrite();
+        });
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (!file.exists()) {
+            return;
+        }
+
+        boolean corrupt = false;
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            while (true) {
+                final byte op;
+                try {
+                    op = in.readByte();
+                } catch (EOFException e) {
+                    break;
+                }
+                final String type = emptyToNull(in.readUTF());
+                final String token = in.readUTF();
+                if (op == OP_PUT) {
+                    entries.put(token, new Entry(type, readString(in), readString(in)));
+                } else if (op == OP_REMOVE) {
+                    entries.remove(token);
+                } else {
+                    throw new IOException("Unknown record: " + op);
+                }
+                recordCount++;
+            }
+        } catch (IOException e) {
+            // A torn tail write only loses the last record, everything read so far is kept.
+            Logger.w(TAG, "Stopped reading entitlements: " + e);
+            corrupt = true;
+        } finally {
+            closeQuietly(in);
+        }
+        if (corrupt) {
+            // Records appended behind the bad bytes would never be read again.
+            rewrite();
+        }
+    }
+
+    private void compactIfNeeded() {
+        if (recordCount > 2 * entries.size() + 16) {
+            rewrite();
+        }
+    }
+
+    private void rewrite() {
+        final File temp = new File(file.getPath() + ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                writePut(out, entry.getKey(), entry.getValue());
+            }
+            out.close();
+            out = null;
+        } catch (IOException e) {
+            Logger.w(TAG, "Failed to write entitlements: " + e);
+            return;
+        } finally {
+            closeQuietly(out);
+        }
+
+        if (!temp.renameTo(file)) {
+            Logger.w(TAG, "Failed to replace " + file);
+            return;
+        }
+        recordCount = entries.size();
+    }
+
+    private DataOutputStream openForAppend() throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+    }
+
+    private void writePut(DataOutputStream out, String token, Entry entry) throws IOException {
+        out.writeByte(OP_PUT);
+        out.writeUTF(entry.productType == null ? "" : entry.productType);
+        out.writeUTF(token);
+        writeString(out, entry.originalJson);
+        writeString(out, entry.signature);
+        recordCount++;
+    }
+
+    private void writeRemove(DataOutputStream out, String token) throws IOException {
+        out.writeByte(OP_REMOVE);
+        out.writeUTF("");
+        out.writeUTF(token);
+        recordCount++;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        final byte[] bytes = (value == null ? "" : value).getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        final int length = in.readInt();
+        if (length < 0 || length > MAX_FIELD_LENGTH) {
+            throw new IOException("Invalid field length: " + length);
+        }
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            Logger.w(TAG, "Failed to close " + e);
+        }
+    }
+}
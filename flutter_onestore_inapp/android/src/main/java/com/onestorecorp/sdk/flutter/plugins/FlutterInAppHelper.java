@@ -15,6 +15,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import io.flutter.plugin.common.MethodCall;
 
@@ -23,12 +24,29 @@ public class FlutterInAppHelper {
     static PurchaseData toPurchaseData(MethodCall call) {
         String originalJson = call.argument("originalJson");
         String signature = call.argument("signature");
+        return toPurchaseData(originalJson, signature);
+    }
+
+    static PurchaseData toPurchaseData(String originalJson, String signature) {
         if (originalJson == null)
             return null;
 
         return new PurchaseData(originalJson, signature, null);
     }
 
+    static List<PurchaseData> toPurchaseDataList(MethodCall call) {
+        final List<Map<String, Object>> purchases = call.argument("purchases");
+        if (purchases == null) {
+            return Collections.emptyList();
+        }
+
+        final List<PurchaseData> result = new ArrayList<>(purchases.size());
+        for (Map<String, Object> purchase : purchases) {
+            result.add(toPurchaseData((String) purchase.get("originalJson"), (String) purchase.get("signature")));
+        }
+        return result;
+    }
+
     static PurchaseFlowParams toPurchaseFlowParams(MethodCall call) {
         final Object quantityObj = call.argument("quantity");
         final Object promotionObj = call.argument("promotionApplicable");
@@ -63,23 +81,32 @@ public class FlutterInAppHelper {
     }
 
     static ConsumeParams toConsumeParams(MethodCall call) {
+        return toConsumeParams(toPurchaseData(call), call.argument("developerPayload"));
+    }
+
+    static ConsumeParams toConsumeParams(PurchaseData purchaseData, String developerPayload) {
         return ConsumeParams.newBuilder()
-                .setPurchaseData(toPurchaseData(call))
-                .setDeveloperPayload(call.argument("developerPayload"))
+                .setPurchaseData(purchaseData)
+                .setDeveloperPayload(developerPayload)
                 .build();
     }
 
     static AcknowledgeParams toAcknowledgeParams(MethodCall call) {
+        return toAcknowledgeParams(toPurchaseData(call), call.argument("developerPayload"));
+    }
+
+    static AcknowledgeParams toAcknowledgeParams(PurchaseData purchaseData, String developerPayload) {
         return AcknowledgeParams.newBuilder()
-                .setPurchaseData(toPurchaseData(call))
-                .setDeveloperPayload(call.argument("developerPayload"))
+                .setPurchaseData(purchaseData)
+                .setDeveloperPayload(developerPayload)
                 .build();
     }
 
     static ProductDetailsParams toProductDetailParams(MethodCall call) {
-        List<String> productIds = call.argument("productIds");
-        String type = call.argument("productType");
+        return toProductDetailParams(call.argument("productIds"), call.argument("productType"));
+    }
 
+    static ProductDetailsParams toProductDetailParams(List<String> productIds, String type) {
         if (type == null) {
             type = PurchaseClient.ProductType.ALL;
         }
@@ -97,19 +124,30 @@ public class FlutterInAppHelper {
     }
 
     static List<HashMap<String, Object>> fromProductDetailsList(List<ProductDetail> data) {
+        return fromProductDetailsList(data, null);
+    }
+
+    static List<HashMap<String, Object>> fromProductDetailsList(List<ProductDetail> data, List<String> fieldMask) {
         if (data == null) {
             return Collections.emptyList();
         }
 
-        List<HashMap<String, Object>> result = new ArrayList<>();
-        for (ProductDetail productDetail: data) {
-            result.add(fromProductDetail(productDetail));
+        List<HashMap<String, Object>> result = new ArrayList<>(data.size());
+        if (fieldMask == null) {
+            for (ProductDetail productDetail: data) {
+                result.add(fromProductDetail(productDetail));
+            }
+        } else {
+            List<PayloadFields.Field<ProductDetail>> fields = PayloadFields.select(PayloadFields.PRODUCT_DETAIL, fieldMask);
+            for (ProductDetail productDetail: data) {
+                result.add(fromFields(productDetail, fields));
+            }
         }
         return result;
     }
 
     static HashMap<String, Object> fromProductDetail(ProductDetail data) {
-        HashMap<String, Object> result = new HashMap<>();
+        HashMap<String, Object> result = new HashMap<>(capacityFor(13));
         result.put("productId", data.getProductId());
         result.put("productType", data.getType());
         result.put("title", data.getTitle());
@@ -129,19 +167,30 @@ public class FlutterInAppHelper {
 
 
     static List<HashMap<String, Object>> fromPurchasesList(List<PurchaseData> data) {
+        return fromPurchasesList(data, null);
+    }
+
+    static List<HashMap<String, Object>> fromPurchasesList(List<PurchaseData> data, List<String> fieldMask) {
         if (data == null) {
             return Collections.emptyList();
         }
 
-        List<HashMap<String, Object>> result = new ArrayList<>();
-        for (PurchaseData purchaseData: data) {
-            result.add(fromPurchaseData(purchaseData));
+        List<HashMap<String, Object>> result = new ArrayList<>(data.size());
+        if (fieldMask == null) {
+            for (PurchaseData purchaseData: data) {
+                result.add(fromPurchaseData(purchaseData));
+            }
+        } else {
+            List<PayloadFields.Field<PurchaseData>> fields = PayloadFields.select(PayloadFields.PURCHASE_DATA, fieldMask);
+            for (PurchaseData purchaseData: data) {
+                result.add(fromFields(purchaseData, fields));
+            }
         }
         return result;
     }
 
     static HashMap<String, Object> fromPurchaseData(PurchaseData data) {
-        HashMap<String, Object> result = new HashMap<>();
+        HashMap<String, Object> result = new HashMap<>(capacityFor(12));
         result.put("orderId", data.getOrderId());
         result.put("productId", data.getProductId());
         result.put("packageName", data.getPackageName());
@@ -157,10 +206,41 @@ public class FlutterInAppHelper {
         return result;
     }
 
+    static <T> HashMap<String, Object> fromFields(T data, List<PayloadFields.Field<T>> fields) {
+        HashMap<String, Object> result = new HashMap<>(capacityFor(fields.size()));
+        for (PayloadFields.Field<T> field : fields) {
+            result.put(field.name, field.accessor.get(data));
+        }
+        return result;
+    }
+
+    private static int capacityFor(int size) {
+        return (int) (size / 0.75f) + 1;
+    }
+
     static HashMap<String, Object> fromIapResult(IapResult data) {
+        return fromIapResult(data.getResponseCode(), data.getMessage());
+    }
+
+    static HashMap<String, Object> fromIapResult(int responseCode, String message) {
         HashMap<String, Object> result = new HashMap<>();
-        result.put("responseCode", data.getResponseCode());
-        result.put("message", data.getMessage());
+        result.put("responseCode", responseCode);
+        result.put("message", message);
         return result;
     }
+
+    static long argumentAsLong(MethodCall call, String key, long defaultValue) {
+        final Object value = call.argument(key);
+        return (value instanceof Number) ? ((Number) value).longValue() : defaultValue;
+    }
+
+    static int argumentAsInt(MethodCall call, String key, int defaultValue) {
+        final Object value = call.argument(key);
+        return (value instanceof Number) ? ((Number) value).intValue() : defaultValue;
+    }
+
+    static boolean argumentAsBoolean(MethodCall call, String key, boolean defaultValue) {
+        final Object value = call.argument(key);
+        return (value instanceof Boolean) ? (Boolean) value : defaultValue;
+    }
 }
@@ -0,0 +1,68 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.gaa.sdk.iap.IapResult;
+import com.gaa.sdk.iap.PurchaseClient;
+import com.gaa.sdk.iap.PurchaseData;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Handles purchase updates of a shared connection while no engine has an Activity attached.
+ *
+ * <p>The updates go to the registered Dart background callback when there is one. Otherwise the
+ * {@link PurchasePolicy} acknowledges or consumes them natively, so that they are not refunded
+ * before the app comes back to the foreground.
+ */
+final class HeadlessPurchaseProcessor {
+    private static final String TAG = "HeadlessPurchaseProcessor";
+
+    private final Context context;
+    private final PurchaseConnection connection;
+    private PurchasePolicy policy = PurchasePolicy.NONE;
+
+    HeadlessPurchaseProcessor(Context context, PurchaseConnection connection) {
+        this.context = context;
+        this.connection = connection;
+    }
+
+    void setPolicy(PurchasePolicy policy) {
+        this.policy = policy;
+    }
+
+    void process(IapResult iapResult, List<PurchaseData> list) {
+        if (iapResult.getResponseCode() != PurchaseClient.ResponseCode.RESULT_OK || list == null || list.isEmpty()) {
+            return;
+        }
+
+        final BackgroundPurchaseEngine backgroundEngine = BackgroundPurchaseEngine.getInstance(context);
+        if (backgroundEngine.hasCallback()) {
+            PluginLog.d(TAG, "dispatching purchases to the background callback => ", list.size());
+            backgroundEngine.dispatch(iapResult, list);
+            return;
+        }
+
+        final PurchaseClient purchaseClient = connection.getClient();
+        final PurchasePolicy currentPolicy = policy;
+        // Updates do not say which product type they belong to.
+        final Map<String, String> productTypes = Collections.emptyMap();
+        final List<PurchaseData> purchases = currentPolicy.select(list, productTypes);
+        if (purchaseClient == null || purchases.isEmpty()) {
+            return;
+        }
+        PluginLog.d(TAG, "applying the purchase policy => ", purchases.size());
+        currentPolicy.apply(purchaseClient, EntitlementStore.getInstance(context), purchases, productTypes,
+                results -> {
+                    if (!PluginLog.isLoggable(Log.DEBUG)) {
+                        return;
+                    }
+                    for (int i = 0; i < results.size(); i++) {
+                        PluginLog.d(TAG, purchases.get(i).getProductId() + " => ", results.get(i));
+                    }
+                });
+    }
+}
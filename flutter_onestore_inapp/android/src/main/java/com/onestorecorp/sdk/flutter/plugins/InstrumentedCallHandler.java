@@ -0,0 +1,97 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import org.jetbrains.annotations.NotNull;
+
+import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.MethodChannel;
+
+/**
+ * Wraps a channel handler and records every call into {@link CallMetrics} and {@link PluginLog}.
+ */
+class InstrumentedCallHandler implements MethodChannel.MethodCallHandler {
+    private final String channelName;
+    private final MethodChannel.MethodCallHandler delegate;
+    private final CallMetrics metrics;
+
+    InstrumentedCallHandler(String channelName, MethodChannel.MethodCallHandler delegate, CallMetrics metrics) {
+        this.channelName = channelName;
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void onMethodCall(@NotNull MethodCall call, @NotNull MethodChannel.Result result) {
+        final CallMetrics.MethodStats stats = metrics.statsFor(channelName, call.method);
+        final long start = System.nanoTime();
+        final InstrumentedResult instrumentedResult =
+                new InstrumentedResult(result, stats, channelName, call.method, start);
+        try {
+            delegate.onMethodCall(call, instrumentedResult);
+        } catch (RuntimeException e) {
+            // The channel answers uncaught exceptions with an error reply that bypasses the wrapper.
+            instrumentedResult.record(true, PluginLog.CODE_ERROR);
+            throw e;
+        } finally {
+            instrumentedResult.onHandled(start);
+        }
+    }
+
+    private static final class InstrumentedResult implements MethodChannel.Result {
+        private final MethodChannel.Result result;
+        private final CallMetrics.MethodStats stats;
+        private final String channelName;
+        private final String method;
+        private final long startedAt;
+        private long handledAt = -1L;
+        private boolean replied = false;
+        private boolean repliedWithError = false;
+
+        InstrumentedResult(MethodChannel.Result result, CallMetrics.MethodStats stats,
+                           String channelName, String method, long startedAt) {
+            this.result = result;
+            this.stats = stats;
+            this.channelName = channelName;
+            this.method = method;
+            this.startedAt = startedAt;
+        }
+
+        void onHandled(long start) {
+            handledAt = System.nanoTime();
+            stats.onHandled(handledAt - start);
+            // Replies sent while the handler was still running are recorded once it has returned.
+            if (replied) {
+                stats.onReplied(0L, repliedWithError);
+            }
+        }
+
+        @Override
+        public void success(Object value) {
+            record(false, PluginLog.codeOfReply(value));
+            result.success(value);
+        }
+
+        @Override
+        public void error(@NotNull String errorCode, String errorMessage, Object errorDetails) {
+            record(true, PluginLog.codeOf(errorCode));
+            result.error(errorCode, errorMessage, errorDetails);
+        }
+
+        @Override
+        public void notImplemented() {
+            record(true, PluginLog.CODE_NOT_IMPLEMENTED);
+            result.notImplemented();
+        }
+
+        void record(boolean error, int code) {
+            if (replied) {
+                return;
+            }
+            replied = true;
+            repliedWithError = error;
+            PluginLog.record(channelName, method, code, System.nanoTime() - startedAt);
+            if (handledAt >= 0) {
+                stats.onReplied(System.nanoTime() - handledAt, error);
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import android.app.Activity;
+
+import org.jetbrains.annotations.NotNull;
+
+import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.MethodChannel;
+
+/**
+ * Creates the real handler on the first call of its channel, so that the SDK classes behind a
+ * channel the app never uses are not loaded. The created handler is kept across Activity reattaches.
+ */
+class LazyCallHandler implements ActivityAwareCallHandler {
+    private static final String TAG = "LazyCallHandler";
+
+    interface Factory {
+        MethodChannel.MethodCallHandler create();
+    }
+
+    private final String name;
+    private final Factory factory;
+
+    private MethodChannel.MethodCallHandler delegate;
+    private Activity activity;
+
+    LazyCallHandler(String name, Factory factory) {
+        this.name = name;
+        this.factory = factory;
+    }
+
+    @Override
+    public void onMethodCall(@NotNull MethodCall call, @NotNull MethodChannel.Result result) {
+        getOrCreate().onMethodCall(call, result);
+    }
+
+    @Override
+    public void setActivity(Activity activity) {
+        this.activity = activity;
+        if (delegate instanceof ActivityAwareCallHandler) {
+            ((ActivityAwareCallHandler) delegate).setActivity(activity);
+        }
+    }
+
+    @Override
+    public void onDetachedFromActivity() {
+        if (delegate instanceof ActivityAwareCallHandler) {
+            ((ActivityAwareCallHandler) delegate).onDetachedFromActivity();
+        }
+    }
+
+    @Override
+    public void dispose() {
+        if (delegate instanceof ActivityAwareCallHandler) {
+            ((ActivityAwareCallHandler) delegate).dispose();
+        }
+        delegate = null;
+    }
+
+    private MethodChannel.MethodCallHandler getOrCreate() {
+        if (delegate == null) {
+            PluginLog.d(TAG, "create handler => ", name);
+            PluginTrace.begin("OneStoreInAppPlugin.create:" + name);
+            try {
+                delegate = factory.create();
+                if (delegate instanceof ActivityAwareCallHandler) {
+                    ((ActivityAwareCallHandler) delegate).setActivity(activity);
+                }
+            } finally {
+                PluginTrace.end();
+            }
+        }
+        return delegate;
+    }
+}
@@ -1,6 +1,8 @@
 package com.onestorecorp.sdk.flutter.plugins;
 
 import android.app.Activity;
+import android.os.SystemClock;
+import android.text.TextUtils;
 
 import com.gaa.sdk.base.Logger;
 import com.onestore.extern.licensing.AppLicenseChecker;
@@ -8,21 +10,51 @@ import com.onestore.extern.licensing.LicenseCheckerListener;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel;
 
-public class LicenseCallHandlerImpl implements MethodChannel.MethodCallHandler, LicenseCheckerListener {
+public class LicenseCallHandlerImpl implements ActivityAwareCallHandler, LicenseCheckerListener {
     private static final String TAG = "LicenseCallHandlerImpl";
+
+    interface CheckerFactory {
+        AppLicenseChecker create(Activity activity, String publicKey, LicenseCheckerListener listener);
+    }
+
+    private final CheckerFactory checkerFactory;
     private MethodChannel methodChannel;
     private Activity activity;
 
     private AppLicenseChecker checker;
+    private String checkerKey;
+    private CheckerListener checkerListener;
+
+    private final SignatureVerifier signatureVerifier = new SignatureVerifier();
+
+    // Calls waiting for the check in progress, and strict calls that arrived during a non-strict one.
+    private final List<MethodChannel.Result> pendingResults = new ArrayList<>();
+    private final List<MethodChannel.Result> strictResults = new ArrayList<>();
+    private boolean checking = false;
+    private boolean checkingStrict = false;
+
+    private String publicKey;
+    private long cacheValidityMillis = 0L;
+    private String cachedKey;
+    private String cachedLicense;
+    private String cachedSignature;
+    private long cachedAt;
 
     public LicenseCallHandlerImpl(MethodChannel methodChannel) {
+        this(methodChannel, AppLicenseChecker::get);
+    }
+
+    LicenseCallHandlerImpl(MethodChannel methodChannel, CheckerFactory checkerFactory) {
         this.methodChannel = methodChannel;
+        this.checkerFactory = checkerFactory;
     }
 
     public void setActivity(Activity activity) {
@@ -33,57 +65,201 @@ public class LicenseCallHandlerImpl implements MethodChannel.MethodCallHandler,
         destroy();
     }
 
+    public void dispose() {
+        destroy();
+    }
+
     @Override
     public void onMethodCall(@NotNull MethodCall call, @NotNull MethodChannel.Result result) {
         switch (call.method) {
-            case "queryLicense": queryLicense(call.arguments.toString()); break;
-            case "strictQueryLicense": strictQueryLicense(call.arguments.toString()); break;
-            case "destroy": destroy(); break;
+            case "queryLicense": queryLicense(call, result); break;
+            case "strictQueryLicense": strictQueryLicense(call, result); break;
+            case "destroy": destroy(); result.success(null); break;
             default: result.notImplemented(); break;
         }
     }
 
-    private void initAppLicenseChecker(String publicKey) {
+    private boolean initAppLicenseChecker(MethodCall call, MethodChannel.Result result) {
+        // Older callers pass the public key as the only argument.
+        if (call.arguments instanceof Map) {
+            publicKey = call.argument("publicKey");
+            cacheValidityMillis = FlutterInAppHelper.argumentAsLong(call, "cacheValidityMillis", 0L);
+        } else {
+            publicKey = call.arguments.toString();
+        }
+
+        if (checker != null && !TextUtils.equals(checkerKey, publicKey)) {
+            // The checker verifies against the key it was created with.
+            Logger.d(TAG, "publicKey changed, recreating the license checker");
+            destroy();
+        }
         if (checker == null) {
-            checker = AppLicenseChecker.get(activity, publicKey, this);
+            if (activity == null) {
+                result.success(errorResult(-1, "No Activity is attached."));
+                return false;
+            }
+            checkerListener = new CheckerListener();
+            checker = checkerFactory.create(activity, publicKey, checkerListener);
+            checkerKey = publicKey;
         }
+        return true;
     }
 
-    private void queryLicense(String publicKey) {
-        initAppLicenseChecker(publicKey);
-        checker.queryLicense();
+    private void queryLicense(MethodCall call, MethodChannel.Result result) {
+        if (!initAppLicenseChecker(call, result)) {
+            return;
+        }
+        if (isCacheValid()) {
+            // The Dart side only learns the result through the callback, so every cache hit emits it.
+            Logger.d(TAG, "queryLicense => served from cache");
+            result.success(toGrantedResult(cachedLicense, cachedSignature));
+            methodChannel.invokeMethod("onGranted", toGrantedResult(cachedLicense, cachedSignature));
+            return;
+        }
+
+        pendingResults.add(result);
+        if (!checking) {
+            startCheck(false);
+        }
     }
 
-    private void strictQueryLicense(String publicKey) {
-        initAppLicenseChecker(publicKey);
-        checker.strictQueryLicense();
+    private void strictQueryLicense(MethodCall call, MethodChannel.Result result) {
+        if (!initAppLicenseChecker(call, result)) {
+            return;
+        }
+        if (checking && !checkingStrict) {
+            // A non-strict answer is not enough, run a strict check once the current one is done.
+            strictResults.add(result);
+            return;
+        }
+
+        pendingResults.add(result);
+        if (!checking) {
+            startCheck(true);
+        }
+    }
+
+    private void startCheck(boolean strict) {
+        checking = true;
+        checkingStrict = strict;
+        if (strict) {
+            checker.strictQueryLicense();
+        } else {
+            checker.queryLicense();
+        }
     }
 
     private void destroy() {
         Logger.d(TAG, "destroy");
         if (checker != null) checker.destroy();
         checker = null;
+        checkerKey = null;
+        checkerListener = null;
+        clearCache();
+        finishCheck(errorResult(-1, "License checker was destroyed."));
     }
 
     @Override
     public void granted(String license, String signature) {
-        Map<String, Object> resultData = new HashMap<>();
-        resultData.put("license", license);
-        resultData.put("signature", signature);
+        final Map<String, Object> resultData = toGrantedResult(license, signature);
+        if (cacheValidityMillis > 0 && signatureVerifier.verify(publicKey, license, signature)) {
+            cachedKey = publicKey;
+            cachedLicense = license;
+            cachedSignature = signature;
+            cachedAt = SystemClock.elapsedRealtime();
+        } else {
+            clearCache();
+        }
         methodChannel.invokeMethod("onGranted", resultData);
+        finishCheck(resultData);
     }
 
     @Override
     public void denied() {
+        clearCache();
         methodChannel.invokeMethod("onDenied", null);
+        final Map<String, Object> resultData = new HashMap<>();
+        resultData.put("status", "denied");
+        finishCheck(resultData);
     }
 
     @Override
     public void error(int code, String message) {
-        Map<String, Object> resultData = new HashMap<>();
-        resultData.put("code", code);
-        resultData.put("message", message);
+        final Map<String, Object> resultData = errorResult(code, message);
         methodChannel.invokeMethod("onError", resultData);
+        finishCheck(resultData);
+    }
+
+    private void finishCheck(Map<String, Object> resultData) {
+        final List<MethodChannel.Result> results = new ArrayList<>(pendingResults);
+        pendingResults.clear();
+        checking = false;
+        for (MethodChannel.Result result : results) {
+            result.success(resultData);
+        }
+
+        if (!strictResults.isEmpty()) {
+            pendingResults.addAll(strictResults);
+            strictResults.clear();
+            if (checker == null) {
+                finishCheck(resultData);
+                return;
+            }
+            startCheck(true);
+        }
+    }
+
+    /**
+     * Forwards the callbacks of one checker, and drops them once that checker was replaced.
+     */
+    private final class CheckerListener implements LicenseCheckerListener {
+        @Override
+        public void granted(String license, String signature) {
+            if (checkerListener == this) {
+                LicenseCallHandlerImpl.this.granted(license, signature);
+            }
+        }
+
+        @Override
+        public void denied() {
+            if (checkerListener == this) {
+                LicenseCallHandlerImpl.this.denied();
+            }
+        }
+
+        @Override
+        public void error(int code, String message) {
+            if (checkerListener == this) {
+                LicenseCallHandlerImpl.this.error(code, message);
+            }
+        }
+    }
+
+    private boolean isCacheValid() {
+        return cachedLicense != null
+                && cachedKey.equals(publicKey)
+                && SystemClock.elapsedRealtime() - cachedAt < cacheValidityMillis;
     }
 
+    private void clearCache() {
+        cachedKey = null;
+        cachedLicense = null;
+        cachedSignature = null;
+    }
+
+    private static Map<String, Object> toGrantedResult(String license, String signature) {
+        final Map<String, Object> resultData = new HashMap<>();
+        resultData.put("status", "granted");
+        resultData.put("license", license);
+        resultData.put("signature", signature);
+        return resultData;
+    }
+
+    private static Map<String, Object> errorResult(int code, String message) {
+        final Map<String, Object> resultData = new HashMap<>();
+        resultData.put("status", "error");
+        resultData.put("code", code);
+        resultData.put("message", message);
+        return resultData;
+    }
 }
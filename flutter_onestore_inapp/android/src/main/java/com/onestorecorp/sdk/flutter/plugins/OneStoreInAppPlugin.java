@@ -1,10 +1,14 @@
 package com.onestorecorp.sdk.flutter.plugins;
 
+import android.content.Context;
+
 import org.jetbrains.annotations.NotNull;
 
 import io.flutter.embedding.engine.plugins.FlutterPlugin;
 import io.flutter.embedding.engine.plugins.activity.ActivityAware;
 import io.flutter.embedding.engine.plugins.activity.ActivityPluginBinding;
+import io.flutter.plugin.common.BinaryMessenger;
+import io.flutter.plugin.common.EventChannel;
 import io.flutter.plugin.common.MethodChannel;
 
 public class OneStoreInAppPlugin implements FlutterPlugin, ActivityAware {
@@ -15,21 +19,54 @@ public class OneStoreInAppPlugin implements FlutterPlugin, ActivityAware {
     private MethodChannel authChannel;
     private MethodChannel licenseChannel;
     private MethodChannel purchaseChannel;
+    private EventChannel connectionChannel;
+
+    // The handlers are created on the first call of their channel and kept across reattaches.
+    private LazyCallHandler baseCallHandler;
+    private LazyCallHandler authCallHandler;
+    private LazyCallHandler licenseCallHandler;
+    private LazyCallHandler purchaseCallHandler;
 
-    private AuthCallHandlerImpl authCallHandler;
-    private LicenseCallHandlerImpl licenseCallHandler;
-    private PurchaseCallHandlerImpl purchaseCallHandler;
+    private final CallMetrics callMetrics = new CallMetrics();
+    private final CallTracker callTracker = new CallTracker();
+    private StoreEnvironmentCache storeEnvironment;
+    private ConnectionStateStream connectionStates;
 
     @Override
     public void onAttachedToEngine(@NotNull FlutterPluginBinding binding) {
-        baseChannel = new MethodChannel(binding.getBinaryMessenger(), PROXY_VALUE + "/base");
-        authChannel = new MethodChannel(binding.getBinaryMessenger(), PROXY_VALUE + "/auth");
-        licenseChannel = new MethodChannel(binding.getBinaryMessenger(), PROXY_VALUE + "/license");
-        purchaseChannel = new MethodChannel(binding.getBinaryMessenger(), PROXY_VALUE + "/purchase");
-
-        authCallHandler = new AuthCallHandlerImpl(binding.getApplicationContext());
-        licenseCallHandler = new LicenseCallHandlerImpl(licenseChannel);
-        purchaseCallHandler = new PurchaseCallHandlerImpl(binding.getApplicationContext(), purchaseChannel);
+        PluginTrace.begin("OneStoreInAppPlugin.onAttachedToEngine");
+        try {
+            final BinaryMessenger messenger = binding.getBinaryMessenger();
+            final Context context = binding.getApplicationContext();
+
+            final MethodChannel license = new MethodChannel(messenger, PROXY_VALUE + "/license");
+            final MethodChannel purchase = new MethodChannel(messenger, PROXY_VALUE + "/purchase");
+            baseChannel = new MethodChannel(messenger, PROXY_VALUE + "/base");
+            authChannel = new MethodChannel(messenger, PROXY_VALUE + "/auth");
+            licenseChannel = license;
+            purchaseChannel = purchase;
+            final StoreEnvironmentCache environment = new StoreEnvironmentCache(context, baseChannel);
+            final ConnectionStateStream states = new ConnectionStateStream();
+            storeEnvironment = environment;
+            connectionStates = states;
+            connectionChannel = new EventChannel(messenger, PROXY_VALUE + "/purchase/connection");
+            connectionChannel.setStreamHandler(states);
+
+            baseCallHandler = new LazyCallHandler("base",
+                    () -> new BaseCallHandlerImpl(callMetrics, callTracker, environment));
+            authCallHandler = new LazyCallHandler("auth", () -> new AuthCallHandlerImpl(context));
+            licenseCallHandler = new LazyCallHandler("license", () -> new LicenseCallHandlerImpl(license));
+            purchaseCallHandler = new LazyCallHandler("purchase",
+                    () -> new PurchaseCallHandlerImpl(context, purchase, environment, states));
+
+            // Engines without an Activity, such as the headless purchase engine, need the handlers too.
+            baseChannel.setMethodCallHandler(instrument("base", baseCallHandler));
+            authChannel.setMethodCallHandler(instrument("auth", authCallHandler));
+            licenseChannel.setMethodCallHandler(instrument("license", licenseCallHandler));
+            purchaseChannel.setMethodCallHandler(instrument("purchase", purchaseCallHandler));
+        } finally {
+            PluginTrace.end();
+        }
     }
 
     @Override
@@ -38,29 +75,44 @@ public class OneStoreInAppPlugin implements FlutterPlugin, ActivityAware {
         authChannel.setMethodCallHandler(null);
         licenseChannel.setMethodCallHandler(null);
         purchaseChannel.setMethodCallHandler(null);
+        connectionChannel.setStreamHandler(null);
 
         baseChannel = null;
         authChannel = null;
         licenseChannel = null;
         purchaseChannel = null;
+        connectionChannel = null;
+
+        authCallHandler.dispose();
+        licenseCallHandler.dispose();
+        purchaseCallHandler.dispose();
+        callTracker.clear();
+        storeEnvironment.dispose();
+        connectionStates.dispose();
 
+        baseCallHandler = null;
         authCallHandler = null;
         licenseCallHandler = null;
         purchaseCallHandler = null;
+        storeEnvironment = null;
+        connectionStates = null;
     }
 
     @Override
     public void onAttachedToActivity(@NotNull ActivityPluginBinding binding) {
-        baseChannel.setMethodCallHandler(new BaseCallHandlerImpl(binding.getActivity()));
-
-        authCallHandler.setActivity(binding.getActivity());
-        authChannel.setMethodCallHandler(authCallHandler);
-
-        licenseCallHandler.setActivity(binding.getActivity());
-        licenseChannel.setMethodCallHandler(licenseCallHandler);
+        PluginTrace.begin("OneStoreInAppPlugin.onAttachedToActivity");
+        try {
+            authCallHandler.setActivity(binding.getActivity());
+            licenseCallHandler.setActivity(binding.getActivity());
+            purchaseCallHandler.setActivity(binding.getActivity());
+            ConnectionPrewarmer.start(binding.getActivity().getApplicationContext());
+        } finally {
+            PluginTrace.end();
+        }
+    }
 
-        purchaseCallHandler.setActivity(binding.getActivity());
-        purchaseChannel.setMethodCallHandler(purchaseCallHandler);
+    private MethodChannel.MethodCallHandler instrument(String channelName, MethodChannel.MethodCallHandler handler) {
+        return new InstrumentedCallHandler(channelName, callTracker.track(channelName, handler), callMetrics);
     }
 
     @Override
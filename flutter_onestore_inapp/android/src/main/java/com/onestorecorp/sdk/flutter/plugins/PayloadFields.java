@@ -0,0 +1,85 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import com.gaa.sdk.iap.ProductDetail;
+import com.gaa.sdk.iap.PurchaseData;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Field descriptors shared by the map and binary encoders, so that a field mask from the Dart side
+ * selects the same entries whichever transport is used.
+ */
+final class PayloadFields {
+    static final byte TYPE_STRING = 0;
+    static final byte TYPE_INT32 = 1;
+    static final byte TYPE_INT64 = 2;
+    static final byte TYPE_BOOL = 3;
+
+    interface Accessor<T> {
+        Object get(T item);
+    }
+
+    static final class Field<T> {
+        final String name;
+        final byte type;
+        final Accessor<T> accessor;
+
+        Field(String name, byte type, Accessor<T> accessor) {
+            this.name = name;
+            this.type = type;
+            this.accessor = accessor;
+        }
+    }
+
+    static final List<Field<ProductDetail>> PRODUCT_DETAIL = Collections.unmodifiableList(Arrays.asList(
+            new Field<>("productId", TYPE_STRING, ProductDetail::getProductId),
+            new Field<>("productType", TYPE_STRING, ProductDetail::getType),
+            new Field<>("title", TYPE_STRING, ProductDetail::getTitle),
+            new Field<>("price", TYPE_STRING, ProductDetail::getPrice),
+            new Field<>("priceCurrencyCode", TYPE_STRING, ProductDetail::getPriceCurrencyCode),
+            new Field<>("priceAmountMicros", TYPE_STRING, ProductDetail::getPriceAmountMicros),
+            new Field<>("subscriptionPeriod", TYPE_STRING, ProductDetail::getSubscriptionPeriod),
+            new Field<>("subscriptionPeriodUnitCode", TYPE_STRING, ProductDetail::getSubscriptionPeriodUnitCode),
+            new Field<>("freeTrialPeriod", TYPE_STRING, ProductDetail::getFreeTrialPeriod),
+            new Field<>("promotionPrice", TYPE_STRING, ProductDetail::getPromotionPrice),
+            new Field<>("promotionPriceMicros", TYPE_STRING, ProductDetail::getPromotionPriceMicros),
+            new Field<>("promotionUsePeriod", TYPE_STRING, ProductDetail::getPromotionUsePeriod),
+            new Field<>("paymentGracePeriod", TYPE_STRING, ProductDetail::getPaymentGracePeriod)));
+
+    static final List<Field<PurchaseData>> PURCHASE_DATA = Collections.unmodifiableList(Arrays.asList(
+            new Field<>("orderId", TYPE_STRING, PurchaseData::getOrderId),
+            new Field<>("productId", TYPE_STRING, PurchaseData::getProductId),
+            new Field<>("packageName", TYPE_STRING, PurchaseData::getPackageName),
+            new Field<>("purchaseTime", TYPE_INT64, PurchaseData::getPurchaseTime),
+            new Field<>("purchaseToken", TYPE_STRING, PurchaseData::getPurchaseToken),
+            new Field<>("purchaseState", TYPE_INT32, PurchaseData::getPurchaseState),
+            new Field<>("recurringState", TYPE_INT32, PurchaseData::getRecurringState),
+            new Field<>("isAcknowledged", TYPE_BOOL, PurchaseData::isAcknowledged),
+            new Field<>("developerPayload", TYPE_STRING, PurchaseData::getDeveloperPayload),
+            new Field<>("quantity", TYPE_INT32, PurchaseData::getQuantity),
+            new Field<>("originalJson", TYPE_STRING, PurchaseData::getOriginalJson),
+            new Field<>("signature", TYPE_STRING, PurchaseData::getSignature)));
+
+    private PayloadFields() {}
+
+    /**
+     * Returns the descriptors named in {@code mask}, in their canonical order. Unknown names are
+     * ignored and a null mask selects every field.
+     */
+    static <T> List<Field<T>> select(List<Field<T>> fields, List<String> mask) {
+        if (mask == null) {
+            return fields;
+        }
+
+        final List<Field<T>> selected = new ArrayList<>(mask.size());
+        for (Field<T> field : fields) {
+            if (mask.contains(field.name)) {
+                selected.add(field);
+            }
+        }
+        return selected;
+    }
+}
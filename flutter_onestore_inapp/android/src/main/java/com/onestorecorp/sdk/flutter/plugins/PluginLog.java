@@ -0,0 +1,172 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import android.util.Log;
+
+import com.gaa.sdk.base.Logger;
+import com.gaa.sdk.iap.IapResult;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plugin-side logging.
+ *
+ * <p>Messages are only formatted when the level set through {@code setLogLevel} lets them through,
+ * so the hot SDK callbacks don't build strings nobody reads. Every channel call is also recorded as
+ * a structured event in a fixed-size ring of primitive arrays, which the base channel can dump for a
+ * support ticket. Recording allocates nothing once the ring exists.
+ */
+final class PluginLog {
+    static final int DEFAULT_CAPACITY = 256;
+
+    static final int CODE_OK = 0;
+    static final int CODE_ERROR = -1;
+    static final int CODE_NOT_IMPLEMENTED = -2;
+
+    private static volatile int level = Log.INFO;
+
+    private static final Object lock = new Object();
+    private static long[] times = new long[DEFAULT_CAPACITY];
+    private static String[] channels = new String[DEFAULT_CAPACITY];
+    private static String[] methods = new String[DEFAULT_CAPACITY];
+    private static int[] codes = new int[DEFAULT_CAPACITY];
+    private static long[] durations = new long[DEFAULT_CAPACITY];
+    private static int next = 0;
+    private static int size = 0;
+
+    private PluginLog() {}
+
+    static void setLevel(int level) {
+        PluginLog.level = level;
+        Logger.setLogLevel(level);
+    }
+
+    static boolean isLoggable(int priority) {
+        return priority >= level;
+    }
+
+    static void d(String tag, String message) {
+        if (isLoggable(Log.DEBUG)) {
+            Logger.d(tag, message);
+        }
+    }
+
+    static void d(String tag, String prefix, long value) {
+        if (isLoggable(Log.DEBUG)) {
+            Logger.d(tag, prefix + value);
+        }
+    }
+
+    static void d(String tag, String prefix, Object value) {
+        if (isLoggable(Log.DEBUG)) {
+            Logger.d(tag, prefix + value);
+        }
+    }
+
+    static void d(String tag, String prefix, IapResult iapResult) {
+        if (isLoggable(Log.DEBUG)) {
+            Logger.d(tag, prefix + iapResult.toJsonString());
+        }
+    }
+
+    static void w(String tag, String prefix, long value) {
+        if (isLoggable(Log.WARN)) {
+            Logger.w(tag, prefix + value);
+        }
+    }
+
+    /**
+     * Records a finished channel call. {@code code} is the responseCode of a successful reply,
+     * the numeric error code of an error reply, {@link #CODE_ERROR} or {@link #CODE_NOT_IMPLEMENTED}.
+     */
+    static void record(String channel, String method, int code, long durationNanos) {
+        final long now = System.currentTimeMillis();
+        synchronized (lock) {
+            times[next] = now;
+            channels[next] = channel;
+            methods[next] = method;
+            codes[next] = code;
+            durations[next] = durationNanos;
+            next = (next + 1) % times.length;
+            size = Math.min(size + 1, times.length);
+        }
+    }
+
+    /**
+     * Resizes the ring, dropping everything recorded so far.
+     */
+    static void setCapacity(int capacity) {
+        final int length = Math.max(1, capacity);
+        synchronized (lock) {
+            if (length == times.length) {
+                return;
+            }
+            times = new long[length];
+            channels = new String[length];
+            methods = new String[length];
+            codes = new int[length];
+            durations = new long[length];
+            next = 0;
+            size = 0;
+        }
+    }
+
+    /**
+     * @return the recorded events, oldest first, as {@code {time, channel, method, code, durationMicros}}.
+     */
+    static List<Map<String, Object>> dump() {
+        synchronized (lock) {
+            final List<Map<String, Object>> events = new ArrayList<>(size);
+            final int first = (next - size + times.length) % times.length;
+            for (int i = 0; i < size; i++) {
+                final int index = (first + i) % times.length;
+                final Map<String, Object> event = new HashMap<>();
+                event.put("time", times[index]);
+                event.put("channel", channels[index]);
+                event.put("method", methods[index]);
+                event.put("code", codes[index]);
+                event.put("durationMicros", durations[index] / 1000L);
+                events.add(event);
+            }
+            return events;
+        }
+    }
+
+    static void clear() {
+        synchronized (lock) {
+            for (int i = 0; i < times.length; i++) {
+                channels[i] = null;
+                methods[i] = null;
+            }
+            next = 0;
+            size = 0;
+        }
+    }
+
+    /**
+     * @return the responseCode of the {@code iapResult} a successful reply carries, or
+     * {@link #CODE_OK} for replies without one.
+     */
+    static int codeOfReply(Object value) {
+        if (value instanceof Map) {
+            final Object iapResult = ((Map<?, ?>) value).get("iapResult");
+            if (iapResult instanceof Map) {
+                final Object responseCode = ((Map<?, ?>) iapResult).get("responseCode");
+                if (responseCode instanceof Number) {
+                    return ((Number) responseCode).intValue();
+                }
+            }
+        }
+        return CODE_OK;
+    }
+
+    static int codeOf(String errorCode) {
+        try {
+            return Integer.parseInt(errorCode);
+        } catch (NumberFormatException e) {
+            return CODE_ERROR;
+        }
+    }
+}
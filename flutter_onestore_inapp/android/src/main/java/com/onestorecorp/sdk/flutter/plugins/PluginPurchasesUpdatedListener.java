@@ -1,27 +1,164 @@
 package com.onestorecorp.sdk.flutter.plugins;
 
+import android.os.Handler;
+import android.os.Looper;
+
 import com.gaa.sdk.iap.IapResult;
 import com.gaa.sdk.iap.PurchaseData;
 import com.gaa.sdk.iap.PurchasesUpdatedListener;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import io.flutter.plugin.common.MethodChannel;
 
+/**
+ * Delivers purchase updates to the Dart side.
+ *
+ * <p>Updates are held in a bounded ring buffer until the Dart side reports that its handler is
+ * ready, and updates that arrive within the batch window are sent together in a single
+ * {@code onPurchasesUpdatedBatch} call. When the buffer is full the oldest update is dropped and
+ * counted, so that the Dart side knows it has to query the purchases again. When a verification key
+ * is set, each event also carries the signature check of its purchases in {@code verifiedList}.
+ */
 public class PluginPurchasesUpdatedListener implements PurchasesUpdatedListener {
+    private static final String TAG = "PluginPurchasesUpdatedListener";
+
+    static final int DEFAULT_BUFFER_SIZE = 64;
+    static final long DEFAULT_BATCH_WINDOW_MILLIS = 0L;
+
+    interface Observer {
+        void onPurchasesUpdated(IapResult iapResult, List<PurchaseData> list);
+    }
+
     private final MethodChannel channel;
+    private final ResultMarshaller marshaller;
+    private final Observer observer;
+    private final PurchaseVerifier purchaseVerifier;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable flushRunnable = this::flush;
+    private final ArrayDeque<Event> buffer = new ArrayDeque<>();
+
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+    private long batchWindowMillis = DEFAULT_BATCH_WINDOW_MILLIS;
+    private String verificationKey;
+    private boolean ready = false;
+    private boolean flushScheduled = false;
+    private long droppedCount = 0L;
 
-    PluginPurchasesUpdatedListener(MethodChannel channel) {
+    PluginPurchasesUpdatedListener(MethodChannel channel, ResultMarshaller marshaller, Observer observer,
+                                   PurchaseVerifier purchaseVerifier) {
         this.channel = channel;
+        this.marshaller = marshaller;
+        this.observer = observer;
+        this.purchaseVerifier = purchaseVerifier;
+    }
+
+    void configure(int bufferSize, long batchWindowMillis) {
+        this.bufferSize = Math.max(1, bufferSize);
+        this.batchWindowMillis = Math.max(0L, batchWindowMillis);
+        while (buffer.size() > this.bufferSize) {
+            drop();
+        }
+    }
+
+    /**
+     * Sets the public key the purchases of each event are verified with, or null to skip the check.
+     */
+    void setVerificationKey(String verificationKey) {
+        this.verificationKey = verificationKey;
+    }
+
+    /**
+     * Holds updates back until {@code ready} is true again, which the Dart side signals once its
+     * handler is in place.
+     */
+    void setReady(boolean ready) {
+        this.ready = ready;
+        if (ready && !buffer.isEmpty()) {
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * Discards the buffered updates, for when the engine goes away.
+     */
+    void clear() {
+        handler.removeCallbacks(flushRunnable);
+        flushScheduled = false;
+        buffer.clear();
+    }
+
+    long getDroppedCount() {
+        return droppedCount;
     }
 
     @Override
     public void onPurchasesUpdated(IapResult iapResult, List<PurchaseData> list) {
-        final Map<String, Object> callbackArgs = new HashMap<>();
-        callbackArgs.put("iapResult", FlutterInAppHelper.fromIapResult(iapResult));
-        callbackArgs.put("purchasesList", FlutterInAppHelper.fromPurchasesList(list));
-        channel.invokeMethod("onPurchasesUpdated", callbackArgs);
+        observer.onPurchasesUpdated(iapResult, list);
+        if (buffer.size() >= bufferSize) {
+            drop();
+        }
+        buffer.add(new Event(iapResult, list));
+        if (ready) {
+            scheduleFlush();
+        }
+    }
+
+    private void drop() {
+        buffer.poll();
+        droppedCount++;
+        PluginLog.w(TAG, "purchase update buffer is full => dropped: ", droppedCount);
+    }
+
+    private void scheduleFlush() {
+        if (flushScheduled) {
+            return;
+        }
+        flushScheduled = true;
+        handler.postDelayed(flushRunnable, batchWindowMillis);
+    }
+
+    private void flush() {
+        flushScheduled = false;
+        if (!ready || buffer.isEmpty()) {
+            return;
+        }
+
+        final List<Event> events = new ArrayList<>(buffer);
+        buffer.clear();
+        final long dropped = droppedCount;
+        final String key = verificationKey;
+        marshaller.invokeMethod(channel, "onPurchasesUpdatedBatch", () -> {
+            final List<Map<String, Object>> items = new ArrayList<>(events.size());
+            for (Event event : events) {
+                final Map<String, Object> item = new HashMap<>();
+                item.put("iapResult", FlutterInAppHelper.fromIapResult(event.iapResult));
+                item.put("purchasesList", FlutterInAppHelper.fromPurchasesList(event.list));
+                final List<Boolean> verified = (key == null) ? null : purchaseVerifier.verify(key, event.list);
+                if (verified != null) {
+                    item.put("verifiedList", verified);
+                }
+                items.add(item);
+            }
+            final Map<String, Object> callbackArgs = new HashMap<>();
+            callbackArgs.put("events", items);
+            callbackArgs.put("dropped", dropped);
+            return callbackArgs;
+        });
+    }
+
+    private static final class Event {
+        final IapResult iapResult;
+        final List<PurchaseData> list;
+
+        Event(IapResult iapResult, List<PurchaseData> list) {
+            this.iapResult = iapResult;
+            this.list = list;
+        }
     }
 }
@@ -0,0 +1,24 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import android.os.Build;
+import android.os.Trace;
+
+/**
+ * Systrace sections for plugin startup. {@link Trace} is only available from API 18.
+ */
+final class PluginTrace {
+
+    private PluginTrace() {}
+
+    static void begin(String sectionName) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.beginSection(sectionName);
+        }
+    }
+
+    static void end() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.endSection();
+        }
+    }
+}
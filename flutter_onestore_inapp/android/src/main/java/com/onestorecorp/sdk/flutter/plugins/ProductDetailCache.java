@@ -0,0 +1,179 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import android.os.SystemClock;
+
+import com.gaa.sdk.iap.ProductDetail;
+import com.gaa.sdk.iap.PurchaseClient;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps product details for a limited time so that repeated queries for the same products do not
+ * reach the store. The cache is opt-in: it stays disabled until a TTL greater than zero is configured.
+ */
+class ProductDetailCache {
+    static final long DEFAULT_TTL_MILLIS = 0L;
+    static final int DEFAULT_MAX_SIZE = 256;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long ttlMillis = DEFAULT_TTL_MILLIS;
+    private int maxSize = DEFAULT_MAX_SIZE;
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    void configure(long ttlMillis, int maxSize) {
+        this.ttlMillis = ttlMillis;
+        this.maxSize = maxSize;
+        if (!isEnabled()) {
+            entries.clear();
+        } else {
+            trimToSize();
+        }
+    }
+
+    boolean isEnabled() {
+        return ttlMillis > 0 && maxSize > 0;
+    }
+
+    /**
+     * Moves every fresh entry for {@code productIds} into {@code hits} and returns the ids that
+     * still have to be fetched from the store.
+     */
+    List<String> partition(String productType, List<String> productIds, List<ProductDetail> hits) {
+        if (!isEnabled()) {
+            return productIds;
+        }
+
+        final long now = SystemClock.elapsedRealtime();
+        final List<String> missing = new ArrayList<>();
+        for (String productId : productIds) {
+            ProductDetail detail = get(productType, productId, now);
+            if (detail != null) {
+                hitCount++;
+                hits.add(detail);
+            } else {
+                missCount++;
+                missing.add(productId);
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * @return {@code details} in the order of {@code productIds}, whichever of the cache or the store
+     * they came from. Details for ids that were not requested are kept at the end, and only the first
+     * detail of each id is kept.
+     */
+    static List<ProductDetail> inRequestOrder(List<String> productIds, List<ProductDetail> details) {
+        if (productIds == null || details.size() < 2) {
+            return details;
+        }
+
+        final Map<String, ProductDetail> byId = new HashMap<>();
+        for (ProductDetail detail : details) {
+            if (!byId.containsKey(detail.getProductId())) {
+                byId.put(detail.getProductId(), detail);
+            }
+        }
+        final List<ProductDetail> ordered = new ArrayList<>(details.size());
+        final Set<String> emitted = new HashSet<>();
+        for (String productId : productIds) {
+            final ProductDetail detail = byId.remove(productId);
+            if (detail != null) {
+                ordered.add(detail);
+                emitted.add(productId);
+            }
+        }
+        if (ordered.size() < details.size()) {
+            for (ProductDetail detail : details) {
+                if (emitted.add(detail.getProductId())) {
+                    ordered.add(detail);
+                }
+            }
+        }
+        return ordered;
+    }
+
+    void putAll(List<ProductDetail> productDetails) {
+        if (!isEnabled() || productDetails == null) {
+            return;
+        }
+
+        final long expiresAt = SystemClock.elapsedRealtime() + ttlMillis;
+        for (ProductDetail detail : productDetails) {
+            entries.put(keyOf(detail.getType(), detail.getProductId()), new Entry(detail, expiresAt));
+        }
+        trimToSize();
+    }
+
+    void clear() {
+        entries.clear();
+    }
+
+    Map<String, Object> toStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", entries.size());
+        stats.put("maxSize", maxSize);
+        stats.put("ttlMillis", ttlMillis);
+        stats.put("hitCount", hitCount);
+        stats.put("missCount", missCount);
+        stats.put("evictionCount", evictionCount);
+        return stats;
+    }
+
+    private ProductDetail get(String productType, String productId, long now) {
+        if (productType == null || PurchaseClient.ProductType.ALL.equals(productType)) {
+            ProductDetail detail = getFresh(keyOf(PurchaseClient.ProductType.INAPP, productId), now);
+            if (detail == null) {
+                detail = getFresh(keyOf(PurchaseClient.ProductType.SUBS, productId), now);
+            }
+            return detail;
+        }
+        return getFresh(keyOf(productType, productId), now);
+    }
+
+    private ProductDetail getFresh(String key, long now) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt <= now) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.detail;
+    }
+
+    private void trimToSize() {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (entries.size() > maxSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictionCount++;
+        }
+    }
+
+    private static String keyOf(String productType, String productId) {
+        return productType + ':' + productId;
+    }
+
+    private static final class Entry {
+        final ProductDetail detail;
+        final long expiresAt;
+
+        Entry(ProductDetail detail, long expiresAt) {
+            this.detail = detail;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
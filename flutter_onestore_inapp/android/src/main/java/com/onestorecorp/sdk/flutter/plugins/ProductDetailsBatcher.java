@@ -0,0 +1,255 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.gaa.sdk.base.Logger;
+import com.gaa.sdk.iap.IapResult;
+import com.gaa.sdk.iap.ProductDetail;
+import com.gaa.sdk.iap.ProductDetailsListener;
+import com.gaa.sdk.iap.ProductDetailsParams;
+import com.gaa.sdk.iap.PurchaseClient;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import io.flutter.plugin.common.MethodChannel;
+
+/**
+ * Merges queryProductDetailsAsync requests that arrive within a short window into a single store
+ * request per product type, then hands each caller back only the products it asked for.
+ *
+ * <p>A merged request carries at most {@link #MAX_PRODUCT_IDS} product IDs; above that it is split
+ * into several store requests whose answers are combined before they are handed out. Callers whose
+ * channel call was already answered, e.g. cancelled or timed out, are left out of both steps.
+ */
+class ProductDetailsBatcher {
+    private static final String TAG = "ProductDetailsBatcher";
+
+    static final long DEFAULT_WINDOW_MILLIS = 0L;
+    static final int MAX_PRODUCT_IDS = 100;
+
+    interface Fetcher {
+        /**
+         * @return false when the request could not be sent, e.g. the client is not connected.
+         */
+        boolean fetch(ProductDetailsParams params, ProductDetailsListener listener);
+    }
+
+    interface Callback {
+        void onProductDetailsResponse(IapResult iapResult, List<ProductDetail> productDetails);
+
+        void onServiceUnavailable();
+    }
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Fetcher fetcher;
+    private final Map<String, List<Request>> pending = new LinkedHashMap<>();
+    private final Runnable flushRunnable = this::flush;
+
+    private long windowMillis = DEFAULT_WINDOW_MILLIS;
+    private boolean flushScheduled = false;
+
+    ProductDetailsBatcher(Fetcher fetcher) {
+        this.fetcher = fetcher;
+    }
+
+    /**
+     * A negative window disables batching, zero batches the requests already queued on the
+     * platform thread.
+     */
+    void setWindowMillis(long windowMillis) {
+        this.windowMillis = windowMillis;
+    }
+
+    /**
+     * @return true if requests are merged, so that any number of them costs one store request per
+     * product type, window and {@link #MAX_PRODUCT_IDS} distinct products.
+     */
+    boolean isBatching() {
+        return windowMillis >= 0;
+    }
+
+    /**
+     * @param result the channel result the {@code callback} answers, checked through
+     *               {@link CallTracker#isAnswered} so that abandoned callers don't hold up a batch.
+     */
+    void enqueue(String productType, List<String> productIds, MethodChannel.Result result, Callback callback) {
+        if (windowMillis < 0 || productIds == null) {
+            fetch(productType, productIds, callback);
+            return;
+        }
+
+        List<Request> requests = pending.get(productType);
+        if (requests == null) {
+            requests = new ArrayList<>();
+            pending.put(productType, requests);
+        }
+        requests.add(new Request(productIds, result, callback));
+
+        if (!flushScheduled) {
+            flushScheduled = true;
+            handler.postDelayed(flushRunnable, windowMillis);
+        }
+    }
+
+    void cancel() {
+        handler.removeCallbacks(flushRunnable);
+        flushScheduled = false;
+        for (List<Request> requests : pending.values()) {
+            for (Request request : requests) {
+                request.callback.onServiceUnavailable();
+            }
+        }
+        pending.clear();
+    }
+
+    private void flush() {
+        flushScheduled = false;
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        final Map<String, List<Request>> batches = new LinkedHashMap<>(pending);
+        pending.clear();
+
+        for (Map.Entry<String, List<Request>> batch : batches.entrySet()) {
+            final List<Request> requests = removeAnswered(batch.getValue());
+            if (requests.isEmpty()) {
+                continue;
+            }
+            if (requests.size() == 1) {
+                final Request request = requests.get(0);
+                fetch(batch.getKey(), request.productIds, request.callback);
+                continue;
+            }
+
+            final List<String> mergedIds = new ArrayList<>(mergedIds(requests));
+            final int chunks = (mergedIds.size() + MAX_PRODUCT_IDS - 1) / MAX_PRODUCT_IDS;
+            if (PluginLog.isLoggable(Log.DEBUG)) {
+                Logger.d(TAG, "coalesced " + requests.size() + " requests into " + mergedIds.size()
+                        + " products, " + chunks + " store requests");
+            }
+
+            final Batch pendingBatch = new Batch(requests, chunks);
+            for (int i = 0; i < chunks && !pendingBatch.failed; i++) {
+                final List<String> chunk = mergedIds.subList(
+                        i * MAX_PRODUCT_IDS, Math.min(mergedIds.size(), (i + 1) * MAX_PRODUCT_IDS));
+                final ProductDetailsParams params = FlutterInAppHelper.toProductDetailParams(
+                        new ArrayList<>(chunk), batch.getKey());
+                if (!fetcher.fetch(params, pendingBatch::onChunkResponse)) {
+                    pendingBatch.fail();
+                }
+            }
+        }
+    }
+
+    private void fetch(String productType, List<String> productIds, final Callback callback) {
+        final ProductDetailsParams params = FlutterInAppHelper.toProductDetailParams(productIds, productType);
+        if (!fetcher.fetch(params, callback::onProductDetailsResponse)) {
+            callback.onServiceUnavailable();
+        }
+    }
+
+    private static Set<String> mergedIds(List<Request> requests) {
+        final Set<String> mergedIds = new LinkedHashSet<>();
+        for (Request request : requests) {
+            mergedIds.addAll(request.productIds);
+        }
+        return mergedIds;
+    }
+
+    private static List<Request> removeAnswered(List<Request> requests) {
+        final Iterator<Request> iterator = requests.iterator();
+        while (iterator.hasNext()) {
+            if (CallTracker.isAnswered(iterator.next().result)) {
+                iterator.remove();
+            }
+        }
+        return requests;
+    }
+
+    private static void dispatch(List<Request> requests, IapResult iapResult, List<ProductDetail> list) {
+        final Map<String, ProductDetail> byId = new HashMap<>();
+        if (list != null) {
+            for (ProductDetail detail : list) {
+                byId.put(detail.getProductId(), detail);
+            }
+        }
+
+        for (Request request : removeAnswered(requests)) {
+            final List<ProductDetail> split = new ArrayList<>(request.productIds.size());
+            final Set<String> seen = new HashSet<>();
+            for (String productId : request.productIds) {
+                final ProductDetail detail = byId.get(productId);
+                if (detail != null && seen.add(productId)) {
+                    split.add(detail);
+                }
+            }
+            request.callback.onProductDetailsResponse(iapResult, split);
+        }
+    }
+
+    /**
+     * Collects the answers of the store requests one merged request was split into. The first
+     * failed answer stands for the whole batch, products of the other answers are still handed out.
+     */
+    private static final class Batch {
+        final List<Request> requests;
+        final List<ProductDetail> productDetails = new ArrayList<>();
+        int remaining;
+        IapResult iapResult;
+        boolean failed = false;
+
+        Batch(List<Request> requests, int chunks) {
+            this.requests = requests;
+            this.remaining = chunks;
+        }
+
+        void onChunkResponse(IapResult chunkResult, List<ProductDetail> list) {
+            if (failed) {
+                return;
+            }
+            if (iapResult == null || (isOk(iapResult) && !isOk(chunkResult))) {
+                iapResult = chunkResult;
+            }
+            if (list != null) {
+                productDetails.addAll(list);
+            }
+            if (--remaining == 0) {
+                dispatch(requests, iapResult, productDetails);
+            }
+        }
+
+        private static boolean isOk(IapResult iapResult) {
+            return iapResult.getResponseCode() == PurchaseClient.ResponseCode.RESULT_OK;
+        }
+
+        void fail() {
+            failed = true;
+            for (Request request : requests) {
+                request.callback.onServiceUnavailable();
+            }
+        }
+    }
+
+    private static final class Request {
+        final List<String> productIds;
+        final MethodChannel.Result result;
+        final Callback callback;
+
+        Request(List<String> productIds, MethodChannel.Result result, Callback callback) {
+            this.productIds = productIds;
+            this.result = result;
+            this.callback = callback;
+        }
+    }
+}
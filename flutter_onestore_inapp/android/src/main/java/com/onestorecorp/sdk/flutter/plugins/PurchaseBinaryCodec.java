@@ -0,0 +1,145 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import com.gaa.sdk.iap.ProductDetail;
+import com.gaa.sdk.iap.PurchaseData;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Packs product and purchase lists into a compact little-endian byte layout that is decoded by
+ * {@code purchase_binary_codec.dart}.
+ *
+ * <pre>
+ * u8  version
+ * u8  record kind (1 = product detail, 2 = purchase data)
+ * u16 field count, then per field: u8 type, u16 name length, name bytes
+ * u32 string table size, then per string: u32 length, utf-8 bytes
+ * u32 record count, then per record the packed field values in header order
+ *     string -> i32 index into the string table (-1 for null)
+ *     int32  -> i32, int64 -> i64, bool -> u8
+ * </pre>
+ *
+ * Repeated values such as packageName or price currency are stored once in the string table.
+ */
+final class PurchaseBinaryCodec {
+    static final byte VERSION = 1;
+
+    static final byte KIND_PRODUCT_DETAIL = 1;
+    static final byte KIND_PURCHASE_DATA = 2;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private PurchaseBinaryCodec() {}
+
+    static byte[] encodeProductDetails(List<ProductDetail> list, List<PayloadFields.Field<ProductDetail>> fields) {
+        return encode(KIND_PRODUCT_DETAIL, fields, list);
+    }
+
+    static byte[] encodePurchases(List<PurchaseData> list, List<PayloadFields.Field<PurchaseData>> fields) {
+        return encode(KIND_PURCHASE_DATA, fields, list);
+    }
+
+    static <T> byte[] encode(byte kind, List<PayloadFields.Field<T>> fields, List<T> list) {
+        final List<T> items = (list == null) ? Collections.emptyList() : list;
+        final int fieldCount = fields.size();
+
+        final List<byte[]> fieldNames = new ArrayList<>(fieldCount);
+        int size = 1 + 1 + 2;
+        int recordSize = 0;
+        for (PayloadFields.Field<T> field : fields) {
+            final byte[] name = field.name.getBytes(UTF_8);
+            fieldNames.add(name);
+            size += 1 + 2 + name.length;
+            recordSize += sizeOf(field.type);
+        }
+
+        final Map<String, Integer> stringIndex = new HashMap<>();
+        final List<byte[]> strings = new ArrayList<>();
+        final Object[] values = new Object[items.size() * fieldCount];
+        int stringBytes = 0;
+        int offset = 0;
+        for (T item : items) {
+            for (int i = 0; i < fieldCount; i++) {
+                final PayloadFields.Field<T> field = fields.get(i);
+                Object value = field.accessor.get(item);
+                if (field.type == PayloadFields.TYPE_STRING && value != null) {
+                    final String string = value.toString();
+                    Integer index = stringIndex.get(string);
+                    if (index == null) {
+                        final byte[] bytes = string.getBytes(UTF_8);
+                        index = strings.size();
+                        strings.add(bytes);
+                        stringIndex.put(string, index);
+                        stringBytes += 4 + bytes.length;
+                    }
+                    value = index;
+                }
+                values[offset++] = value;
+            }
+        }
+        size += 4 + stringBytes + 4 + recordSize * items.size();
+
+        final ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(VERSION);
+        buffer.put(kind);
+        buffer.putShort((short) fieldCount);
+        for (int i = 0; i < fieldCount; i++) {
+            final byte[] name = fieldNames.get(i);
+            buffer.put(fields.get(i).type);
+            buffer.putShort((short) name.length);
+            buffer.put(name);
+        }
+
+        buffer.putInt(strings.size());
+        for (byte[] bytes : strings) {
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+        }
+
+        buffer.putInt(items.size());
+        for (int i = 0; i < values.length; i++) {
+            writeValue(buffer, fields.get(i % fieldCount).type, values[i]);
+        }
+        return buffer.array();
+    }
+
+    private static void writeValue(ByteBuffer buffer, byte type, Object value) {
+        switch (type) {
+            case PayloadFields.TYPE_STRING:
+                buffer.putInt(value == null ? -1 : (Integer) value);
+                break;
+            case PayloadFields.TYPE_INT32:
+                buffer.putInt(value == null ? 0 : ((Number) value).intValue());
+                break;
+            case PayloadFields.TYPE_INT64:
+                buffer.putLong(value == null ? 0L : ((Number) value).longValue());
+                break;
+            case PayloadFields.TYPE_BOOL:
+                buffer.put((byte) (Boolean.TRUE.equals(value) ? 1 : 0));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown field type: " + type);
+        }
+    }
+
+    private static int sizeOf(byte type) {
+        switch (type) {
+            case PayloadFields.TYPE_STRING:
+            case PayloadFields.TYPE_INT32:
+                return 4;
+            case PayloadFields.TYPE_INT64:
+                return 8;
+            case PayloadFields.TYPE_BOOL:
+                return 1;
+            default:
+                throw new IllegalArgumentException("Unknown field type: " + type);
+        }
+    }
+}
@@ -2,227 +2,781 @@ package com.onestorecorp.sdk.flutter.plugins;
 
 import android.app.Activity;
 import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
 
 import com.gaa.sdk.base.Logger;
 import com.gaa.sdk.iap.AcknowledgeParams;
 import com.gaa.sdk.iap.ConsumeParams;
 import com.gaa.sdk.iap.IapResult;
 import com.gaa.sdk.iap.ProductDetail;
-import com.gaa.sdk.iap.ProductDetailsParams;
 import com.gaa.sdk.iap.PurchaseClient;
-import com.gaa.sdk.iap.PurchaseClientStateListener;
+import com.gaa.sdk.iap.PurchaseData;
 import com.gaa.sdk.iap.PurchaseFlowParams;
 import com.gaa.sdk.iap.SubscriptionParams;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel;
 
-public class PurchaseCallHandlerImpl implements MethodChannel.MethodCallHandler {
+public class PurchaseCallHandlerImpl implements ActivityAwareCallHandler {
 
     private static final String TAG = "PurchaseCallHandlerImpl";
+    private static final String STORE_INFO_KEY = "storeInfo";
+    private static final String NO_ACTIVITY = "No Activity is attached.";
+    private static final String FLIGHT_EXPIRED = "The store did not answer in time.";
+    private static final String FLIGHT_ABORTED = "PurchaseClient was disconnected.";
+    private static final List<String> RECONCILE_PRODUCT_TYPES =
+            Arrays.asList(PurchaseClient.ProductType.INAPP, PurchaseClient.ProductType.SUBS);
+
     private final Context applicationContext;
     private final MethodChannel methodChannel;
-    private PurchaseClient purchaseClient;
+    private final PluginPurchasesUpdatedListener purchasesUpdatedListener;
+    private final PurchaseConnection.Listener connectionListener = new PurchaseConnection.Listener() {
+        @Override
+        public void onConnected() {
+            reconciled = false;
+            // A new connection may be bound to a different store.
+            storeInfoFlight.invalidate();
+            updateStoreEnvironment(true);
+            reconcilePurchases();
+        }
+
+        @Override
+        public void onServiceDisconnected() {
+            PurchaseCallHandlerImpl.this.onServiceDisconnected();
+        }
+    };
+    private PurchaseClientRegistry.SharedClient sharedClient;
+    private PurchaseConnection connection;
+    private final List<Integer> disconnectedHandles = new ArrayList<>();
 
     private Activity activity;
     private String publicKey = "";
+    private boolean verifyPurchases = true;
+    private boolean headless = false;
+    private PurchasePolicy reconcilePolicy = PurchasePolicy.NONE;
+    private boolean reconciling = false;
+    private boolean reconciled = false;
+
+    private final ResultMarshaller resultMarshaller = new ResultMarshaller();
+    private final PurchaseVerifier purchaseVerifier = PurchaseVerifier.getInstance();
+    private final CallScheduler callScheduler = new CallScheduler();
+    private final SingleFlight<SdkResult<List<PurchaseData>>> purchasesFlight = new SingleFlight<>(
+            SdkResult.error(PurchaseClient.ResponseCode.ERROR_SERVICE_TIMEOUT, FLIGHT_EXPIRED));
+    private final SingleFlight<SdkResult<String>> storeInfoFlight = new SingleFlight<>(
+            SdkResult.error(PurchaseClient.ResponseCode.ERROR_SERVICE_TIMEOUT, FLIGHT_EXPIRED));
+    private final PurchaseSnapshots purchaseSnapshots = new PurchaseSnapshots();
+    private final ProductDetailCache productDetailCache = new ProductDetailCache();
+    private final ProductDetailsBatcher productDetailsBatcher = new ProductDetailsBatcher((params, listener) -> {
+        final PurchaseClient purchaseClient = (connection == null) ? null : connection.getClient();
+        if (purchaseClient == null) {
+            return false;
+        }
+        purchaseClient.queryProductDetailsAsync(params, listener);
+        return true;
+    });
 
-    private final HashMap<String, ProductDetail> cachedProducts = new HashMap<>();
+    private final EntitlementStore entitlementStore;
+    private final StoreEnvironmentCache storeEnvironment;
+    private final ConnectionStateStream connectionStates;
 
     public PurchaseCallHandlerImpl(Context context, MethodChannel methodChannel) {
+        this(context, methodChannel, new StoreEnvironmentCache(context, null), new ConnectionStateStream());
+    }
+
+    PurchaseCallHandlerImpl(Context context, MethodChannel methodChannel, StoreEnvironmentCache storeEnvironment,
+                            ConnectionStateStream connectionStates) {
         this.applicationContext = context.getApplicationContext();
         this.methodChannel = methodChannel;
+        this.storeEnvironment = storeEnvironment;
+        this.connectionStates = connectionStates;
+        this.entitlementStore = EntitlementStore.getInstance(applicationContext);
+        this.purchasesUpdatedListener =
+                new PluginPurchasesUpdatedListener(methodChannel, resultMarshaller, this::onPurchasesUpdated,
+                        purchaseVerifier);
+        storeEnvironment.setListener(() -> {
+            storeInfoFlight.invalidate();
+            updateStoreEnvironment(true);
+        });
     }
 
     public void setActivity(Activity activity) {
         this.activity = activity;
+        if (sharedClient != null) {
+            sharedClient.setForeground(this, activity != null);
+        }
     }
 
     public void onDetachedFromActivity() {
+        // In headless mode the connection stays up to handle purchases that finish without the UI.
+        if (headless) {
+            Logger.d(TAG, "onDetachedFromActivity => keeping the connection for headless mode");
+            return;
+        }
         endPurchaseClientConnection();
     }
 
+    public void dispose() {
+        purchasesUpdatedListener.clear();
+        endPurchaseClientConnection();
+        storeEnvironment.setListener(null);
+        entitlementStore.release(this);
+    }
+
     @Override
     public void onMethodCall(@NotNull MethodCall call, @NotNull MethodChannel.Result result) {
         switch (call.method) {
-            case "initialize": initialize(call); break;
+            case "initialize": initialize(call); result.success(null); break;
+            case "purchasesUpdatedReady": purchasesUpdatedListener.setReady(true); result.success(null); break;
             case "isReady": isReady(result); break;
             case "startConnection": startConnection(call, result); break;
             case "endConnection": endConnection(result); break;
-            case "launchPurchaseFlow": launchPurchaseFlow(call, result); break;
-            case "consumeAsync": consumePurchase(call, result); break;
-            case "acknowledgeAsync": acknowledgePurchase(call, result); break;
-            case "queryPurchasesAsync": queryPurchases(call, result); break;
-            case "queryProductDetailsAsync": queryProductDetails(call, result); break;
-            case "getStoreInfoAsync": getStoreInfo(result); break;
-            case "launchManageSubscription": launchManageSubscription(call, result); break;
-            case "launchUpdateOrInstallFlow": launchUpdateOrInstallFlow(result); break;
+            case "launchPurchaseFlow": execute(call, result, r -> launchPurchaseFlow(call, r)); break;
+            case "consumeAsync": execute(call, result, r -> consumePurchase(call, r)); break;
+            case "acknowledgeAsync": execute(call, result, r -> acknowledgePurchase(call, r)); break;
+            case "consumeBatch": execute(call, result, r -> consumeBatch(call, r)); break;
+            case "acknowledgeBatch": execute(call, result, r -> acknowledgeBatch(call, r)); break;
+            case "queryPurchasesAsync": execute(call, result, r -> queryPurchases(call, r)); break;
+            case "queryProductDetailsAsync": executeProductQuery(call, result); break;
+            case "getStoreInfoAsync": execute(call, result, this::getStoreInfo); break;
+            case "launchManageSubscription": schedule(call, result, r -> launchManageSubscription(call, r)); break;
+            case "launchUpdateOrInstallFlow": schedule(call, result, this::launchUpdateOrInstallFlow); break;
+            case "getProductCacheStats": result.success(productDetailCache.toStats()); break;
+            case "clearProductCache": productDetailCache.clear(); result.success(null); break;
+            case "getCachedPurchases": getCachedPurchases(result); break;
+            case "registerBackgroundHandler": registerBackgroundHandler(call, result); break;
             default: result.notImplemented(); break;
         }
     }
 
     private void initialize(final MethodCall call) {
         publicKey = call.argument("publicKey");
+        verifyPurchases = FlutterInAppHelper.argumentAsBoolean(call, "verifyPurchases", true);
+        acquirePurchaseClient();
+        productDetailCache.configure(
+                FlutterInAppHelper.argumentAsLong(call, "productCacheTtlMillis", ProductDetailCache.DEFAULT_TTL_MILLIS),
+                FlutterInAppHelper.argumentAsInt(call, "productCacheMaxSize", ProductDetailCache.DEFAULT_MAX_SIZE));
+        final long reuseMillis = FlutterInAppHelper.argumentAsLong(call, "resultReuseMillis", 0L);
+        purchasesFlight.setReuseMillis(reuseMillis);
+        storeInfoFlight.setReuseMillis(reuseMillis);
+        entitlementStore.setEnabled(this, FlutterInAppHelper.argumentAsBoolean(call, "entitlementSnapshot", false));
+        resultMarshaller.setOffMainThread(FlutterInAppHelper.argumentAsBoolean(call, "marshalOffMainThread", true));
+        productDetailsBatcher.setWindowMillis(FlutterInAppHelper.argumentAsLong(
+                call, "productDetailsBatchWindowMillis", ProductDetailsBatcher.DEFAULT_WINDOW_MILLIS));
+        // Updates are buffered until the Dart side reports again that its handler is ready.
+        purchasesUpdatedListener.setReady(false);
+        purchasesUpdatedListener.setVerificationKey(verificationKey());
+        purchasesUpdatedListener.configure(
+                FlutterInAppHelper.argumentAsInt(
+                        call, "purchaseEventBufferSize", PluginPurchasesUpdatedListener.DEFAULT_BUFFER_SIZE),
+                FlutterInAppHelper.argumentAsLong(call, "purchaseEventBatchWindowMillis",
+                        PluginPurchasesUpdatedListener.DEFAULT_BATCH_WINDOW_MILLIS));
+        callScheduler.configure(
+                FlutterInAppHelper.argumentAsInt(call, "normalConcurrency", CallScheduler.DEFAULT_NORMAL_CONCURRENCY),
+                FlutterInAppHelper.argumentAsInt(
+                        call, "backgroundConcurrency", CallScheduler.DEFAULT_BACKGROUND_CONCURRENCY),
+                FlutterInAppHelper.argumentAsLong(
+                        call, "backgroundMaxWaitMillis", CallScheduler.DEFAULT_MAX_WAIT_MILLIS));
+        reconcilePolicy = PurchasePolicy.fromArguments(call.argument("reconcilePolicy"));
+        headless = FlutterInAppHelper.argumentAsBoolean(call, "headless", false);
+        // The shared connection merges these with the other engines' settings and headless mode.
+        sharedClient.setConnectionOptions(this, new PurchaseConnection.Options(
+                FlutterInAppHelper.argumentAsBoolean(call, "autoReconnect", false),
+                FlutterInAppHelper.argumentAsInt(call, "maxPendingCalls", PurchaseConnection.DEFAULT_MAX_PENDING_CALLS),
+                FlutterInAppHelper.argumentAsLong(
+                        call, "callTimeoutMillis", PurchaseConnection.DEFAULT_CALL_TIMEOUT_MILLIS),
+                FlutterInAppHelper.argumentAsLong(
+                        call, "reconnectInitialBackoffMillis", PurchaseConnection.DEFAULT_INITIAL_BACKOFF_MILLIS),
+                FlutterInAppHelper.argumentAsLong(
+                        call, "reconnectMaxBackoffMillis", PurchaseConnection.DEFAULT_MAX_BACKOFF_MILLIS)));
+        // Other engines, such as the background one, must not turn headless mode off; endConnection does.
+        if (headless) {
+            PurchaseClientRegistry.setHeadless(sharedClient, true,
+                    PurchasePolicy.fromArguments(call.argument("headlessPolicy")));
+        }
     }
 
     private void isReady(MethodChannel.Result result) {
-        if (purchaseClientError(result))
+        final PurchaseClient purchaseClient = (connection == null) ? null : connection.getClient();
+        if (purchaseClient == null) {
+            replyServiceUnavailable(result);
             return;
+        }
         result.success(purchaseClient.isReady());
     }
 
     private void startConnection(final MethodCall call, final MethodChannel.Result result) {
-        initPurchaseClient();
+        final Integer handle = call.argument("handle");
+        if (handle != null) {
+            disconnectedHandles.add(handle);
+        }
+        acquirePurchaseClient();
+        connection.connect(result);
+        // Another engine may have connected the shared client already, so onConnected won't come.
+        if (connection.getState() == PurchaseConnection.State.CONNECTED) {
+            updateStoreEnvironment(false);
+            if (!reconciled) {
+                reconcilePurchases();
+            }
+        }
+    }
 
-        purchaseClient.startConnection(new PurchaseClientStateListener() {
-            private boolean setupFinished = false;
+    private void onServiceDisconnected() {
+        reconciled = false;
+        abortFlights();
+        storeEnvironment.setConnected(false);
+        final List<Integer> handles = new ArrayList<>(disconnectedHandles);
+        disconnectedHandles.clear();
+        for (Integer handle : handles) {
+            final Map<String, Object> args = new HashMap<>();
+            args.put("handle", handle);
+            methodChannel.invokeMethod("onServiceDisconnected", args);
+        }
+    }
 
-            @Override
-            public void onSetupFinished(IapResult iapResult) {
-                if (setupFinished) {
-                    Logger.d(TAG, "Tried to call onSetupFinished multiple times.");
-                    return;
-                }
+    /**
+     * Answers the callers still waiting on a shared query, whose SDK callback will not come anymore
+     * once the connection is gone.
+     */
+    private void abortFlights() {
+        purchasesFlight.abort(SdkResult.error(PurchaseClient.ResponseCode.ERROR_SERVICE_DISCONNECTED, FLIGHT_ABORTED));
+        storeInfoFlight.abort(SdkResult.error(PurchaseClient.ResponseCode.ERROR_SERVICE_DISCONNECTED, FLIGHT_ABORTED));
+    }
 
-                setupFinished = true;
-                result.success(FlutterInAppHelper.fromIapResult(iapResult));
-            }
+    /**
+     * Queries every product type and acknowledges or consumes what the reconcile policy asks for,
+     * then sends a single onReconciled summary to Dart.
+     */
+    private void reconcilePurchases() {
+        final PurchaseClient purchaseClient = (connection == null) ? null : connection.getClient();
+        final PurchasePolicy policy = reconcilePolicy;
+        if (purchaseClient == null || policy.isNone() || reconciling) {
+            return;
+        }
+        reconciling = true;
+        reconciled = true;
+        final long startedAt = SystemClock.elapsedRealtime();
+        BatchRunner.<String, SdkResult<List<PurchaseData>>>run(RECONCILE_PRODUCT_TYPES, RECONCILE_PRODUCT_TYPES.size(),
+                (productType, completion) -> purchaseClient.queryPurchasesAsync(productType,
+                        (iapResult, list) -> completion.complete(new SdkResult<>(iapResult, list))),
+                queryResults -> {
+                    SdkResult<List<PurchaseData>> queryResult = null;
+                    final List<PurchaseData> queried = new ArrayList<>();
+                    final Map<String, String> productTypes = new HashMap<>();
+                    for (int i = 0; i < queryResults.size(); i++) {
+                        final SdkResult<List<PurchaseData>> sdkResult = queryResults.get(i);
+                        if (!sdkResult.isSuccess()) {
+                            queryResult = sdkResult;
+                            continue;
+                        }
+                        final String key = RECONCILE_PRODUCT_TYPES.get(i);
+                        purchaseSnapshots.update(key, sdkResult.data);
+                        entitlementStore.reconcile(key, sdkResult.data);
+                        if (sdkResult.data != null) {
+                            queried.addAll(sdkResult.data);
+                            for (PurchaseData purchaseData : sdkResult.data) {
+                                productTypes.put(purchaseData.getPurchaseToken(), key);
+                            }
+                        }
+                    }
+
+                    final SdkResult<List<PurchaseData>> summaryResult = queryResult;
+                    final List<PurchaseData> purchases = policy.select(queried, productTypes);
+                    if (PluginLog.isLoggable(Log.DEBUG)) {
+                        Logger.d(TAG, "reconcile => queried: " + queried.size() + ", to process: " + purchases.size());
+                    }
+                    policy.apply(purchaseClient, entitlementStore, purchases, productTypes, iapResults -> {
+                        reconciling = false;
+                        purchasesFlight.invalidate();
+                        methodChannel.invokeMethod("onReconciled", toReconcileSummary(policy, productTypes,
+                                summaryResult, queried.size(), purchases, iapResults,
+                                SystemClock.elapsedRealtime() - startedAt));
+                    });
+                });
+    }
 
-            @Override
-            public void onServiceDisconnected() {
-                Logger.d(TAG, " Purchasing service disconnected");
-                int handle = call.argument("handle");
-                final Map<String, Object> args = new HashMap<>();
-                args.put("handle", handle);
-                methodChannel.invokeMethod("onServiceDisconnected", args);
+    private static Map<String, Object> toReconcileSummary(PurchasePolicy policy, Map<String, String> productTypes,
+                                                          SdkResult<?> queryResult, int queried,
+                                                          List<PurchaseData> purchases, List<IapResult> iapResults,
+                                                          long elapsedMillis) {
+        int acknowledged = 0;
+        int consumed = 0;
+        int failed = 0;
+        final List<Map<String, Object>> items = new ArrayList<>(purchases.size());
+        for (int i = 0; i < purchases.size(); i++) {
+            final PurchaseData purchaseData = purchases.get(i);
+            final IapResult iapResult = iapResults.get(i);
+            final String action = policy.actionFor(purchaseData, productTypes);
+            if (iapResult.getResponseCode() != PurchaseClient.ResponseCode.RESULT_OK) {
+                failed++;
+            } else if (PurchasePolicy.ACTION_CONSUME.equals(action)) {
+                consumed++;
+            } else {
+                acknowledged++;
             }
-        });
+            final Map<String, Object> item = new HashMap<>();
+            item.put("productId", purchaseData.getProductId());
+            item.put("purchaseToken", purchaseData.getPurchaseToken());
+            item.put("action", action);
+            item.put("iapResult", FlutterInAppHelper.fromIapResult(iapResult));
+            items.add(item);
+        }
+
+        final Map<String, Object> summary = new HashMap<>();
+        summary.put("iapResult", queryResult == null
+                ? FlutterInAppHelper.fromIapResult(PurchaseClient.ResponseCode.RESULT_OK, "")
+                : queryResult.toIapResult());
+        summary.put("queried", queried);
+        summary.put("acknowledged", acknowledged);
+        summary.put("consumed", consumed);
+        summary.put("failed", failed);
+        summary.put("elapsedMillis", elapsedMillis);
+        summary.put("results", items);
+        return summary;
     }
 
     private void consumePurchase(final MethodCall call, final MethodChannel.Result result) {
-        if (purchaseClientError(result))
-            return;
-
+        final PurchaseClient purchaseClient = connection.getClient();
         final ConsumeParams params = FlutterInAppHelper.toConsumeParams(call);
         purchaseClient.consumeAsync(params, (iapResult, purchaseData) -> {
-            Logger.d(TAG, "consumeAsync response => " + iapResult.toJsonString());
+            PluginLog.d(TAG, "consumeAsync response => ", iapResult);
+            purchasesFlight.invalidate();
+            if (iapResult.getResponseCode() == PurchaseClient.ResponseCode.RESULT_OK && purchaseData != null) {
+                entitlementStore.remove(purchaseData.getPurchaseToken());
+            }
             result.success(FlutterInAppHelper.fromIapResult(iapResult));
         });
     }
 
     private void acknowledgePurchase(final MethodCall call, final MethodChannel.Result result) {
-        if (purchaseClientError(result))
-            return;
-
+        final PurchaseClient purchaseClient = connection.getClient();
         final AcknowledgeParams params = FlutterInAppHelper.toAcknowledgeParams(call);
         purchaseClient.acknowledgeAsync(params, (iapResult, purchaseData) -> {
-            Logger.d(TAG, "acknowledgeAsync response => " + iapResult.toJsonString());
+            PluginLog.d(TAG, "acknowledgeAsync response => ", iapResult);
+            purchasesFlight.invalidate();
             result.success(FlutterInAppHelper.fromIapResult(iapResult));
         });
     }
 
+    private void consumeBatch(final MethodCall call, final MethodChannel.Result result) {
+        final PurchaseClient purchaseClient = connection.getClient();
+        final String developerPayload = call.argument("developerPayload");
+        runPurchaseBatch(call, result, (purchaseData, completion) -> {
+            final ConsumeParams params = FlutterInAppHelper.toConsumeParams(purchaseData, developerPayload);
+            purchaseClient.consumeAsync(params, (iapResult, consumed) -> {
+                purchasesFlight.invalidate();
+                if (iapResult.getResponseCode() == PurchaseClient.ResponseCode.RESULT_OK) {
+                    entitlementStore.remove(purchaseData.getPurchaseToken());
+                }
+                completion.complete(FlutterInAppHelper.fromIapResult(iapResult));
+            });
+        });
+    }
+
+    private void acknowledgeBatch(final MethodCall call, final MethodChannel.Result result) {
+        final PurchaseClient purchaseClient = connection.getClient();
+        final String developerPayload = call.argument("developerPayload");
+        runPurchaseBatch(call, result, (purchaseData, completion) -> {
+            final AcknowledgeParams params = FlutterInAppHelper.toAcknowledgeParams(purchaseData, developerPayload);
+            purchaseClient.acknowledgeAsync(params, (iapResult, acknowledged) -> {
+                purchasesFlight.invalidate();
+                completion.complete(FlutterInAppHelper.fromIapResult(iapResult));
+            });
+        });
+    }
+
+    /**
+     * Replies {@code results} with one {@code {purchaseToken, iapResult}} entry per requested purchase,
+     * in request order.
+     */
+    private void runPurchaseBatch(final MethodCall call, final MethodChannel.Result result,
+                                  final BatchRunner.Operation<PurchaseData, Map<String, Object>> operation) {
+        final List<PurchaseData> purchases = FlutterInAppHelper.toPurchaseDataList(call);
+        final int maxConcurrency = FlutterInAppHelper.argumentAsInt(
+                call, "maxConcurrency", BatchRunner.DEFAULT_MAX_IN_FLIGHT);
+        if (PluginLog.isLoggable(Log.DEBUG)) {
+            Logger.d(TAG, call.method + " request size: " + purchases.size() + ", concurrency: " + maxConcurrency);
+        }
+
+        BatchRunner.<PurchaseData, Map<String, Object>>run(purchases, maxConcurrency, (purchaseData, completion) -> {
+            if (purchaseData == null) {
+                completion.complete(FlutterInAppHelper.fromIapResult(
+                        PurchaseClient.ResponseCode.RESULT_ERROR, "originalJson is missing."));
+                return;
+            }
+            operation.start(purchaseData, completion);
+        }, iapResults -> {
+            final List<Map<String, Object>> items = new ArrayList<>(iapResults.size());
+            for (int i = 0; i < iapResults.size(); i++) {
+                final PurchaseData purchaseData = purchases.get(i);
+                final Map<String, Object> item = new HashMap<>();
+                item.put("purchaseToken", purchaseData == null ? null : purchaseData.getPurchaseToken());
+                item.put("iapResult", iapResults.get(i));
+                items.add(item);
+            }
+            final Map<String, Object> resultData = new HashMap<>();
+            resultData.put("iapResult", FlutterInAppHelper.fromIapResult(PurchaseClient.ResponseCode.RESULT_OK, ""));
+            resultData.put("results", items);
+            result.success(resultData);
+        });
+    }
+
     private void queryProductDetails(final MethodCall call, final MethodChannel.Result result) {
-        if (purchaseClientError(result))
+        final List<String> productIds = call.argument("productIds");
+        final String productType = call.argument("productType");
+        final boolean forceRefresh = FlutterInAppHelper.argumentAsBoolean(call, "forceRefresh", false);
+
+        final List<ProductDetail> cachedList = new ArrayList<>();
+        final List<String> missingIds = (productIds == null || forceRefresh)
+                ? productIds
+                : productDetailCache.partition(productType, productIds, cachedList);
+
+        if (missingIds != null && missingIds.isEmpty()) {
+            PluginLog.d(TAG, "queryProductDetails => served from cache");
+            replyProductDetails(call, result,
+                    FlutterInAppHelper.fromIapResult(PurchaseClient.ResponseCode.RESULT_OK, ""), cachedList);
             return;
+        }
+
+        productDetailsBatcher.enqueue(productType, missingIds, result, new ProductDetailsBatcher.Callback() {
+            @Override
+            public void onProductDetailsResponse(IapResult iapResult, List<ProductDetail> list) {
+                PluginLog.d(TAG, "queryProductDetails => ", iapResult);
+                if (iapResult.getResponseCode() == PurchaseClient.ResponseCode.RESULT_OK) {
+                    productDetailCache.putAll(list);
+                }
+                if (list != null) {
+                    cachedList.addAll(list);
+                }
+                replyProductDetails(call, result, FlutterInAppHelper.fromIapResult(iapResult),
+                        ProductDetailCache.inRequestOrder(productIds, cachedList));
+            }
 
-        final ProductDetailsParams params = FlutterInAppHelper.toProductDetailParams(call);
-        purchaseClient.queryProductDetailsAsync(params, (iapResult, list) -> {
-            Logger.d(TAG, "queryProductDetails => " + iapResult.toJsonString());
+            @Override
+            public void onServiceUnavailable() {
+                replyServiceUnavailable(result);
+            }
+        });
+    }
+
+    private void replyProductDetails(MethodCall call, MethodChannel.Result result,
+                                     Map<String, Object> iapResult, List<ProductDetail> list) {
+        final boolean binary = FlutterInAppHelper.argumentAsBoolean(call, "binary", false);
+        final List<String> fieldMask = call.argument("fields");
+        resultMarshaller.success(result, () -> {
             final Map<String, Object> resultData = new HashMap<>();
-            resultData.put("iapResult", FlutterInAppHelper.fromIapResult(iapResult));
-            resultData.put("productDetailsList", FlutterInAppHelper.fromProductDetailsList(list));
-            result.success(resultData);
+            resultData.put("iapResult", iapResult);
+            if (binary) {
+                resultData.put("productDetailsBinary", PurchaseBinaryCodec.encodeProductDetails(
+                        list, PayloadFields.select(PayloadFields.PRODUCT_DETAIL, fieldMask)));
+            } else {
+                resultData.put("productDetailsList", FlutterInAppHelper.fromProductDetailsList(list, fieldMask));
+            }
+            return resultData;
         });
     }
 
     private void queryPurchases(final MethodCall call, final MethodChannel.Result result) {
-        if (purchaseClientError(result))
+        final PurchaseClient purchaseClient = connection.getClient();
+        final String productType = call.argument("productType");
+        final String key = String.valueOf(productType);
+        PluginLog.d(TAG, "queryPurchases request productType: ", productType);
+        final boolean leader = purchasesFlight.join(key, sdkResult -> replyPurchases(call, result, key, sdkResult));
+        if (!leader)
             return;
 
-        final String productType = call.argument("productType");
-        Logger.d(TAG, "queryPurchases request productType: productType");
         purchaseClient.queryPurchasesAsync(productType, (iapResult, list) -> {
-            Logger.d(TAG, "queryPurchases => " + iapResult.toJsonString());
+            PluginLog.d(TAG, "queryPurchases => ", iapResult);
+            final SdkResult<List<PurchaseData>> sdkResult = new SdkResult<>(iapResult, list);
+            if (sdkResult.isSuccess()) {
+                purchaseSnapshots.update(key, list);
+                entitlementStore.reconcile(key, list);
+            }
+            purchasesFlight.complete(key, sdkResult, sdkResult.isSuccess());
+        });
+    }
+
+    private void replyPurchases(final MethodCall call, final MethodChannel.Result result,
+                                final String key, final SdkResult<List<PurchaseData>> sdkResult) {
+        final boolean binary = FlutterInAppHelper.argumentAsBoolean(call, "binary", false);
+        final List<String> fieldMask = call.argument("fields");
+        final boolean deltaMode = call.hasArgument("sinceVersion");
+        final PurchaseSnapshots.Delta delta = (deltaMode && sdkResult.isSuccess())
+                ? purchaseSnapshots.deltaSince(key, FlutterInAppHelper.argumentAsLong(call, "sinceVersion", -1L))
+                : null;
+        final long version = purchaseSnapshots.versionOf(key);
+        final String verificationKey = verificationKey();
+
+        resultMarshaller.success(result, () -> {
             final Map<String, Object> resultData = new HashMap<>();
-            resultData.put("iapResult", FlutterInAppHelper.fromIapResult(iapResult));
-            resultData.put("purchasesList", FlutterInAppHelper.fromPurchasesList(list));
-            result.success(resultData);
+            resultData.put("iapResult", sdkResult.toIapResult());
+            if (deltaMode) {
+                resultData.put("version", version);
+                resultData.put("full", delta == null);
+            }
+            if (delta != null) {
+                resultData.put("added", FlutterInAppHelper.fromPurchasesList(delta.added, fieldMask));
+                resultData.put("changed", FlutterInAppHelper.fromPurchasesList(delta.changed, fieldMask));
+                resultData.put("removed", delta.removed);
+            } else if (binary) {
+                resultData.put("purchasesBinary", PurchaseBinaryCodec.encodePurchases(
+                        sdkResult.data, PayloadFields.select(PayloadFields.PURCHASE_DATA, fieldMask)));
+            } else {
+                resultData.put("purchasesList", FlutterInAppHelper.fromPurchasesList(sdkResult.data, fieldMask));
+            }
+            if (verificationKey != null) {
+                if (delta == null) {
+                    putVerified(resultData, "verifiedList", verificationKey, sdkResult.data);
+                } else {
+                    putVerified(resultData, "addedVerified", verificationKey, delta.added);
+                    putVerified(resultData, "changedVerified", verificationKey, delta.changed);
+                }
+            }
+            return resultData;
         });
+    }
 
+    private void putVerified(Map<String, Object> resultData, String name, String verificationKey,
+                             List<PurchaseData> purchases) {
+        final List<Boolean> verified = purchaseVerifier.verify(verificationKey, purchases);
+        if (verified != null) {
+            resultData.put(name, verified);
+        }
+    }
+
+    private String verificationKey() {
+        return verifyPurchases ? publicKey : null;
     }
 
     private void getStoreInfo(final MethodChannel.Result result) {
-        if (purchaseClientError(result))
+        requestStoreInfo(connection.getClient(), sdkResult -> {
+            final Map<String, Object> resultData = new HashMap<>();
+            resultData.put("iapResult", sdkResult.toIapResult());
+            resultData.put("storeCode", sdkResult.data);
+            result.success(resultData);
+        });
+    }
+
+    private void requestStoreInfo(PurchaseClient purchaseClient, SingleFlight.Callback<SdkResult<String>> callback) {
+        final boolean leader = storeInfoFlight.join(STORE_INFO_KEY, sdkResult -> {
+            if (sdkResult.isSuccess()) {
+                storeEnvironment.setStoreCode(sdkResult.data);
+            }
+            callback.onResult(sdkResult);
+        });
+        if (!leader)
             return;
 
         purchaseClient.getStoreInfoAsync((iapResult, s) -> {
-            final Map<String, Object> resultData = new HashMap<>();
-            resultData.put("iapResult", FlutterInAppHelper.fromIapResult(iapResult));
-            resultData.put("storeCode", s);
-            result.success(resultData);
+            final SdkResult<String> sdkResult = new SdkResult<>(iapResult, s);
+            storeInfoFlight.complete(STORE_INFO_KEY, sdkResult, sdkResult.isSuccess());
         });
     }
 
-    private void launchPurchaseFlow(final MethodCall call, final MethodChannel.Result result) {
-        if (purchaseClientError(result))
+    /**
+     * Marks the store environment connected and loads the store code into it, so that the Dart side
+     * reads both from one getEnvironment call instead of asking the SDK at startup. The code already
+     * there is kept unless {@code reload} is set.
+     */
+    private void updateStoreEnvironment(boolean reload) {
+        final PurchaseClient purchaseClient = (connection == null) ? null : connection.getClient();
+        if (purchaseClient == null || connection.getState() != PurchaseConnection.State.CONNECTED) {
             return;
+        }
+        storeEnvironment.setConnected(true);
+        if (reload || !storeEnvironment.hasStoreCode()) {
+            requestStoreInfo(purchaseClient, sdkResult -> { });
+        }
+    }
 
+    private void launchPurchaseFlow(final MethodCall call, final MethodChannel.Result result) {
+        if (activity == null) {
+            result.success(FlutterInAppHelper.fromIapResult(PurchaseClient.ResponseCode.RESULT_ERROR, NO_ACTIVITY));
+            return;
+        }
+        final PurchaseClient purchaseClient = connection.getClient();
         final PurchaseFlowParams params = FlutterInAppHelper.toPurchaseFlowParams(call);
         final IapResult iapResult = purchaseClient.launchPurchaseFlow(activity, params);
         result.success(FlutterInAppHelper.fromIapResult(iapResult));
     }
 
     private void launchManageSubscription(final MethodCall call, final MethodChannel.Result result) {
-        initPurchaseClient();
-
+        if (activity == null) {
+            result.error(String.valueOf(PurchaseClient.ResponseCode.RESULT_ERROR), NO_ACTIVITY, null);
+            return;
+        }
+        acquirePurchaseClient();
+        final PurchaseClient purchaseClient = connection.getOrCreateClient();
         final SubscriptionParams subscriptionParams = FlutterInAppHelper.toSubscriptionParams(call);
         purchaseClient.launchManageSubscription(activity, subscriptionParams);
         result.success(null);
     }
 
     private void launchUpdateOrInstallFlow(final MethodChannel.Result result) {
-        initPurchaseClient();
-
+        if (activity == null) {
+            result.success(FlutterInAppHelper.fromIapResult(PurchaseClient.ResponseCode.RESULT_ERROR, NO_ACTIVITY));
+            return;
+        }
+        acquirePurchaseClient();
+        final PurchaseClient purchaseClient = connection.getOrCreateClient();
         purchaseClient.launchUpdateOrInstallFlow(activity, iapResult -> {
-            Logger.d(TAG, "launchUpdateOrInstallFlow response => " + iapResult.toJsonString());
+            PluginLog.d(TAG, "launchUpdateOrInstallFlow response => ", iapResult);
             result.success(FlutterInAppHelper.fromIapResult(iapResult));
         });// update or install 연결.
 
     }
 
     private void endConnection(MethodChannel.Result result) {
+        // An explicit endConnection also ends headless mode.
+        headless = false;
+        if (sharedClient != null) {
+            PurchaseClientRegistry.setHeadless(sharedClient, false, PurchasePolicy.NONE);
+        }
         endPurchaseClientConnection();
         result.success(null);
     }
 
     private void endPurchaseClientConnection() {
-        if (purchaseClient != null) {
-            purchaseClient.endConnection();
-            purchaseClient = null;
+        callScheduler.rejectQueued(this::replyServiceUnavailable);
+        productDetailsBatcher.cancel();
+        abortFlights();
+        disconnectedHandles.clear();
+        releasePurchaseClient();
+        storeEnvironment.setConnected(false);
+    }
+
+    private void getCachedPurchases(final MethodChannel.Result result) {
+        entitlementStore.load(publicKey, purchases -> resultMarshaller.success(result, () -> {
+            final Map<String, Object> resultData = new HashMap<>();
+            resultData.put("purchasesList", FlutterInAppHelper.fromPurchasesList(purchases));
+            return resultData;
+        }));
+    }
+
+    private void registerBackgroundHandler(final MethodCall call, final MethodChannel.Result result) {
+        final BackgroundPurchaseEngine backgroundEngine = BackgroundPurchaseEngine.getInstance(applicationContext);
+        final Number dispatcherHandle = call.argument("dispatcherHandle");
+        final Number callbackHandle = call.argument("callbackHandle");
+        if (dispatcherHandle == null || callbackHandle == null) {
+            backgroundEngine.clearCallbackHandles();
+        } else {
+            backgroundEngine.setCallbackHandles(dispatcherHandle.longValue(), callbackHandle.longValue());
+        }
+        result.success(null);
+    }
+
+    private void onPurchasesUpdated(IapResult iapResult, List<PurchaseData> list) {
+        purchasesFlight.invalidate();
+        if (iapResult.getResponseCode() == PurchaseClient.ResponseCode.RESULT_OK) {
+            entitlementStore.putAll(null, list);
         }
     }
 
-    private void initPurchaseClient() {
-        if (purchaseClient == null) {
-            purchaseClient = PurchaseClient.newBuilder(applicationContext)
-                    .setBase64PublicKey(publicKey)
-                    .setListener(new PluginPurchasesUpdatedListener(methodChannel))
-                    .build();
+    /**
+     * Takes a reference on the process-wide connection for the current public key, which is shared
+     * with every other engine that attached the plugin.
+     */
+    private void acquirePurchaseClient() {
+        final String key = (publicKey == null) ? "" : publicKey;
+        if (sharedClient != null && !sharedClient.publicKey.equals(key)) {
+            PurchaseClientRegistry.setHeadless(sharedClient, false, PurchasePolicy.NONE);
+            releasePurchaseClient();
+        }
+        if (sharedClient == null) {
+            sharedClient = PurchaseClientRegistry.acquire(applicationContext, key);
+            sharedClient.addListeners(purchasesUpdatedListener, connectionListener);
+            sharedClient.setForeground(this, activity != null);
+            connection = sharedClient.connection;
+            sharedClient.addStateListener(connectionStates);
+            ConnectionPrewarmer.handOff();
         }
     }
 
-    private boolean purchaseClientError(MethodChannel.Result result) {
-        if (purchaseClient != null) {
-            return false;
+    private void releasePurchaseClient() {
+        if (sharedClient == null) {
+            return;
+        }
+        sharedClient.removeListeners(purchasesUpdatedListener, connectionListener);
+        sharedClient.setForeground(this, false);
+        sharedClient.setConnectionOptions(this, null);
+        PurchaseClientRegistry.release(sharedClient);
+        // Removed after the release, so that the stream still sees the connection end if it was the last.
+        sharedClient.removeStateListener(connectionStates);
+        reconciling = false;
+        reconciled = false;
+        sharedClient = null;
+        connection = null;
+    }
+
+    /**
+     * Runs {@code task} once the scheduler gives the call's priority class a slot. {@code task} must
+     * answer the Result it is given, which frees the slot.
+     */
+    private void schedule(MethodCall call, MethodChannel.Result result, CallScheduler.Task task) {
+        callScheduler.submit(CallScheduler.priorityOf(call, defaultPriority(call.method)), result, task);
+    }
+
+    /**
+     * Like {@link #schedule}, and then waits for the connection.
+     */
+    private void execute(MethodCall call, MethodChannel.Result result, CallScheduler.Task task) {
+        schedule(call, result, scheduled -> execute(scheduled, () -> task.run(scheduled)));
+    }
+
+    /**
+     * Product queries take a slot of their priority class like any other call, so background ones
+     * still wait behind interactive and normal work. While the batcher merges them, the slot is given
+     * back as soon as the query is handed to the batcher; held until the merged request is answered,
+     * it would let only as many queries as there are slots meet in one batch.
+     */
+    private void executeProductQuery(MethodCall call, MethodChannel.Result result) {
+        execute(call, result, scheduled -> {
+            final boolean batching = productDetailsBatcher.isBatching();
+            queryProductDetails(call, scheduled);
+            if (batching) {
+                callScheduler.releaseSlot(scheduled);
+            }
+        });
+    }
+
+    private static int defaultPriority(String method) {
+        switch (method) {
+            case "launchPurchaseFlow":
+            case "launchManageSubscription":
+            case "launchUpdateOrInstallFlow":
+                return CallScheduler.INTERACTIVE;
+            default:
+                return CallScheduler.NORMAL;
         }
+    }
+
+    private void execute(MethodChannel.Result result, Runnable call) {
+        if (connection == null) {
+            replyServiceUnavailable(result);
+            return;
+        }
+        final PurchaseConnection target = connection;
+        target.execute(result, () -> {
+            // The engine may have released the shared client while the call was parked.
+            if (connection != target) {
+                replyServiceUnavailable(result);
+                return;
+            }
+            call.run();
+        });
+    }
+
+    private void replyServiceUnavailable(MethodChannel.Result result) {
         result.error(
                 String.valueOf(PurchaseClient.ResponseCode.RESULT_SERVICE_UNAVAILABLE),
                 "PurchaseClient is unset. Try reconnecting.", null);
-        return true;
     }
 }
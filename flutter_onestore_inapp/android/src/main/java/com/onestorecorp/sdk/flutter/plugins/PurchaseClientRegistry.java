@@ -0,0 +1,226 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import android.content.Context;
+
+import com.gaa.sdk.iap.IapResult;
+import com.gaa.sdk.iap.PurchaseClient;
+import com.gaa.sdk.iap.PurchaseData;
+import com.gaa.sdk.iap.PurchasesUpdatedListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Process-wide PurchaseClient connections keyed by public key.
+ *
+ * <p>Every Flutter engine that attaches the plugin acquires the connection for its public key, so a
+ * single service binding serves all of them. Purchase updates and disconnects are delivered to
+ * every registered engine, and the connection is ended when the last engine releases it.
+ *
+ * <p>A connection in headless mode holds one extra reference of its own, so it outlives the engines
+ * and keeps reconnecting. While no engine has an Activity attached, its purchase updates are also
+ * handed to a {@link HeadlessPurchaseProcessor}.
+ *
+ * <p>Each engine keeps its own connection settings, and the connection runs with their merge, so
+ * one engine's initialize cannot turn off the auto reconnect another engine or headless mode needs.
+ */
+final class PurchaseClientRegistry {
+    private static final String TAG = "PurchaseClientRegistry";
+
+    interface ClientBuilder {
+        PurchaseClient build(Context context, String publicKey, PurchasesUpdatedListener listener);
+    }
+
+    private static final ClientBuilder DEFAULT_BUILDER = (context, publicKey, listener) ->
+            PurchaseClient.newBuilder(context)
+                    .setBase64PublicKey(publicKey)
+                    .setListener(listener)
+                    .build();
+
+    private static final Map<String, SharedClient> clients = new HashMap<>();
+    private static ClientBuilder clientBuilder = DEFAULT_BUILDER;
+
+    private PurchaseClientRegistry() {}
+
+    /**
+     * Replaces how clients are built, for tests; {@code null} restores the SDK builder.
+     */
+    static synchronized void setClientBuilder(ClientBuilder builder) {
+        clientBuilder = (builder == null) ? DEFAULT_BUILDER : builder;
+    }
+
+    static synchronized SharedClient acquire(Context context, String publicKey) {
+        final String key = (publicKey == null) ? "" : publicKey;
+        SharedClient client = clients.get(key);
+        if (client == null) {
+            client = new SharedClient(context.getApplicationContext(), key, clientBuilder);
+            clients.put(key, client);
+        }
+        client.refCount++;
+        PluginLog.d(TAG, "acquire => references: ", client.refCount);
+        return client;
+    }
+
+    /**
+     * Turns headless mode on or off for {@code client}, taking or dropping the reference it holds.
+     */
+    static synchronized void setHeadless(SharedClient client, boolean headless, PurchasePolicy policy) {
+        client.headlessProcessor.setPolicy(policy);
+        if (client.headless == headless) {
+            return;
+        }
+        client.headless = headless;
+        client.applyConnectionOptions();
+        if (headless) {
+            client.refCount++;
+        } else {
+            release(client);
+        }
+    }
+
+    static synchronized void release(SharedClient client) {
+        client.refCount--;
+        PluginLog.d(TAG, "release => references: ", client.refCount);
+        if (client.refCount > 0) {
+            return;
+        }
+        clients.remove(client.publicKey);
+        client.connection.disconnect();
+    }
+
+    static final class SharedClient
+            implements PurchasesUpdatedListener, PurchaseConnection.Listener, PurchaseConnection.StateListener {
+        final String publicKey;
+        final PurchaseConnection connection;
+        private final HeadlessPurchaseProcessor headlessProcessor;
+
+        private final List<PurchasesUpdatedListener> purchasesUpdatedListeners = new ArrayList<>();
+        private final List<PurchaseConnection.Listener> connectionListeners = new ArrayList<>();
+        private final List<PurchaseConnection.StateListener> stateListeners = new ArrayList<>();
+        private final Set<Object> foregroundOwners = new HashSet<>();
+        private final Map<Object, PurchaseConnection.Options> connectionOptions = new HashMap<>();
+        private int refCount = 0;
+        private boolean headless = false;
+
+        private SharedClient(final Context context, final String publicKey, final ClientBuilder builder) {
+            this.publicKey = publicKey;
+            this.connection = new PurchaseConnection(() -> builder.build(context, publicKey, this), this, this);
+            this.headlessProcessor = new HeadlessPurchaseProcessor(context, connection);
+        }
+
+        boolean isHeadless() {
+            return headless;
+        }
+
+        /**
+         * Records whether {@code owner} currently has an Activity attached.
+         */
+        void setForeground(Object owner, boolean foreground) {
+            if (foreground) {
+                foregroundOwners.add(owner);
+            } else {
+                foregroundOwners.remove(owner);
+            }
+        }
+
+        /**
+         * Records the connection settings of {@code owner}, or forgets them when {@code options} is
+         * null, and applies the merge of every owner's.
+         */
+        void setConnectionOptions(Object owner, PurchaseConnection.Options options) {
+            if (options == null) {
+                connectionOptions.remove(owner);
+            } else {
+                connectionOptions.put(owner, options);
+            }
+            applyConnectionOptions();
+        }
+
+        /**
+         * Auto reconnect stays on while any owner asked for it or headless mode is on, since nobody
+         * calls startConnection for a headless connection. The largest queue and call timeout and
+         * the shortest backoff win, so no owner's calls fail earlier than it asked for.
+         */
+        private void applyConnectionOptions() {
+            final Collection<PurchaseConnection.Options> options = connectionOptions.isEmpty()
+                    ? Collections.singletonList(PurchaseConnection.Options.DEFAULT)
+                    : connectionOptions.values();
+            boolean autoReconnect = headless;
+            int maxPendingCalls = 0;
+            long callTimeoutMillis = 0L;
+            long initialBackoffMillis = Long.MAX_VALUE;
+            long maxBackoffMillis = Long.MAX_VALUE;
+            for (PurchaseConnection.Options option : options) {
+                autoReconnect |= option.autoReconnect;
+                maxPendingCalls = Math.max(maxPendingCalls, option.maxPendingCalls);
+                callTimeoutMillis = Math.max(callTimeoutMillis, option.callTimeoutMillis);
+                initialBackoffMillis = Math.min(initialBackoffMillis, option.initialBackoffMillis);
+                maxBackoffMillis = Math.min(maxBackoffMillis, option.maxBackoffMillis);
+            }
+            connection.configure(autoReconnect, maxPendingCalls, callTimeoutMillis,
+                    initialBackoffMillis, maxBackoffMillis);
+        }
+
+        void addListeners(PurchasesUpdatedListener purchasesUpdatedListener,
+                          PurchaseConnection.Listener connectionListener) {
+            purchasesUpdatedListeners.add(purchasesUpdatedListener);
+            connectionListeners.add(connectionListener);
+        }
+
+        void removeListeners(PurchasesUpdatedListener purchasesUpdatedListener,
+                             PurchaseConnection.Listener connectionListener) {
+            purchasesUpdatedListeners.remove(purchasesUpdatedListener);
+            connectionListeners.remove(connectionListener);
+        }
+
+        /**
+         * Adds {@code listener} and tells it the current state right away. The same listener may be
+         * added more than once, it is then removed once per add.
+         */
+        void addStateListener(PurchaseConnection.StateListener listener) {
+            stateListeners.add(listener);
+            listener.onStateChanged(connection.getState(), connection.getResponseCode(), PurchaseConnection.REASON_ATTACHED);
+        }
+
+        void removeStateListener(PurchaseConnection.StateListener listener) {
+            stateListeners.remove(listener);
+        }
+
+        @Override
+        public void onPurchasesUpdated(IapResult iapResult, List<PurchaseData> list) {
+            for (PurchasesUpdatedListener listener : new ArrayList<>(purchasesUpdatedListeners)) {
+                listener.onPurchasesUpdated(iapResult, list);
+            }
+            if (headless && foregroundOwners.isEmpty()) {
+                headlessProcessor.process(iapResult, list);
+            }
+        }
+
+        @Override
+        public void onConnected() {
+            for (PurchaseConnection.Listener listener : new ArrayList<>(connectionListeners)) {
+                listener.onConnected();
+            }
+        }
+
+        @Override
+        public void onServiceDisconnected() {
+            for (PurchaseConnection.Listener listener : new ArrayList<>(connectionListeners)) {
+                listener.onServiceDisconnected();
+            }
+        }
+
+        @Override
+        public void onStateChanged(PurchaseConnection.State state, int responseCode, String reason) {
+            for (PurchaseConnection.StateListener listener : new ArrayList<>(stateListeners)) {
+                listener.onStateChanged(state, responseCode, reason);
+            }
+        }
+    }
+}
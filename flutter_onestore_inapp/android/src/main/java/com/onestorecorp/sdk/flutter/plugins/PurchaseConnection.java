@@ -0,0 +1,380 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.gaa.sdk.base.Logger;
+import com.gaa.sdk.iap.IapResult;
+import com.gaa.sdk.iap.PurchaseClient;
+import com.gaa.sdk.iap.PurchaseClientStateListener;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import io.flutter.plugin.common.MethodChannel;
+
+/**
+ * Owns the PurchaseClient and its connection state.
+ *
+ * <p>Every startConnection request shares a single store connection. When auto reconnect is
+ * enabled, calls that need the client are parked in a bounded queue while the connection is being
+ * established, a lost connection is restored with exponential backoff and jitter, and the queue is
+ * drained once onSetupFinished reports success. Each parked call fails with
+ * RESULT_SERVICE_UNAVAILABLE when its deadline passes first.
+ */
+class PurchaseConnection {
+    private static final String TAG = "PurchaseConnection";
+
+    static final int DEFAULT_MAX_PENDING_CALLS = 32;
+    static final long DEFAULT_CALL_TIMEOUT_MILLIS = 10000L;
+    static final long DEFAULT_INITIAL_BACKOFF_MILLIS = 500L;
+    static final long DEFAULT_MAX_BACKOFF_MILLIS = 30000L;
+
+    enum State { DISCONNECTED, CONNECTING, CONNECTED }
+
+    static final String REASON_REQUESTED = "requested";
+    static final String REASON_RECONNECT = "reconnect";
+    static final String REASON_SETUP_FINISHED = "setupFinished";
+    static final String REASON_SETUP_FAILED = "setupFailed";
+    static final String REASON_SERVICE_DISCONNECTED = "serviceDisconnected";
+    static final String REASON_ENDED = "ended";
+    // A listener was added and is told the state the connection is already in.
+    static final String REASON_ATTACHED = "attached";
+
+    interface ClientFactory {
+        PurchaseClient create();
+    }
+
+    interface Listener {
+        /**
+         * Called every time a connection attempt succeeds, including reconnects.
+         */
+        void onConnected();
+
+        /**
+         * Called when an established connection is lost.
+         */
+        void onServiceDisconnected();
+    }
+
+    interface StateListener {
+        /**
+         * Called on every state transition with the response code and one of the REASON constants.
+         */
+        void onStateChanged(State state, int responseCode, String reason);
+    }
+
+    /**
+     * The connection settings one engine asked for in initialize.
+     */
+    static final class Options {
+        static final Options DEFAULT = new Options(false, DEFAULT_MAX_PENDING_CALLS, DEFAULT_CALL_TIMEOUT_MILLIS,
+                DEFAULT_INITIAL_BACKOFF_MILLIS, DEFAULT_MAX_BACKOFF_MILLIS);
+
+        final boolean autoReconnect;
+        final int maxPendingCalls;
+        final long callTimeoutMillis;
+        final long initialBackoffMillis;
+        final long maxBackoffMillis;
+
+        Options(boolean autoReconnect, int maxPendingCalls, long callTimeoutMillis,
+                long initialBackoffMillis, long maxBackoffMillis) {
+            this.autoReconnect = autoReconnect;
+            this.maxPendingCalls = maxPendingCalls;
+            this.callTimeoutMillis = callTimeoutMillis;
+            this.initialBackoffMillis = initialBackoffMillis;
+            this.maxBackoffMillis = maxBackoffMillis;
+        }
+    }
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Random random = new Random();
+    private final ClientFactory clientFactory;
+    private final Listener listener;
+    private final StateListener stateListener;
+    private final List<MethodChannel.Result> setupResults = new ArrayList<>();
+    private final ArrayDeque<PendingCall> pendingCalls = new ArrayDeque<>();
+    private final Runnable reconnectRunnable = this::reconnect;
+
+    private PurchaseClient purchaseClient;
+    private IapResult setupResult;
+    private State state = State.DISCONNECTED;
+    private int responseCode = PurchaseClient.ResponseCode.RESULT_SERVICE_UNAVAILABLE;
+    private int generation = 0;
+    private int attempts = 0;
+    private boolean reconnectScheduled = false;
+
+    private boolean autoReconnect = false;
+    private int maxPendingCalls = DEFAULT_MAX_PENDING_CALLS;
+    private long callTimeoutMillis = DEFAULT_CALL_TIMEOUT_MILLIS;
+    private long initialBackoffMillis = DEFAULT_INITIAL_BACKOFF_MILLIS;
+    private long maxBackoffMillis = DEFAULT_MAX_BACKOFF_MILLIS;
+
+    PurchaseConnection(ClientFactory clientFactory, Listener listener, StateListener stateListener) {
+        this.clientFactory = clientFactory;
+        this.listener = listener;
+        this.stateListener = stateListener;
+    }
+
+    void configure(boolean autoReconnect, int maxPendingCalls, long callTimeoutMillis,
+                   long initialBackoffMillis, long maxBackoffMillis) {
+        this.autoReconnect = autoReconnect;
+        this.maxPendingCalls = Math.max(0, maxPendingCalls);
+        this.callTimeoutMillis = Math.max(0L, callTimeoutMillis);
+        this.initialBackoffMillis = Math.max(1L, initialBackoffMillis);
+        this.maxBackoffMillis = Math.max(this.initialBackoffMillis, maxBackoffMillis);
+        if (!autoReconnect) {
+            cancelReconnect();
+        }
+    }
+
+    /**
+     * @return the client, or null before the first connection attempt and after {@link #disconnect()}.
+     */
+    PurchaseClient getClient() {
+        return purchaseClient;
+    }
+
+    PurchaseClient getOrCreateClient() {
+        if (purchaseClient == null) {
+            purchaseClient = clientFactory.create();
+        }
+        return purchaseClient;
+    }
+
+    State getState() {
+        return state;
+    }
+
+    /**
+     * @return the response code that came with the current state.
+     */
+    int getResponseCode() {
+        return responseCode;
+    }
+
+    /**
+     * Replies the setup result to {@code result}. Joins the attempt in progress instead of starting
+     * another one, and replies immediately when already connected.
+     */
+    void connect(MethodChannel.Result result) {
+        if (state == State.CONNECTED && purchaseClient != null && purchaseClient.isReady()) {
+            result.success(FlutterInAppHelper.fromIapResult(setupResult));
+            return;
+        }
+
+        setupResults.add(result);
+        if (state != State.CONNECTING) {
+            cancelReconnect();
+            startConnection();
+        }
+    }
+
+    /**
+     * Runs {@code call} once the client is connected. Without auto reconnect the call runs right away
+     * whenever a client exists, as before.
+     */
+    void execute(MethodChannel.Result result, Runnable call) {
+        if (state == State.CONNECTED || (!autoReconnect && purchaseClient != null)) {
+            call.run();
+            return;
+        }
+        if (!autoReconnect) {
+            replyServiceUnavailable(result, "PurchaseClient is unset. Try reconnecting.");
+            return;
+        }
+        if (pendingCalls.size() >= maxPendingCalls) {
+            replyServiceUnavailable(result, "Too many calls are waiting for the connection.");
+            return;
+        }
+
+        final PendingCall pendingCall = new PendingCall(result, call);
+        pendingCalls.add(pendingCall);
+        handler.postDelayed(pendingCall, callTimeoutMillis);
+        if (state == State.DISCONNECTED && !reconnectScheduled) {
+            startConnection();
+        }
+    }
+
+    /**
+     * Ends the connection, fails every waiting call and stops reconnecting.
+     */
+    void disconnect() {
+        generation++;
+        cancelReconnect();
+        setState(State.DISCONNECTED, PurchaseClient.ResponseCode.RESULT_SERVICE_UNAVAILABLE, REASON_ENDED);
+        attempts = 0;
+        setupResult = null;
+        replySetupUnavailable("PurchaseClient connection was ended.");
+        failPendingCalls(PurchaseClient.ResponseCode.RESULT_SERVICE_UNAVAILABLE,
+                "PurchaseClient connection was ended.");
+        if (purchaseClient != null) {
+            purchaseClient.endConnection();
+            purchaseClient = null;
+        }
+    }
+
+    private void startConnection() {
+        reconnectScheduled = false;
+        setState(State.CONNECTING, PurchaseClient.ResponseCode.RESULT_OK,
+                (attempts > 0) ? REASON_RECONNECT : REASON_REQUESTED);
+        final int connectGeneration = ++generation;
+        getOrCreateClient().startConnection(new PurchaseClientStateListener() {
+            private boolean setupFinished = false;
+
+            @Override
+            public void onSetupFinished(IapResult iapResult) {
+                if (setupFinished || connectGeneration != generation) {
+                    Logger.d(TAG, "Ignored a stale onSetupFinished.");
+                    return;
+                }
+
+                setupFinished = true;
+                handleSetupFinished(iapResult);
+            }
+
+            @Override
+            public void onServiceDisconnected() {
+                if (connectGeneration != generation) {
+                    return;
+                }
+                handleServiceDisconnected();
+            }
+        });
+    }
+
+    private void handleSetupFinished(IapResult iapResult) {
+        final List<MethodChannel.Result> results = new ArrayList<>(setupResults);
+        setupResults.clear();
+
+        final int responseCode = iapResult.getResponseCode();
+        if (responseCode == PurchaseClient.ResponseCode.RESULT_OK) {
+            PluginLog.d(TAG, "connected => retries: ", attempts);
+            attempts = 0;
+            setupResult = iapResult;
+            setState(State.CONNECTED, responseCode, REASON_SETUP_FINISHED);
+        } else {
+            setState(State.DISCONNECTED, responseCode, REASON_SETUP_FAILED);
+        }
+
+        for (MethodChannel.Result result : results) {
+            result.success(FlutterInAppHelper.fromIapResult(iapResult));
+        }
+
+        if (state == State.CONNECTED) {
+            drainPendingCalls();
+            listener.onConnected();
+        } else if (autoReconnect && !pendingCalls.isEmpty() && isRetryable(responseCode)) {
+            scheduleReconnect();
+        } else {
+            failPendingCalls(responseCode, iapResult.getMessage());
+        }
+    }
+
+    private void handleServiceDisconnected() {
+        Logger.d(TAG, "Purchasing service disconnected");
+        final boolean wasConnected = state == State.CONNECTED;
+        setupResult = null;
+        setState(State.DISCONNECTED, PurchaseClient.ResponseCode.RESULT_SERVICE_UNAVAILABLE,
+                REASON_SERVICE_DISCONNECTED);
+        if (wasConnected) {
+            listener.onServiceDisconnected();
+        }
+        if (autoReconnect) {
+            scheduleReconnect();
+        }
+    }
+
+    private void setState(State state, int responseCode, String reason) {
+        final boolean changed = this.state != state;
+        this.state = state;
+        this.responseCode = responseCode;
+        if (changed && stateListener != null) {
+            stateListener.onStateChanged(state, responseCode, reason);
+        }
+    }
+
+    private void reconnect() {
+        if (state == State.DISCONNECTED) {
+            startConnection();
+        }
+    }
+
+    private void scheduleReconnect() {
+        if (reconnectScheduled) {
+            return;
+        }
+        final long delay = nextBackoffMillis();
+        PluginLog.d(TAG, "reconnecting => delay ms: ", delay);
+        reconnectScheduled = true;
+        handler.postDelayed(reconnectRunnable, delay);
+    }
+
+    private void cancelReconnect() {
+        handler.removeCallbacks(reconnectRunnable);
+        reconnectScheduled = false;
+    }
+
+    private long nextBackoffMillis() {
+        final int shift = Math.min(attempts++, 20);
+        final long ceiling = Math.min(maxBackoffMillis, initialBackoffMillis << shift);
+        // Equal jitter: at least half of the backoff, so that retries never bunch up at zero.
+        final long half = ceiling / 2;
+        return half + (long) (random.nextDouble() * (ceiling - half));
+    }
+
+    private void drainPendingCalls() {
+        final List<PendingCall> calls = new ArrayList<>(pendingCalls);
+        pendingCalls.clear();
+        for (PendingCall pendingCall : calls) {
+            handler.removeCallbacks(pendingCall);
+            pendingCall.call.run();
+        }
+    }
+
+    private void failPendingCalls(int responseCode, String message) {
+        final List<PendingCall> calls = new ArrayList<>(pendingCalls);
+        pendingCalls.clear();
+        for (PendingCall pendingCall : calls) {
+            handler.removeCallbacks(pendingCall);
+            pendingCall.result.error(String.valueOf(responseCode), message, null);
+        }
+    }
+
+    private void replySetupUnavailable(String message) {
+        final List<MethodChannel.Result> results = new ArrayList<>(setupResults);
+        setupResults.clear();
+        for (MethodChannel.Result result : results) {
+            result.success(FlutterInAppHelper.fromIapResult(
+                    PurchaseClient.ResponseCode.RESULT_SERVICE_UNAVAILABLE, message));
+        }
+    }
+
+    private static boolean isRetryable(int responseCode) {
+        return responseCode == PurchaseClient.ResponseCode.RESULT_SERVICE_UNAVAILABLE
+                || responseCode == PurchaseClient.ResponseCode.RESULT_ERROR;
+    }
+
+    private static void replyServiceUnavailable(MethodChannel.Result result, String message) {
+        result.error(String.valueOf(PurchaseClient.ResponseCode.RESULT_SERVICE_UNAVAILABLE), message, null);
+    }
+
+    private final class PendingCall implements Runnable {
+        final MethodChannel.Result result;
+        final Runnable call;
+
+        PendingCall(MethodChannel.Result result, Runnable call) {
+            this.result = result;
+            this.call = call;
+        }
+
+        @Override
+        public void run() {
+            if (pendingCalls.remove(this)) {
+                replyServiceUnavailable(result, "Timed out waiting for the PurchaseClient connection.");
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import com.gaa.sdk.iap.IapResult;
+import com.gaa.sdk.iap.PurchaseClient;
+import com.gaa.sdk.iap.PurchaseData;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decides what the native side does with a purchase that no Dart code is around to handle.
+ *
+ * <p>Every product uses the default action unless the product id has its own entry. Only purchases
+ * in the purchased state are ever acted on, and acknowledged ones only when they are to be consumed.
+ * Subscriptions cannot be consumed, so a consume action acknowledges a purchase known to be one.
+ *
+ * <p>The product type of a purchase is looked up by its token in the {@code productTypes} the
+ * caller passes. A purchase without an entry, e.g. one reported by onPurchasesUpdated, has an
+ * unknown type and gets the action of its product id as is.
+ */
+final class PurchasePolicy {
+    static final String ACTION_NONE = "none";
+    static final String ACTION_ACKNOWLEDGE = "acknowledge";
+    static final String ACTION_CONSUME = "consume";
+
+    static final PurchasePolicy NONE = new PurchasePolicy(ACTION_NONE, Collections.<String, String>emptyMap());
+
+    private static final int PURCHASE_STATE_PURCHASED = 0;
+
+    private final String defaultAction;
+    private final Map<String, String> productActions;
+
+    private PurchasePolicy(String defaultAction, Map<String, String> productActions) {
+        this.defaultAction = defaultAction;
+        this.productActions = productActions;
+    }
+
+    /**
+     * @param arguments {@code {defaultAction, productActions}} as sent by the Dart side; anything
+     *                  else yields {@link #NONE}.
+     */
+    static PurchasePolicy fromArguments(Object arguments) {
+        if (!(arguments instanceof Map)) {
+            return NONE;
+        }
+        final Map<?, ?> map = (Map<?, ?>) arguments;
+        final Map<String, String> productActions = new HashMap<>();
+        final Object actions = map.get("productActions");
+        if (actions instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) actions).entrySet()) {
+                productActions.put(String.valueOf(entry.getKey()), toAction(entry.getValue()));
+            }
+        }
+        return new PurchasePolicy(toAction(map.get("defaultAction")), productActions);
+    }
+
+    String actionFor(PurchaseData purchaseData, Map<String, String> productTypes) {
+        if (purchaseData.getPurchaseState() != PURCHASE_STATE_PURCHASED) {
+            return ACTION_NONE;
+        }
+        String action = productActions.get(purchaseData.getProductId());
+        if (action == null) {
+            action = defaultAction;
+        }
+        if (ACTION_CONSUME.equals(action)
+                && PurchaseClient.ProductType.SUBS.equals(productTypes.get(purchaseData.getPurchaseToken()))) {
+            action = ACTION_ACKNOWLEDGE;
+        }
+        // A consumable can already be acknowledged and still wait to be consumed.
+        return (ACTION_ACKNOWLEDGE.equals(action) && purchaseData.isAcknowledged()) ? ACTION_NONE : action;
+    }
+
+    /**
+     * @return the purchases of {@code list} that have an action other than {@link #ACTION_NONE}.
+     */
+    List<PurchaseData> select(List<PurchaseData> list, Map<String, String> productTypes) {
+        final List<PurchaseData> selected = new ArrayList<>();
+        if (list == null) {
+            return selected;
+        }
+        for (PurchaseData purchaseData : list) {
+            if (!ACTION_NONE.equals(actionFor(purchaseData, productTypes))) {
+                selected.add(purchaseData);
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Acknowledges or consumes each of {@code purchases}, which must come from
+     * {@link #select(List, Map)} with the same {@code productTypes}, with a few requests in flight at
+     * a time. Reports the results in the order of {@code purchases}.
+     */
+    void apply(final PurchaseClient purchaseClient, final EntitlementStore entitlementStore,
+               List<PurchaseData> purchases, final Map<String, String> productTypes,
+               BatchRunner.Callback<IapResult> callback) {
+        BatchRunner.<PurchaseData, IapResult>run(purchases, BatchRunner.DEFAULT_MAX_IN_FLIGHT, (purchaseData, completion) -> {
+            if (ACTION_CONSUME.equals(actionFor(purchaseData, productTypes))) {
+                purchaseClient.consumeAsync(FlutterInAppHelper.toConsumeParams(purchaseData, null),
+                        (iapResult, consumed) -> {
+                            if (iapResult.getResponseCode() == PurchaseClient.ResponseCode.RESULT_OK) {
+                                entitlementStore.remove(purchaseData.getPurchaseToken());
+                            }
+                            completion.complete(iapResult);
+                        });
+            } else {
+                purchaseClient.acknowledgeAsync(FlutterInAppHelper.toAcknowledgeParams(purchaseData, null),
+                        (iapResult, acknowledged) -> completion.complete(iapResult));
+            }
+        }, callback);
+    }
+
+    boolean isNone() {
+        return ACTION_NONE.equals(defaultAction) && productActions.isEmpty();
+    }
+
+    private static String toAction(Object value) {
+        if (ACTION_ACKNOWLEDGE.equals(value) || ACTION_CONSUME.equals(value)) {
+            return (String) value;
+        }
+        return ACTION_NONE;
+    }
+}
@@ -0,0 +1,119 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import com.gaa.sdk.iap.PurchaseData;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the last purchase list per product type, keyed by purchaseToken, so that a caller which
+ * already holds a given version only has to receive what changed since then.
+ *
+ * <p>Only the most recent step is remembered. Callers on an older version get a full snapshot.
+ */
+class PurchaseSnapshots {
+
+    static final class Delta {
+        final long version;
+        final List<PurchaseData> added;
+        final List<PurchaseData> changed;
+        final List<String> removed;
+
+        Delta(long version, List<PurchaseData> added, List<PurchaseData> changed, List<String> removed) {
+            this.version = version;
+            this.added = added;
+            this.changed = changed;
+            this.removed = removed;
+        }
+    }
+
+    private static final class Snapshot {
+        final Map<String, PurchaseData> purchases = new LinkedHashMap<>();
+        long version;
+        long previousVersion = -1L;
+        Delta lastDelta;
+    }
+
+    private final Map<String, Snapshot> snapshots = new HashMap<>();
+
+    // Seeded from the clock so that versions handed out before an engine re-attach are not reused.
+    private long nextVersion = System.currentTimeMillis();
+
+    /**
+     * Replaces the snapshot of {@code productType} with {@code list} and returns its version.
+     * The version only changes when a purchase was added, removed or modified.
+     */
+    long update(String productType, List<PurchaseData> list) {
+        Snapshot snapshot = snapshots.get(productType);
+        final boolean created = snapshot == null;
+        if (created) {
+            snapshot = new Snapshot();
+            snapshots.put(productType, snapshot);
+        }
+
+        final Map<String, PurchaseData> previous = new HashMap<>(snapshot.purchases);
+        final List<PurchaseData> added = new ArrayList<>();
+        final List<PurchaseData> changed = new ArrayList<>();
+        snapshot.purchases.clear();
+        if (list != null) {
+            for (PurchaseData purchase : list) {
+                final String token = purchase.getPurchaseToken();
+                final PurchaseData old = previous.remove(token);
+                if (old == null) {
+                    added.add(purchase);
+                } else if (!isSame(old, purchase)) {
+                    changed.add(purchase);
+                }
+                snapshot.purchases.put(token, purchase);
+            }
+        }
+        final List<String> removed = new ArrayList<>(previous.keySet());
+
+        if (created || !added.isEmpty() || !changed.isEmpty() || !removed.isEmpty()) {
+            snapshot.previousVersion = created ? -1L : snapshot.version;
+            snapshot.version = nextVersion++;
+            snapshot.lastDelta = new Delta(snapshot.version, added, changed, removed);
+        }
+        return snapshot.version;
+    }
+
+    /**
+     * @return the changes between {@code sinceVersion} and the current snapshot, or null if the
+     * caller has to fall back to a full snapshot.
+     */
+    Delta deltaSince(String productType, long sinceVersion) {
+        final Snapshot snapshot = snapshots.get(productType);
+        if (snapshot == null) {
+            return null;
+        }
+        if (sinceVersion == snapshot.version) {
+            return new Delta(snapshot.version, Collections.emptyList(), Collections.emptyList(),
+                    Collections.emptyList());
+        }
+        if (sinceVersion == snapshot.previousVersion) {
+            return snapshot.lastDelta;
+        }
+        return null;
+    }
+
+    long versionOf(String productType) {
+        final Snapshot snapshot = snapshots.get(productType);
+        return snapshot == null ? -1L : snapshot.version;
+    }
+
+    void clear() {
+        snapshots.clear();
+    }
+
+    private static boolean isSame(PurchaseData a, PurchaseData b) {
+        return equals(a.getOriginalJson(), b.getOriginalJson()) && equals(a.getSignature(), b.getSignature());
+    }
+
+    private static boolean equals(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
@@ -0,0 +1,115 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import com.gaa.sdk.base.Logger;
+import com.gaa.sdk.iap.PurchaseData;
+
+import java.security.PublicKey;
+import java.security.Signature;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verifies the signatures of whole purchase lists against the application's public key.
+ *
+ * <p>The key is decoded once by {@link SignatureVerifier} and reused. A list is split into one
+ * contiguous chunk per core and the chunks are verified in parallel on a pool shared by every
+ * engine, each chunk with its own {@link Signature}. Short lists stay on the calling thread, where a
+ * handoff would cost more than the work. Callers run this while building a reply, on the marshaller
+ * thread.
+ */
+final class PurchaseVerifier {
+    private static final String TAG = "PurchaseVerifier";
+    private static final long KEEP_ALIVE_SECONDS = 30L;
+
+    // Below this many purchases per chunk the list is verified on the calling thread.
+    static final int MIN_CHUNK_SIZE = 8;
+
+    private static PurchaseVerifier instance;
+
+    private final SignatureVerifier signatureVerifier = new SignatureVerifier();
+    private final int parallelism;
+    private final ThreadPoolExecutor executor;
+
+    static synchronized PurchaseVerifier getInstance() {
+        if (instance == null) {
+            instance = new PurchaseVerifier(Runtime.getRuntime().availableProcessors());
+        }
+        return instance;
+    }
+
+    PurchaseVerifier(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+        executor = new ThreadPoolExecutor(this.parallelism, this.parallelism, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "onestore-verifier");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @return whether each purchase of {@code purchases} is signed with {@code base64PublicKey}, in
+     * list order, or null if the key cannot be used.
+     */
+    List<Boolean> verify(String base64PublicKey, List<PurchaseData> purchases) {
+        final PublicKey key = signatureVerifier.publicKeyFor(base64PublicKey);
+        if (key == null || purchases == null) {
+            return null;
+        }
+
+        final int size = purchases.size();
+        final Boolean[] verified = new Boolean[size];
+        final int chunks = Math.min(parallelism, size / MIN_CHUNK_SIZE);
+        if (chunks <= 1) {
+            verifyRange(key, purchases, 0, size, verified);
+            return Arrays.asList(verified);
+        }
+
+        final int chunkSize = (size + chunks - 1) / chunks;
+        final List<Future<Void>> futures = new ArrayList<>(chunks);
+        // The calling thread takes the first chunk itself instead of waiting idle.
+        for (int start = chunkSize; start < size; start += chunkSize) {
+            final int from = start;
+            final int to = Math.min(size, start + chunkSize);
+            futures.add(executor.submit(() -> {
+                verifyRange(key, purchases, from, to, verified);
+                return null;
+            }));
+        }
+        verifyRange(key, purchases, 0, Math.min(size, chunkSize), verified);
+
+        for (Future<Void> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                Logger.e(TAG, "Verification failed: " + e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        // Anything a failed chunk left unset counts as unverified.
+        for (int i = 0; i < size; i++) {
+            if (verified[i] == null) {
+                verified[i] = Boolean.FALSE;
+            }
+        }
+        return Arrays.asList(verified);
+    }
+
+    private static void verifyRange(PublicKey key, List<PurchaseData> purchases, int from, int to, Boolean[] verified) {
+        final Signature signature = SignatureVerifier.newSignature();
+        for (int i = from; i < to; i++) {
+            final PurchaseData purchaseData = purchases.get(i);
+            verified[i] = SignatureVerifier.verify(
+                    signature, key, purchaseData.getOriginalJson(), purchaseData.getSignature());
+        }
+    }
+}
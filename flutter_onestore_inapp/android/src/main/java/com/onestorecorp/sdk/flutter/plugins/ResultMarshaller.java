@@ -0,0 +1,79 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.gaa.sdk.base.Logger;
+import com.gaa.sdk.iap.PurchaseClient;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import io.flutter.plugin.common.MethodChannel;
+
+/**
+ * Builds channel payloads on a background thread and posts only the final reply back to the
+ * platform thread. A single worker keeps replies and events in the order they were submitted.
+ */
+class ResultMarshaller {
+    private static final String TAG = "ResultMarshaller";
+    private static final long KEEP_ALIVE_SECONDS = 30L;
+
+    interface Conversion {
+        Object convert();
+    }
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ThreadPoolExecutor executor;
+
+    private boolean offMainThread = true;
+
+    ResultMarshaller() {
+        executor = new ThreadPoolExecutor(1, 1, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "onestore-marshaller");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    void setOffMainThread(boolean offMainThread) {
+        this.offMainThread = offMainThread;
+    }
+
+    void success(final MethodChannel.Result result, final Conversion conversion) {
+        if (!offMainThread) {
+            result.success(conversion.convert());
+            return;
+        }
+
+        executor.execute(() -> {
+            try {
+                final Object payload = conversion.convert();
+                mainHandler.post(() -> result.success(payload));
+            } catch (RuntimeException e) {
+                Logger.e(TAG, "Failed to marshal result: " + e);
+                mainHandler.post(() -> result.error(
+                        String.valueOf(PurchaseClient.ResponseCode.RESULT_ERROR), e.getMessage(), null));
+            }
+        });
+    }
+
+    void invokeMethod(final MethodChannel channel, final String method, final Conversion conversion) {
+        if (!offMainThread) {
+            channel.invokeMethod(method, conversion.convert());
+            return;
+        }
+
+        executor.execute(() -> {
+            try {
+                final Object payload = conversion.convert();
+                mainHandler.post(() -> channel.invokeMethod(method, payload));
+            } catch (RuntimeException e) {
+                Logger.e(TAG, "Failed to marshal " + method + ": " + e);
+            }
+        });
+    }
+}
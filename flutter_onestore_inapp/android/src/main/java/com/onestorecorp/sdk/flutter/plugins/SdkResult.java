@@ -0,0 +1,37 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import com.gaa.sdk.iap.IapResult;
+import com.gaa.sdk.iap.PurchaseClient;
+
+import java.util.Map;
+
+final class SdkResult<T> {
+    final int responseCode;
+    final String message;
+    final T data;
+
+    SdkResult(IapResult iapResult, T data) {
+        this(iapResult.getResponseCode(), iapResult.getMessage(), data);
+    }
+
+    private SdkResult(int responseCode, String message, T data) {
+        this.responseCode = responseCode;
+        this.message = message;
+        this.data = data;
+    }
+
+    /**
+     * @return a result for a call the SDK never answered, for example because the connection went away.
+     */
+    static <T> SdkResult<T> error(int responseCode, String message) {
+        return new SdkResult<>(responseCode, message, null);
+    }
+
+    boolean isSuccess() {
+        return responseCode == PurchaseClient.ResponseCode.RESULT_OK;
+    }
+
+    Map<String, Object> toIapResult() {
+        return FlutterInAppHelper.fromIapResult(responseCode, message);
+    }
+}
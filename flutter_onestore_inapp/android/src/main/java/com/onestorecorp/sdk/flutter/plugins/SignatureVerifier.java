@@ -0,0 +1,80 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import android.text.TextUtils;
+import android.util.Base64;
+
+import com.gaa.sdk.base.Logger;
+
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.X509EncodedKeySpec;
+
+/**
+ * Verifies ONE store signatures against the Base64 encoded public key of the application.
+ * The decoded {@link PublicKey} is cached until a different key is passed in.
+ */
+class SignatureVerifier {
+    private static final String TAG = "SignatureVerifier";
+    private static final String KEY_FACTORY_ALGORITHM = "RSA";
+    private static final String SIGNATURE_ALGORITHM = "SHA512withRSA";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private String encodedKey;
+    private PublicKey publicKey;
+
+    boolean verify(String base64PublicKey, String signedData, String signature) {
+        final PublicKey key = publicKeyFor(base64PublicKey);
+        return key != null && verify(newSignature(), key, signedData, signature);
+    }
+
+    /**
+     * Verifies with an already decoded key. {@code verifier} comes from {@link #newSignature()} and
+     * can be reused for any number of calls on one thread.
+     */
+    static boolean verify(Signature verifier, PublicKey key, String signedData, String signature) {
+        if (verifier == null || TextUtils.isEmpty(signedData) || TextUtils.isEmpty(signature)) {
+            return false;
+        }
+
+        try {
+            verifier.initVerify(key);
+            verifier.update(signedData.getBytes(UTF_8));
+            return verifier.verify(Base64.decode(signature, Base64.DEFAULT));
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            Logger.w(TAG, "Signature verification failed: " + e);
+            return false;
+        }
+    }
+
+    static Signature newSignature() {
+        try {
+            return Signature.getInstance(SIGNATURE_ALGORITHM);
+        } catch (GeneralSecurityException e) {
+            Logger.w(TAG, "Signature is not available: " + e);
+            return null;
+        }
+    }
+
+    synchronized PublicKey publicKeyFor(String base64PublicKey) {
+        if (TextUtils.isEmpty(base64PublicKey)) {
+            return null;
+        }
+        if (base64PublicKey.equals(encodedKey)) {
+            return publicKey;
+        }
+
+        try {
+            final byte[] decodedKey = Base64.decode(base64PublicKey, Base64.DEFAULT);
+            publicKey = KeyFactory.getInstance(KEY_FACTORY_ALGORITHM)
+                    .generatePublic(new X509EncodedKeySpec(decodedKey));
+            encodedKey = base64PublicKey;
+            return publicKey;
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            Logger.w(TAG, "Invalid public key: " + e);
+            return null;
+        }
+    }
+}
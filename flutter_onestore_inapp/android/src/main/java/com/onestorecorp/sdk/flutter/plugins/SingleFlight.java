@@ -0,0 +1,163 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import com.gaa.sdk.base.Logger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collapses identical calls that overlap in time into one store request. The first caller for a
+ * key becomes the leader and performs the request, later callers only wait for its result.
+ * A successful result can optionally be handed out again for a short reuse window.
+ *
+ * <p>A flight whose leader does not complete within the deadline is dropped and its callers receive
+ * the expired value, so that one lost SDK callback does not hold every later caller of the key.
+ *
+ * <p>Must only be used from the platform thread.
+ */
+class SingleFlight<V> {
+    private static final String TAG = "SingleFlight";
+
+    static final long DEFAULT_DEADLINE_MILLIS = 30000L;
+
+    interface Callback<V> {
+        void onResult(V value);
+    }
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Map<String, Flight> inFlight = new HashMap<>();
+    private final Map<String, Completed<V>> completed = new HashMap<>();
+    private final V expired;
+
+    private long reuseMillis = 0L;
+    private long deadlineMillis = DEFAULT_DEADLINE_MILLIS;
+
+    /**
+     * @param expired the value handed to the callers of a flight that outlived its deadline.
+     */
+    SingleFlight(V expired) {
+        this.expired = expired;
+    }
+
+    void setReuseMillis(long reuseMillis) {
+        this.reuseMillis = reuseMillis;
+        if (reuseMillis <= 0) {
+            completed.clear();
+        }
+    }
+
+    /**
+     * Applies to flights started afterwards. A deadline of zero or less never drops a flight.
+     */
+    void setDeadlineMillis(long deadlineMillis) {
+        this.deadlineMillis = deadlineMillis;
+    }
+
+    /**
+     * @return true if the caller is the leader and has to start the request and call
+     * {@link #complete(String, Object, boolean)} once it finishes.
+     */
+    boolean join(String key, Callback<V> callback) {
+        final Completed<V> done = completed.get(key);
+        if (done != null) {
+            if (SystemClock.elapsedRealtime() < done.expiresAt) {
+                callback.onResult(done.value);
+                return false;
+            }
+            completed.remove(key);
+        }
+
+        Flight flight = inFlight.get(key);
+        if (flight != null) {
+            flight.waiters.add(callback);
+            return false;
+        }
+
+        flight = new Flight(key);
+        flight.waiters.add(callback);
+        inFlight.put(key, flight);
+        if (deadlineMillis > 0) {
+            handler.postDelayed(flight, deadlineMillis);
+        }
+        return true;
+    }
+
+    void complete(String key, V value, boolean reusable) {
+        if (reusable && reuseMillis > 0) {
+            completed.put(key, new Completed<>(value, SystemClock.elapsedRealtime() + reuseMillis));
+        }
+
+        final Flight flight = inFlight.remove(key);
+        if (flight == null) {
+            return;
+        }
+        flight.finish(value);
+    }
+
+    /**
+     * Drops reusable results so that the next call reaches the store again. Calls that are
+     * still in flight are not affected.
+     */
+    void invalidate() {
+        completed.clear();
+    }
+
+    /**
+     * Drops reusable results and answers every caller still in flight with {@code value}, for when
+     * the requests they wait on will never complete. Callers that join afterwards start a new flight.
+     */
+    void abort(V value) {
+        completed.clear();
+        final List<Flight> flights = new ArrayList<>(inFlight.values());
+        inFlight.clear();
+        for (Flight flight : flights) {
+            flight.finish(value);
+        }
+    }
+
+    int inFlightCount() {
+        return inFlight.size();
+    }
+
+    private final class Flight implements Runnable {
+        final String key;
+        final List<Callback<V>> waiters = new ArrayList<>();
+
+        Flight(String key) {
+            this.key = key;
+        }
+
+        void finish(V value) {
+            handler.removeCallbacks(this);
+            for (Callback<V> waiter : waiters) {
+                waiter.onResult(value);
+            }
+        }
+
+        @Override
+        public void run() {
+            if (inFlight.get(key) != this) {
+                return;
+            }
+            Logger.w(TAG, "flight expired => " + key + ", waiters: " + waiters.size());
+            inFlight.remove(key);
+            finish(expired);
+        }
+    }
+
+    private static final class Completed<V> {
+        final V value;
+        final long expiresAt;
+
+        Completed(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
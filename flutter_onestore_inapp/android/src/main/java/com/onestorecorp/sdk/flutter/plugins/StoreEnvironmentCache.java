@@ -0,0 +1,166 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.Uri;
+
+import com.gaa.sdk.base.StoreEnvironment;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import io.flutter.plugin.common.MethodChannel;
+
+/**
+ * Keeps what the Dart side asks for on startup, the store type, the store code, the connection state
+ * and the SDK versions, so that all of it comes back from one {@code getEnvironment} call.
+ *
+ * <p>The store type is read once and read again only after one of the ONE store packages was added,
+ * replaced or removed; changes of any other package are ignored.
+ * The store code is filled in by the purchase handler after every connection and dropped when the
+ * connection goes away. Every change is pushed to Dart as {@code onEnvironmentChanged} on the base
+ * channel. Runs on the main thread.
+ */
+class StoreEnvironmentCache {
+    private static final String TAG = "StoreEnvironmentCache";
+    // The ONE store clients of each carrier and the ONE store service that binds the IAP service.
+    static final Set<String> STORE_PACKAGES = new HashSet<>(Arrays.asList(
+            "com.skt.skaf.A000Z00040",
+            "com.kt.olleh.storefront",
+            "com.lguplus.appstore",
+            "com.skt.skaf.OA00018282"));
+
+    interface Listener {
+        /**
+         * The installed stores changed, the store code has to be loaded again.
+         */
+        void onInvalidated();
+    }
+
+    private final Context context;
+    private final MethodChannel channel;
+    private final BroadcastReceiver packageReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            final Uri data = intent.getData();
+            if (data == null || !STORE_PACKAGES.contains(data.getSchemeSpecificPart())) {
+                return;
+            }
+            PluginLog.d(TAG, "store package changed => ", intent.getAction());
+            invalidate();
+        }
+    };
+
+    private Listener listener;
+    private Integer storeType;
+    private String storeCode;
+    private boolean connected = false;
+    private boolean receiverRegistered = false;
+    private Map<String, Object> published;
+
+    StoreEnvironmentCache(Context context, MethodChannel channel) {
+        this.context = context.getApplicationContext();
+        this.channel = channel;
+    }
+
+    void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    int storeType() {
+        if (storeType == null) {
+            storeType = StoreEnvironment.getStoreType(context);
+            registerReceiver();
+        }
+        return storeType;
+    }
+
+    boolean hasStoreCode() {
+        return storeCode != null;
+    }
+
+    /**
+     * @return the current environment, which is also what later changes are compared against.
+     */
+    Map<String, Object> snapshot() {
+        published = build();
+        return published;
+    }
+
+    void setConnected(boolean connected) {
+        if (this.connected == connected) {
+            return;
+        }
+        this.connected = connected;
+        if (!connected) {
+            storeCode = null;
+        }
+        publish();
+    }
+
+    void setStoreCode(String storeCode) {
+        this.storeCode = storeCode;
+        publish();
+    }
+
+    void dispose() {
+        if (receiverRegistered) {
+            context.unregisterReceiver(packageReceiver);
+            receiverRegistered = false;
+        }
+        listener = null;
+        published = null;
+    }
+
+    private Map<String, Object> build() {
+        final Map<String, Object> snapshot = new HashMap<>();
+        snapshot.put("storeType", storeType());
+        snapshot.put("storeCode", storeCode);
+        snapshot.put("connected", connected);
+        snapshot.put("iapSdkVersion", BuildConfig.IAP_SDK_VERSION);
+        snapshot.put("licenseSdkVersion", BuildConfig.LICENSE_SDK_VERSION);
+        return snapshot;
+    }
+
+    private void invalidate() {
+        storeType = null;
+        storeCode = null;
+        if (listener != null) {
+            listener.onInvalidated();
+        }
+        publish();
+    }
+
+    private void publish() {
+        // Nothing was handed out yet, the first getEnvironment call returns the current state anyway.
+        if (published == null && storeType == null) {
+            return;
+        }
+        final Map<String, Object> snapshot = build();
+        if (snapshot.equals(published)) {
+            return;
+        }
+        published = snapshot;
+        if (channel != null) {
+            channel.invokeMethod("onEnvironmentChanged", snapshot);
+        }
+    }
+
+    private void registerReceiver() {
+        if (receiverRegistered) {
+            return;
+        }
+        final IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        filter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+        filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        filter.addDataScheme("package");
+        context.registerReceiver(packageReceiver, filter);
+        receiverRegistered = true;
+    }
+}
@@ -0,0 +1,41 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import android.app.Activity;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import io.flutter.plugin.common.MethodCall;
+
+@RunWith(RobolectricTestRunner.class)
+public class AuthCallHandlerImplTest {
+    private final FakeStore store = new FakeStore(new FakeStore.Config().latencyMillis(50L));
+    private final AuthCallHandlerImpl handler = new AuthCallHandlerImpl(
+            RuntimeEnvironment.getApplication(), context -> FakeSignInClient.create(store));
+
+    @Test
+    public void signInRepliesAfterTheStoreAnswers() {
+        handler.setActivity(Robolectric.buildActivity(Activity.class).get());
+
+        final RecordingResult result = new RecordingResult();
+        handler.onMethodCall(new MethodCall("launchSignInFlow", null), result);
+        assertFalse(result.isReplied());
+        PurchaseCallHandlerImplTest.idle();
+
+        assertEquals(0, result.map().get("code"));
+    }
+
+    @Test
+    public void signInWithoutActivityFails() {
+        final RecordingResult result = new RecordingResult();
+        handler.onMethodCall(new MethodCall("launchSignInFlow", null), result);
+
+        assertEquals("-1", result.errorCode);
+    }
+}
@@ -0,0 +1,75 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class BatchRunnerTest {
+    private final List<BatchRunner.Completion<String>> pending = new ArrayList<>();
+    private final List<Integer> started = new ArrayList<>();
+    private List<String> finished;
+
+    @Test
+    public void keepsAtMostMaxInFlightAndReportsInInputOrder() {
+        BatchRunner.<Integer, String>run(Arrays.asList(0, 1, 2, 3, 4), 2, (item, completion) -> {
+            started.add(item);
+            pending.add(completion);
+        }, results -> finished = results);
+
+        assertEquals(Arrays.asList(0, 1), started);
+        pending.get(1).complete("b");
+        assertEquals(Arrays.asList(0, 1, 2), started);
+        pending.get(2).complete("c");
+        pending.get(0).complete("a");
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), started);
+        pending.get(4).complete("e");
+        assertNull(finished);
+
+        pending.get(3).complete("d");
+        assertEquals(Arrays.asList("a", "b", "c", "d", "e"), finished);
+    }
+
+    @Test
+    public void synchronousCompletionsRunEveryItem() {
+        final List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            items.add(i);
+        }
+
+        BatchRunner.<Integer, String>run(items, 1, (item, completion) -> completion.complete(String.valueOf(item)),
+                results -> finished = results);
+
+        assertEquals(items.size(), finished.size());
+        assertEquals("9999", finished.get(9999));
+    }
+
+    @Test
+    public void secondCompletionIsIgnored() {
+        BatchRunner.<Integer, String>run(Arrays.asList(0, 1, 2), 1, (item, completion) -> {
+            started.add(item);
+            pending.add(completion);
+        }, results -> finished = results);
+
+        pending.get(0).complete("a");
+        pending.get(0).complete("again");
+
+        assertEquals(Arrays.asList(0, 1), started);
+        assertNull(finished);
+    }
+
+    @Test
+    public void emptyListFinishesAtOnce() {
+        BatchRunner.<Integer, String>run(Collections.emptyList(), 4, (item, completion) -> started.add(item),
+                results -> finished = results);
+
+        assertTrue(started.isEmpty());
+        assertEquals(Collections.emptyList(), finished);
+    }
+}
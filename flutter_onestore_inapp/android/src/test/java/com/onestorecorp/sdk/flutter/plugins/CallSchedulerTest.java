@@ -0,0 +1,99 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.MethodChannel;
+
+@RunWith(RobolectricTestRunner.class)
+public class CallSchedulerTest {
+    private final CallScheduler scheduler = new CallScheduler();
+    private final List<String> started = new ArrayList<>();
+    private final List<MethodChannel.Result> running = new ArrayList<>();
+
+    @Test
+    public void interactiveCallsStartWhileNormalCallsAreSaturated() {
+        scheduler.configure(2, 1, CallScheduler.DEFAULT_MAX_WAIT_MILLIS);
+        for (int i = 0; i < 5; i++) {
+            submit(CallScheduler.NORMAL, "query" + i);
+        }
+        submit(CallScheduler.INTERACTIVE, "purchase");
+
+        assertEquals(3, started.size());
+        assertEquals("purchase", started.get(2));
+        assertEquals(3, scheduler.queued());
+
+        running.get(0).success(null);
+        assertEquals("query2", started.get(3));
+    }
+
+    @Test
+    public void backgroundCallsYieldUntilTheyHaveWaitedTooLong() {
+        scheduler.configure(1, 1, 1000L);
+        submit(CallScheduler.NORMAL, "query0");
+        submit(CallScheduler.NORMAL, "query1");
+        submit(CallScheduler.BACKGROUND, "sync");
+        assertEquals(1, started.size());
+
+        ShadowLooper.idleMainLooper(1000L, TimeUnit.MILLISECONDS);
+
+        assertEquals(2, started.size());
+        assertEquals("sync", started.get(1));
+        assertEquals(1, scheduler.queued());
+    }
+
+    @Test
+    public void rejectQueuedAnswersOnlyWaitingCalls() {
+        scheduler.configure(1, 1, CallScheduler.DEFAULT_MAX_WAIT_MILLIS);
+        submit(CallScheduler.NORMAL, "query0");
+        final RecordingResult waiting = submit(CallScheduler.NORMAL, "query1");
+
+        scheduler.rejectQueued(result -> result.error("2", "unavailable", null));
+
+        assertEquals("2", waiting.errorCode);
+        assertEquals(1, started.size());
+        assertEquals(0, scheduler.queued());
+    }
+
+    @Test
+    public void queuedCallsAnsweredByTheTrackerAreDropped() {
+        scheduler.configure(1, 1, CallScheduler.DEFAULT_MAX_WAIT_MILLIS);
+        final CallTracker tracker = new CallTracker();
+        tracker.setTimeouts(1000L, null);
+        final MethodChannel.MethodCallHandler handler = tracker.track("purchase", (call, result) ->
+                scheduler.submit(CallScheduler.NORMAL, result, scheduled -> {
+                    started.add(call.method);
+                    running.add(scheduled);
+                }));
+        handler.onMethodCall(new MethodCall("query0", null), new RecordingResult());
+        final RecordingResult expired = new RecordingResult();
+        handler.onMethodCall(new MethodCall("query1", null), expired);
+        submit(CallScheduler.NORMAL, "query2");
+
+        ShadowLooper.idleMainLooper(1000L, TimeUnit.MILLISECONDS);
+        assertEquals(CallTracker.ERROR_TIMEOUT, expired.errorCode);
+        assertEquals(1, scheduler.queued());
+        running.get(0).success(null);
+
+        assertEquals(Arrays.asList("query0", "query2"), started);
+    }
+
+    private RecordingResult submit(int priority, String name) {
+        final RecordingResult result = new RecordingResult();
+        scheduler.submit(priority, result, scheduled -> {
+            started.add(name);
+            running.add(scheduled);
+        });
+        return result;
+    }
+}
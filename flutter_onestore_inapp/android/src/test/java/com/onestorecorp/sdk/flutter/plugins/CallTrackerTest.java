@@ -0,0 +1,108 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.MethodChannel;
+
+@RunWith(RobolectricTestRunner.class)
+public class CallTrackerTest {
+    private final CallTracker tracker = new CallTracker();
+    private final List<MethodChannel.Result> held = new ArrayList<>();
+    private final MethodChannel.MethodCallHandler handler =
+            tracker.track("purchase", (call, result) -> held.add(result));
+
+    @Test
+    public void silentCallTimesOutOnceAndDropsTheLateReply() {
+        final RecordingResult result = call("consumeAsync");
+
+        ShadowLooper.idleMainLooper(CallTracker.DEFAULT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        assertEquals(CallTracker.ERROR_TIMEOUT, result.errorCode);
+
+        held.get(0).success(null);
+        assertEquals(1, result.replies);
+        assertEquals(1L, tracker.stats().get("timedOut"));
+        assertEquals(1L, tracker.stats().get("lateReplies"));
+        assertTrue(tracker.pendingCalls().isEmpty());
+    }
+
+    @Test
+    public void cancelAnswersThePendingCall() {
+        final RecordingResult result = call("queryProductDetailsAsync");
+        final int callId = (Integer) tracker.pendingCalls().get(0).get("callId");
+
+        assertTrue(tracker.cancel(callId));
+        assertFalse(tracker.cancel(callId));
+
+        assertEquals(CallTracker.ERROR_CANCELLED, result.errorCode);
+        assertEquals(callId, ((Map<?, ?>) result.errorDetails).get("callId"));
+        assertEquals(1L, tracker.stats().get("cancelled"));
+    }
+
+    @Test
+    public void cancelReachesTheCallerIdAmongOverlappingCalls() {
+        final RecordingResult first = call("queryPurchasesAsync", 7);
+        final RecordingResult second = call("queryPurchasesAsync", 8);
+
+        assertTrue(tracker.cancel(8));
+
+        assertFalse(first.isReplied());
+        assertEquals(CallTracker.ERROR_CANCELLED, second.errorCode);
+        assertEquals(8, ((Map<?, ?>) second.errorDetails).get("callId"));
+        held.get(0).success(null);
+        assertEquals(1, first.replies);
+    }
+
+    @Test
+    public void pendingCallerIdIsNotReused() {
+        call("queryPurchasesAsync", 7);
+        final RecordingResult duplicate = call("queryPurchasesAsync", 7);
+
+        final int callId = (Integer) tracker.pendingCalls().get(1).get("callId");
+        assertTrue(callId < 0);
+        assertTrue(tracker.cancel(callId));
+        assertEquals(CallTracker.ERROR_CANCELLED, duplicate.errorCode);
+    }
+
+    @Test
+    public void interactiveCallsKeepTheirLongerDeadline() {
+        tracker.setTimeouts(1000L, Collections.singletonMap("purchase/queryPurchasesAsync", (Object) 0L));
+        final RecordingResult query = call("queryPurchasesAsync");
+        final RecordingResult update = call("launchUpdateOrInstallFlow");
+        final RecordingResult consume = call("consumeAsync");
+
+        ShadowLooper.idleMainLooper(1000L, TimeUnit.MILLISECONDS);
+        assertFalse(query.isReplied());
+        assertFalse(update.isReplied());
+        assertEquals(CallTracker.ERROR_TIMEOUT, consume.errorCode);
+
+        ShadowLooper.idleMainLooper(CallTracker.INTERACTIVE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        assertFalse(query.isReplied());
+        assertEquals(CallTracker.ERROR_TIMEOUT, update.errorCode);
+    }
+
+    private RecordingResult call(String method) {
+        final RecordingResult result = new RecordingResult();
+        handler.onMethodCall(new MethodCall(method, null), result);
+        return result;
+    }
+
+    private RecordingResult call(String method, int callId) {
+        final RecordingResult result = new RecordingResult();
+        handler.onMethodCall(new MethodCall(method, Collections.singletonMap("callId", callId)), result);
+        return result;
+    }
+}
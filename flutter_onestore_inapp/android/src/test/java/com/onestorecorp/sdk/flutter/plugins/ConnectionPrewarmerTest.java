@@ -0,0 +1,101 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RobolectricTestRunner.class)
+public class ConnectionPrewarmerTest {
+    private final FakeStore store = new FakeStore(new FakeStore.Config());
+    private final List<FakePurchaseClient> clients = new ArrayList<>();
+    private final Context context = RuntimeEnvironment.getApplication();
+
+    @Before
+    public void setUp() {
+        PurchaseClientRegistry.setClientBuilder((context, publicKey, listener) -> {
+            final FakePurchaseClient client = new FakePurchaseClient(store, listener);
+            clients.add(client);
+            return client.client();
+        });
+    }
+
+    @After
+    public void tearDown() {
+        ConnectionPrewarmer.reset();
+        PurchaseClientRegistry.setClientBuilder(null);
+        PurchaseCallHandlerImplTest.idle();
+    }
+
+    @Test
+    public void startsOncePerProcess() {
+        ConnectionPrewarmer.start(context, "test-key", 1000L);
+        ConnectionPrewarmer.start(context, "test-key", 1000L);
+        ShadowLooper.idleMainLooper();
+
+        assertEquals(1, clients.size());
+        assertEquals(1, clients.get(0).connections());
+        assertTrue(clients.get(0).client().isReady());
+    }
+
+    @Test
+    public void matchingKeyKeepsTheConnection() {
+        ConnectionPrewarmer.start(context, "test-key", 1000L);
+        ShadowLooper.idleMainLooper();
+
+        final PurchaseClientRegistry.SharedClient sharedClient = PurchaseClientRegistry.acquire(context, "test-key");
+        ConnectionPrewarmer.handOff();
+        ShadowLooper.idleMainLooper();
+
+        final boolean ready = clients.get(0).client().isReady();
+        PurchaseClientRegistry.release(sharedClient);
+        assertEquals(1, clients.size());
+        assertTrue(ready);
+    }
+
+    @Test
+    public void otherKeyEndsThePrewarm() {
+        ConnectionPrewarmer.start(context, "prewarm-key", 1000L);
+        ShadowLooper.idleMainLooper();
+
+        final PurchaseClientRegistry.SharedClient sharedClient = PurchaseClientRegistry.acquire(context, "test-key");
+        ConnectionPrewarmer.handOff();
+        ShadowLooper.idleMainLooper();
+
+        PurchaseClientRegistry.release(sharedClient);
+        assertEquals(1, clients.size());
+        assertFalse(clients.get(0).client().isReady());
+    }
+
+    @Test
+    public void unclaimedPrewarmIsReleasedAfterTheHold() {
+        ConnectionPrewarmer.start(context, "test-key", 1000L);
+        ShadowLooper.idleMainLooper();
+
+        ShadowLooper.idleMainLooper(999L, TimeUnit.MILLISECONDS);
+        assertTrue(clients.get(0).client().isReady());
+        ShadowLooper.idleMainLooper(1L, TimeUnit.MILLISECONDS);
+
+        assertFalse(clients.get(0).client().isReady());
+    }
+
+    @Test
+    public void applicationsThatDidNotOptInAreSkipped() {
+        ConnectionPrewarmer.start(context);
+
+        assertTrue(clients.isEmpty());
+    }
+}
@@ -0,0 +1,69 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import io.flutter.plugin.common.EventChannel;
+
+@RunWith(RobolectricTestRunner.class)
+public class ConnectionStateStreamTest {
+    private final FakeStore store = new FakeStore(new FakeStore.Config());
+    private final FakePurchaseClient client = new FakePurchaseClient(store, (iapResult, list) -> { });
+    private final ConnectionStateStream stream = new ConnectionStateStream();
+    private final List<Map<?, ?>> events = new ArrayList<>();
+
+    @Test
+    public void streamsEveryTransitionOnce() {
+        final PurchaseConnection connection = new PurchaseConnection(client::client, new PurchaseConnection.Listener() {
+            @Override
+            public void onConnected() {}
+
+            @Override
+            public void onServiceDisconnected() {}
+        }, stream);
+        connection.configure(true, PurchaseConnection.DEFAULT_MAX_PENDING_CALLS,
+                PurchaseConnection.DEFAULT_CALL_TIMEOUT_MILLIS, 10L, 10L);
+        stream.onListen(null, new RecordingSink());
+
+        connection.connect(new RecordingResult());
+        PurchaseCallHandlerImplTest.idle();
+        // A second owner of the shared connection reporting the same state is not a transition.
+        stream.onStateChanged(PurchaseConnection.State.CONNECTED, 0, PurchaseConnection.REASON_ATTACHED);
+        client.disconnect();
+        PurchaseCallHandlerImplTest.idle();
+
+        assertEquals(6, events.size());
+        assertEvent(events.get(0), "disconnected", PurchaseConnection.REASON_ENDED);
+        assertEvent(events.get(1), "connecting", PurchaseConnection.REASON_REQUESTED);
+        assertEvent(events.get(2), "connected", PurchaseConnection.REASON_SETUP_FINISHED);
+        assertEvent(events.get(3), "disconnected", PurchaseConnection.REASON_SERVICE_DISCONNECTED);
+        assertEvent(events.get(4), "connecting", PurchaseConnection.REASON_RECONNECT);
+        assertEvent(events.get(5), "connected", PurchaseConnection.REASON_SETUP_FINISHED);
+        connection.disconnect();
+    }
+
+    private static void assertEvent(Map<?, ?> event, String state, String reason) {
+        assertEquals(state, event.get("state"));
+        assertEquals(reason, event.get("reason"));
+    }
+
+    private final class RecordingSink implements EventChannel.EventSink {
+        @Override
+        public void success(Object event) {
+            events.add((Map<?, ?>) event);
+        }
+
+        @Override
+        public void error(String errorCode, String errorMessage, Object errorDetails) {}
+
+        @Override
+        public void endOfStream() {}
+    }
+}
@@ -0,0 +1,149 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.util.Base64;
+
+import com.gaa.sdk.iap.PurchaseClient;
+import com.gaa.sdk.iap.PurchaseData;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class EntitlementStoreTest {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String INAPP = PurchaseClient.ProductType.INAPP;
+    private static final String SUBS = PurchaseClient.ProductType.SUBS;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final FakeStore store = new FakeStore(new FakeStore.Config().catalogSize(4).purchaseCount(0));
+    private KeyPair keyPair;
+    private String publicKey;
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        final KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(1024);
+        keyPair = generator.generateKeyPair();
+        publicKey = Base64.encodeToString(keyPair.getPublic().getEncoded(), Base64.NO_WRAP);
+        file = new File(folder.getRoot(), "entitlements.dat");
+    }
+
+    @Test
+    public void storedPurchasesSurviveARestart() throws Exception {
+        final List<PurchaseData> purchases = Arrays.asList(signed(1), signed(2));
+        newStore().reconcile(INAPP, purchases);
+
+        assertEquals(tokensOf(purchases), tokensOf(load(newStore(), publicKey)));
+    }
+
+    @Test
+    public void missingKeyLeavesTheFileAlone() throws Exception {
+        final EntitlementStore entitlementStore = newStore();
+        entitlementStore.reconcile(INAPP, Collections.singletonList(signed(1)));
+        final long length = file.length();
+
+        assertTrue(load(entitlementStore, null).isEmpty());
+        assertTrue(load(entitlementStore, "").isEmpty());
+
+        assertEquals(length, file.length());
+        assertEquals(1, load(entitlementStore, publicKey).size());
+    }
+
+    @Test
+    public void invalidSignaturesAreDropped() throws Exception {
+        final PurchaseData valid = signed(1);
+        final PurchaseData forged = store.addPurchase(2, false);
+        newStore().reconcile(INAPP, Arrays.asList(valid, forged));
+
+        assertEquals(tokensOf(Collections.singletonList(valid)), tokensOf(load(newStore(), publicKey)));
+    }
+
+    @Test
+    public void untypedPurchaseIsKeptUntilEveryTypeMissedIt() throws Exception {
+        final EntitlementStore entitlementStore = newStore();
+        final PurchaseData updated = signed(1);
+        entitlementStore.putAll(null, Collections.singletonList(updated));
+
+        entitlementStore.reconcile(INAPP, Collections.emptyList());
+        assertEquals(1, load(entitlementStore, publicKey).size());
+
+        entitlementStore.reconcile(SUBS, Collections.emptyList());
+        assertTrue(load(entitlementStore, publicKey).isEmpty());
+    }
+
+    @Test
+    public void untypedPurchaseTakesTheTypeOfItsQuery() throws Exception {
+        final EntitlementStore entitlementStore = newStore();
+        final PurchaseData updated = signed(1);
+        entitlementStore.putAll(null, Collections.singletonList(updated));
+
+        entitlementStore.reconcile(INAPP, Collections.singletonList(updated));
+        entitlementStore.putAll(null, Collections.singletonList(updated));
+        entitlementStore.reconcile(SUBS, Collections.emptyList());
+
+        assertEquals(1, load(entitlementStore, publicKey).size());
+    }
+
+    @Test
+    public void appendsAfterATornTailAreReadBack() throws Exception {
+        newStore().reconcile(INAPP, Collections.singletonList(signed(1)));
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(new byte[] {1, 0});
+        }
+
+        newStore().putAll(INAPP, Collections.singletonList(signed(2)));
+
+        assertEquals(2, load(newStore(), publicKey).size());
+    }
+
+    private EntitlementStore newStore() {
+        final EntitlementStore entitlementStore = new EntitlementStore(file, new SignatureVerifier(), Runnable::run);
+        entitlementStore.setEnabled(this, true);
+        return entitlementStore;
+    }
+
+    private static List<PurchaseData> load(EntitlementStore entitlementStore, String key) {
+        final List<PurchaseData> loaded = new ArrayList<>();
+        entitlementStore.load(key, loaded::addAll);
+        PurchaseCallHandlerImplTest.idle();
+        return loaded;
+    }
+
+    private PurchaseData signed(int productIndex) throws GeneralSecurityException {
+        final String json = store.addPurchase(productIndex, false).getOriginalJson();
+        final Signature signature = Signature.getInstance("SHA512withRSA");
+        signature.initSign(keyPair.getPrivate());
+        signature.update(json.getBytes(UTF_8));
+        return new PurchaseData(json, Base64.encodeToString(signature.sign(), Base64.NO_WRAP), null);
+    }
+
+    private static List<String> tokensOf(List<PurchaseData> purchases) {
+        final List<String> tokens = new ArrayList<>();
+        for (PurchaseData purchase : purchases) {
+            tokens.add(purchase.getPurchaseToken());
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,67 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import com.gaa.sdk.iap.PurchaseClient;
+import com.onestore.extern.licensing.AppLicenseChecker;
+import com.onestore.extern.licensing.LicenseCheckerListener;
+
+/**
+ * An {@link AppLicenseChecker} backed by a {@link FakeStore}: grants the license after the store
+ * latency, or reports an error at the store's failure rate.
+ */
+final class FakeLicenseChecker {
+    static final String LICENSE = "{\"packageName\":\"com.onestorecorp.sdk.flutter.test\"}";
+    static final String SIGNATURE = "license-signature";
+
+    private final String license;
+    private final String signature;
+    private int checks = 0;
+    private int destroys = 0;
+
+    FakeLicenseChecker() {
+        this(LICENSE, SIGNATURE);
+    }
+
+    FakeLicenseChecker(String license, String signature) {
+        this.license = license;
+        this.signature = signature;
+    }
+
+    AppLicenseChecker create(final FakeStore store, final LicenseCheckerListener listener) {
+        final AppLicenseChecker checker = mock(AppLicenseChecker.class);
+        doAnswer(invocation -> {
+            check(store, listener);
+            return null;
+        }).when(checker).queryLicense();
+        doAnswer(invocation -> {
+            check(store, listener);
+            return null;
+        }).when(checker).strictQueryLicense();
+        doAnswer(invocation -> {
+            destroys++;
+            return null;
+        }).when(checker).destroy();
+        return checker;
+    }
+
+    int checks() {
+        return checks;
+    }
+
+    int destroys() {
+        return destroys;
+    }
+
+    private void check(final FakeStore store, final LicenseCheckerListener listener) {
+        checks++;
+        store.respond(() -> {
+            if (store.nextResult().getResponseCode() == PurchaseClient.ResponseCode.RESULT_OK) {
+                listener.granted(license, signature);
+            } else {
+                listener.error(PurchaseClient.ResponseCode.RESULT_ERROR, "Injected failure.");
+            }
+        });
+    }
+}
@@ -0,0 +1,166 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.gaa.sdk.iap.AcknowledgeParams;
+import com.gaa.sdk.iap.ConsumeParams;
+import com.gaa.sdk.iap.IapResult;
+import com.gaa.sdk.iap.ProductDetailsParams;
+import com.gaa.sdk.iap.PurchaseClient;
+import com.gaa.sdk.iap.PurchaseClientStateListener;
+import com.gaa.sdk.iap.PurchaseData;
+import com.gaa.sdk.iap.PurchasesUpdatedListener;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A {@link PurchaseClient} backed by a {@link FakeStore}.
+ *
+ * <p>Connecting succeeds after the store latency. Each call may fail or drop the connection at the
+ * store's rates; a dropped connection answers the call with RESULT_SERVICE_UNAVAILABLE and reports
+ * onServiceDisconnected, like the real service going away.
+ */
+final class FakePurchaseClient {
+    private final FakeStore store;
+    private final PurchasesUpdatedListener purchasesUpdatedListener;
+    private final PurchaseClient client = mock(PurchaseClient.class);
+
+    private PurchaseClientStateListener stateListener;
+    private boolean ready = false;
+    private int connections = 0;
+
+    FakePurchaseClient(FakeStore store, PurchasesUpdatedListener purchasesUpdatedListener) {
+        this.store = store;
+        this.purchasesUpdatedListener = purchasesUpdatedListener;
+
+        when(client.isReady()).thenAnswer(invocation -> ready);
+        doAnswer(invocation -> {
+            startConnection(invocation.getArgument(0));
+            return null;
+        }).when(client).startConnection(any());
+        doAnswer(invocation -> {
+            ready = false;
+            stateListener = null;
+            return null;
+        }).when(client).endConnection();
+        doAnswer(invocation -> {
+            consume(invocation.getArgument(0), invocation.getArgument(1));
+            return null;
+        }).when(client).consumeAsync(any(), any());
+        doAnswer(invocation -> {
+            acknowledge(invocation.getArgument(0), invocation.getArgument(1));
+            return null;
+        }).when(client).acknowledgeAsync(any(), any());
+        doAnswer(invocation -> {
+            queryPurchases(invocation.getArgument(0), invocation.getArgument(1));
+            return null;
+        }).when(client).queryPurchasesAsync(anyString(), any());
+        doAnswer(invocation -> {
+            queryProductDetails(invocation.getArgument(0), invocation.getArgument(1));
+            return null;
+        }).when(client).queryProductDetailsAsync(any(), any());
+        doAnswer(invocation -> {
+            final Object listener = invocation.getArgument(0);
+            call(listener, () -> FakeStore.deliver(listener, store.nextResult(), FakeStore.STORE_CODE));
+            return null;
+        }).when(client).getStoreInfoAsync(any());
+        when(client.launchPurchaseFlow(any(), any())).thenAnswer(invocation -> {
+            final PurchaseData purchaseData = store.addPurchase(store.randomProductIndex(), false);
+            store.respond(() -> purchasesUpdatedListener.onPurchasesUpdated(
+                    FakeStore.ok(), Collections.singletonList(purchaseData)));
+            return FakeStore.ok();
+        });
+    }
+
+    PurchaseClient client() {
+        return client;
+    }
+
+    int connections() {
+        return connections;
+    }
+
+    /**
+     * Drops the connection as if the store service died.
+     */
+    void disconnect() {
+        final PurchaseClientStateListener listener = stateListener;
+        ready = false;
+        if (listener != null) {
+            listener.onServiceDisconnected();
+        }
+    }
+
+    private void startConnection(final PurchaseClientStateListener listener) {
+        stateListener = listener;
+        store.respond(() -> {
+            if (stateListener != listener) {
+                return;
+            }
+            connections++;
+            ready = true;
+            listener.onSetupFinished(FakeStore.ok());
+        });
+    }
+
+    private void consume(final ConsumeParams params, final Object listener) {
+        call(listener, () -> {
+            final IapResult iapResult = store.nextResult();
+            if (iapResult.getResponseCode() == PurchaseClient.ResponseCode.RESULT_OK) {
+                store.consume(params.getPurchaseData());
+            }
+            FakeStore.deliver(listener, iapResult, params.getPurchaseData());
+        });
+    }
+
+    private void acknowledge(final AcknowledgeParams params, final Object listener) {
+        call(listener, () -> {
+            final IapResult iapResult = store.nextResult();
+            if (iapResult.getResponseCode() == PurchaseClient.ResponseCode.RESULT_OK) {
+                store.acknowledge(params.getPurchaseData());
+            }
+            FakeStore.deliver(listener, iapResult, params.getPurchaseData());
+        });
+    }
+
+    private void queryPurchases(final String productType, final Object listener) {
+        call(listener, () -> {
+            final IapResult iapResult = store.nextResult();
+            final List<PurchaseData> list = (iapResult.getResponseCode() == PurchaseClient.ResponseCode.RESULT_OK)
+                    ? store.purchases(productType)
+                    : null;
+            FakeStore.deliver(listener, iapResult, list);
+        });
+    }
+
+    private void queryProductDetails(final ProductDetailsParams params, final Object listener) {
+        call(listener, () -> {
+            final IapResult iapResult = store.nextResult();
+            FakeStore.deliver(listener, iapResult,
+                    (iapResult.getResponseCode() == PurchaseClient.ResponseCode.RESULT_OK)
+                            ? store.productDetails(params.getProductIdList(), params.getProductType())
+                            : null);
+        });
+    }
+
+    /**
+     * Answers {@code listener} through {@code response}, unless the store decides that the
+     * connection drops during this call.
+     */
+    private void call(final Object listener, final Runnable response) {
+        if (!ready || !store.nextDisconnect()) {
+            store.respond(response);
+            return;
+        }
+        store.respond(() -> {
+            FakeStore.deliver(listener, FakeStore.result(PurchaseClient.ResponseCode.RESULT_SERVICE_UNAVAILABLE,
+                    "Injected disconnect."), null);
+            disconnect();
+        });
+    }
+}
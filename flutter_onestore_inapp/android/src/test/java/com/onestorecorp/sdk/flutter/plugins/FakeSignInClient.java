@@ -0,0 +1,44 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import static org.mockito.Answers.RETURNS_DEFAULTS;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import com.gaa.sdk.auth.GaaSignInClient;
+import com.gaa.sdk.iap.IapResult;
+
+import java.lang.reflect.Method;
+
+/**
+ * A {@link GaaSignInClient} backed by a {@link FakeStore}: signs in after the store latency, or
+ * fails at the store's failure rate.
+ */
+final class FakeSignInClient {
+    private FakeSignInClient() {}
+
+    static GaaSignInClient create(final FakeStore store) {
+        final GaaSignInClient client = mock(GaaSignInClient.class);
+        doAnswer(invocation -> {
+            final Object listener = invocation.getArgument(1);
+            store.respond(() -> FakeStore.deliver(listener, signInResult(listener, store.nextResult())));
+            return null;
+        }).when(client).launchSignInFlow(any(), any());
+        return client;
+    }
+
+    /**
+     * Builds the sign-in result the listener expects, answering getCode and getMessage from
+     * {@code iapResult}.
+     */
+    private static Object signInResult(Object listener, IapResult iapResult) {
+        final Method callback = FakeStore.callbackMethod(listener, 1);
+        return mock(callback.getParameterTypes()[0], invocation -> {
+            switch (invocation.getMethod().getName()) {
+                case "getCode": return iapResult.getResponseCode();
+                case "getMessage": return iapResult.getMessage();
+                default: return RETURNS_DEFAULTS.answer(invocation);
+            }
+        });
+    }
+}
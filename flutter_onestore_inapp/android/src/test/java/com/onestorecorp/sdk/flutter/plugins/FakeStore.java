@@ -0,0 +1,299 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.gaa.sdk.iap.IapResult;
+import com.gaa.sdk.iap.ProductDetail;
+import com.gaa.sdk.iap.PurchaseClient;
+import com.gaa.sdk.iap.PurchaseData;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * In-memory stand-in for the ONE store service behind the fake SDK clients.
+ *
+ * <p>Holds a generated catalog and purchase history, answers on the main looper after the
+ * configured latency, and injects failures and disconnects at the configured rates. Every random
+ * decision comes from a seeded {@link Random}, so a run can be repeated exactly.
+ */
+final class FakeStore {
+    static final String STORE_CODE = "MKT_ONE";
+
+    static final class Config {
+        long latencyMillis = 0L;
+        double failureRate = 0.0;
+        double disconnectRate = 0.0;
+        int catalogSize = 100;
+        int purchaseCount = 100;
+        long seed = 1L;
+
+        Config latencyMillis(long latencyMillis) {
+            this.latencyMillis = latencyMillis;
+            return this;
+        }
+
+        Config failureRate(double failureRate) {
+            this.failureRate = failureRate;
+            return this;
+        }
+
+        Config disconnectRate(double disconnectRate) {
+            this.disconnectRate = disconnectRate;
+            return this;
+        }
+
+        Config catalogSize(int catalogSize) {
+            this.catalogSize = catalogSize;
+            return this;
+        }
+
+        Config purchaseCount(int purchaseCount) {
+            this.purchaseCount = purchaseCount;
+            return this;
+        }
+
+        Config seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+    }
+
+    private static final Map<String, IapResult> results = new HashMap<>();
+
+    final Config config;
+
+    private final Random random;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Map<String, ProductDetail> catalog = new LinkedHashMap<>();
+    private final Map<String, Map<String, PurchaseData>> purchases = new HashMap<>();
+
+    private int calls = 0;
+    private int failures = 0;
+    private int disconnects = 0;
+    private int nextPurchase = 0;
+
+    FakeStore(Config config) {
+        this.config = config;
+        this.random = new Random(config.seed);
+        purchases.put(PurchaseClient.ProductType.INAPP, new LinkedHashMap<>());
+        purchases.put(PurchaseClient.ProductType.SUBS, new LinkedHashMap<>());
+
+        for (int i = 0; i < config.catalogSize; i++) {
+            final ProductDetail productDetail = newProductDetail(i);
+            catalog.put(productDetail.getProductId(), productDetail);
+        }
+        for (int i = 0; i < config.purchaseCount; i++) {
+            addPurchase(i % Math.max(1, config.catalogSize), i % 3 == 0);
+        }
+    }
+
+    List<String> productIds(int count) {
+        final List<String> productIds = new ArrayList<>(count);
+        for (String productId : catalog.keySet()) {
+            if (productIds.size() == count) {
+                break;
+            }
+            productIds.add(productId);
+        }
+        return productIds;
+    }
+
+    synchronized List<ProductDetail> productDetails(Collection<String> productIds, String productType) {
+        final List<ProductDetail> list = new ArrayList<>();
+        for (String productId : productIds) {
+            final ProductDetail productDetail = catalog.get(productId);
+            if (productDetail != null && (PurchaseClient.ProductType.ALL.equals(productType)
+                    || productDetail.getType().equals(productType))) {
+                list.add(productDetail);
+            }
+        }
+        return list;
+    }
+
+    synchronized List<PurchaseData> purchases(String productType) {
+        final Map<String, PurchaseData> byToken = purchases.get(productType);
+        return (byToken == null) ? new ArrayList<>() : new ArrayList<>(byToken.values());
+    }
+
+    synchronized PurchaseData addPurchase(int productIndex, boolean acknowledged) {
+        final int index = nextPurchase++;
+        final String productId = productId(productIndex);
+        final boolean subscription = isSubscription(productIndex);
+        final PurchaseData purchaseData = new PurchaseData(purchaseJson(index, productId, acknowledged),
+                "signature-" + index, null);
+        purchases.get(subscription ? PurchaseClient.ProductType.SUBS : PurchaseClient.ProductType.INAPP)
+                .put(purchaseData.getPurchaseToken(), purchaseData);
+        return purchaseData;
+    }
+
+    synchronized boolean consume(PurchaseData purchaseData) {
+        return purchases.get(PurchaseClient.ProductType.INAPP).remove(purchaseData.getPurchaseToken()) != null;
+    }
+
+    synchronized boolean acknowledge(PurchaseData purchaseData) {
+        for (Map<String, PurchaseData> byToken : purchases.values()) {
+            final PurchaseData stored = byToken.get(purchaseData.getPurchaseToken());
+            if (stored != null) {
+                final int index = Integer.parseInt(stored.getOrderId().substring("ORDER".length()));
+                byToken.put(stored.getPurchaseToken(), new PurchaseData(
+                        purchaseJson(index, stored.getProductId(), true), stored.getSignature(), null));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Counts a call and decides whether it fails, without the connection being involved.
+     */
+    synchronized IapResult nextResult() {
+        calls++;
+        if (random.nextDouble() < config.failureRate) {
+            failures++;
+            return result(PurchaseClient.ResponseCode.RESULT_ERROR, "Injected failure.");
+        }
+        return ok();
+    }
+
+    synchronized boolean nextDisconnect() {
+        if (random.nextDouble() < config.disconnectRate) {
+            disconnects++;
+            return true;
+        }
+        return false;
+    }
+
+    synchronized int randomProductIndex() {
+        return random.nextInt(Math.max(1, config.catalogSize));
+    }
+
+    /**
+     * Runs {@code response} on the main looper after the configured latency.
+     */
+    void respond(Runnable response) {
+        if (config.latencyMillis <= 0L) {
+            handler.post(response);
+        } else {
+            handler.postDelayed(response, config.latencyMillis);
+        }
+    }
+
+    synchronized int calls() {
+        return calls;
+    }
+
+    synchronized int failures() {
+        return failures;
+    }
+
+    synchronized int disconnects() {
+        return disconnects;
+    }
+
+    static IapResult ok() {
+        return result(PurchaseClient.ResponseCode.RESULT_OK, "");
+    }
+
+    /**
+     * Results are cached, creating a mock per call would dominate what the load harness measures.
+     */
+    static synchronized IapResult result(int responseCode, String message) {
+        final String key = responseCode + ":" + message;
+        IapResult iapResult = results.get(key);
+        if (iapResult != null) {
+            return iapResult;
+        }
+        iapResult = mock(IapResult.class);
+        results.put(key, iapResult);
+        when(iapResult.getResponseCode()).thenReturn(responseCode);
+        when(iapResult.getMessage()).thenReturn(message);
+        when(iapResult.toJsonString()).thenReturn(
+                "{\"responseCode\":" + responseCode + ",\"message\":\"" + message + "\"}");
+        return iapResult;
+    }
+
+    /**
+     * Invokes the single callback method of an SDK listener, whatever its interface is called.
+     */
+    static void deliver(Object listener, Object... args) {
+        final Method method = callbackMethod(listener, args.length);
+        try {
+            method.invoke(listener, args);
+        } catch (IllegalAccessException e) {
+            throw new AssertionError(e);
+        } catch (InvocationTargetException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new AssertionError(cause);
+        }
+    }
+
+    static Method callbackMethod(Object listener, int parameterCount) {
+        for (Class<?> type : listener.getClass().getInterfaces()) {
+            for (Method method : type.getMethods()) {
+                if (Modifier.isAbstract(method.getModifiers()) && method.getParameterCount() == parameterCount) {
+                    return method;
+                }
+            }
+        }
+        throw new AssertionError("No callback method on " + listener.getClass());
+    }
+
+    private static ProductDetail newProductDetail(int index) {
+        final boolean subscription = isSubscription(index);
+        final String json = "{"
+                + "\"productId\":\"" + productId(index) + "\","
+                + "\"type\":\"" + (subscription ? PurchaseClient.ProductType.SUBS : PurchaseClient.ProductType.INAPP) + "\","
+                + "\"title\":\"Product " + index + "\","
+                + "\"price\":\"" + (1100 + index % 50 * 100) + "\","
+                + "\"priceCurrencyCode\":\"KRW\","
+                + "\"priceAmountMicros\":\"" + (1100 + index % 50 * 100) * 1000000L + "\","
+                + "\"subscriptionPeriodUnitCode\":\"" + (subscription ? "M" : "") + "\","
+                + "\"subscriptionPeriod\":\"" + (subscription ? "1" : "") + "\""
+                + "}";
+        try {
+            return new ProductDetail(json);
+        } catch (Exception e) {
+            throw new IllegalStateException("Invalid product detail", e);
+        }
+    }
+
+    private static String purchaseJson(int index, String productId, boolean acknowledged) {
+        return "{"
+                + "\"orderId\":\"ORDER" + index + "\","
+                + "\"packageName\":\"com.onestorecorp.sdk.flutter.test\","
+                + "\"productId\":\"" + productId + "\","
+                + "\"purchaseTime\":" + (1700000000000L + index * 1000L) + ","
+                + "\"purchaseId\":\"PURCHASE" + index + "\","
+                + "\"purchaseToken\":\"TOKEN" + String.format(Locale.US, "%08d", index) + "\","
+                + "\"purchaseState\":0,"
+                + "\"recurringState\":-1,"
+                + "\"quantity\":1,"
+                + "\"acknowledgeState\":" + (acknowledged ? 1 : 0)
+                + "}";
+    }
+
+    private static boolean isSubscription(int productIndex) {
+        return productIndex % 4 == 0;
+    }
+
+    private static String productId(int index) {
+        return "product_" + index;
+    }
+}
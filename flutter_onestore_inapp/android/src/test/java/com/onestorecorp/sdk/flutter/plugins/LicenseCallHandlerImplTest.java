@@ -0,0 +1,131 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import static org.junit.Assert.assertEquals;
+
+import android.app.Activity;
+import android.util.Base64;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+
+import java.nio.charset.Charset;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.util.HashMap;
+import java.util.Map;
+
+import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.MethodChannel;
+
+@RunWith(RobolectricTestRunner.class)
+public class LicenseCallHandlerImplTest {
+    private final FakeStore store = new FakeStore(new FakeStore.Config().latencyMillis(50L));
+    private final FakeLicenseChecker checker = new FakeLicenseChecker();
+    private RecordingMessenger messenger;
+    private LicenseCallHandlerImpl handler;
+
+    @Before
+    public void setUp() {
+        messenger = new RecordingMessenger();
+        handler = new LicenseCallHandlerImpl(
+                new MethodChannel(messenger, "com.onestorecorp.sdk.flutter.plugins/license"),
+                (activity, publicKey, listener) -> checker.create(store, listener));
+        handler.setActivity(Robolectric.buildActivity(Activity.class).get());
+    }
+
+    @After
+    public void tearDown() {
+        handler.dispose();
+    }
+
+    @Test
+    public void concurrentQueriesShareOneCheck() {
+        final RecordingResult first = call("queryLicense");
+        final RecordingResult second = call("queryLicense");
+        PurchaseCallHandlerImplTest.idle();
+
+        assertEquals(1, checker.checks());
+        assertEquals("granted", first.map().get("status"));
+        assertEquals("granted", second.map().get("status"));
+        assertEquals(1, messenger.invocations("onGranted").size());
+    }
+
+    @Test
+    public void queryWithoutActivityReportsAnError() {
+        handler.setActivity(null);
+
+        final RecordingResult result = call("queryLicense");
+
+        assertEquals("error", result.map().get("status"));
+        assertEquals(0, checker.checks());
+    }
+
+    @Test
+    public void changedKeyRecreatesTheChecker() {
+        call("queryLicense");
+        PurchaseCallHandlerImplTest.idle();
+
+        final RecordingResult result = call("queryLicense", "other-key");
+        PurchaseCallHandlerImplTest.idle();
+
+        assertEquals(1, checker.destroys());
+        assertEquals(2, checker.checks());
+        assertEquals("granted", result.map().get("status"));
+    }
+
+    @Test
+    public void replacedCheckerCallbacksAreDropped() {
+        final RecordingResult first = call("queryLicense");
+        final RecordingResult second = call("queryLicense", "other-key");
+        PurchaseCallHandlerImplTest.idle();
+
+        assertEquals("error", first.map().get("status"));
+        assertEquals("granted", second.map().get("status"));
+        assertEquals(1, messenger.invocations("onGranted").size());
+    }
+
+    @Test
+    public void cacheHitEmitsOnGrantedForEveryCall() throws Exception {
+        final KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(1024);
+        final KeyPair keyPair = generator.generateKeyPair();
+        final Signature signature = Signature.getInstance("SHA512withRSA");
+        signature.initSign(keyPair.getPrivate());
+        signature.update(FakeLicenseChecker.LICENSE.getBytes(Charset.forName("UTF-8")));
+        final FakeLicenseChecker signedChecker = new FakeLicenseChecker(FakeLicenseChecker.LICENSE,
+                Base64.encodeToString(signature.sign(), Base64.NO_WRAP));
+        handler = new LicenseCallHandlerImpl(
+                new MethodChannel(messenger, "com.onestorecorp.sdk.flutter.plugins/license"),
+                (activity, publicKey, listener) -> signedChecker.create(store, listener));
+        handler.setActivity(Robolectric.buildActivity(Activity.class).get());
+
+        final Map<String, Object> arguments = new HashMap<>();
+        arguments.put("publicKey", Base64.encodeToString(keyPair.getPublic().getEncoded(), Base64.NO_WRAP));
+        arguments.put("cacheValidityMillis", 60_000L);
+        handler.onMethodCall(new MethodCall("queryLicense", arguments), new RecordingResult());
+        PurchaseCallHandlerImplTest.idle();
+        final RecordingResult cached = new RecordingResult();
+        handler.onMethodCall(new MethodCall("queryLicense", arguments), cached);
+
+        assertEquals(1, signedChecker.checks());
+        assertEquals("granted", cached.map().get("status"));
+        assertEquals(2, messenger.invocations("onGranted").size());
+    }
+
+    private RecordingResult call(String method) {
+        return call(method, "test-key");
+    }
+
+    private RecordingResult call(String method, String publicKey) {
+        final Map<String, Object> arguments = new HashMap<>();
+        arguments.put("publicKey", publicKey);
+        final RecordingResult result = new RecordingResult();
+        handler.onMethodCall(new MethodCall(method, arguments), result);
+        return result;
+    }
+}
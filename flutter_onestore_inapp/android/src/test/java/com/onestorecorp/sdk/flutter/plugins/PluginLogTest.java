@@ -0,0 +1,88 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.util.Log;
+
+import com.gaa.sdk.iap.PurchaseClient;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.flutter.plugin.common.MethodCall;
+
+@RunWith(RobolectricTestRunner.class)
+public class PluginLogTest {
+
+    @After
+    public void tearDown() {
+        PluginLog.setCapacity(PluginLog.DEFAULT_CAPACITY);
+        PluginLog.clear();
+        PluginLog.setLevel(Log.INFO);
+    }
+
+    @Test
+    public void levelGatesMessages() {
+        PluginLog.setLevel(Log.WARN);
+        assertFalse(PluginLog.isLoggable(Log.DEBUG));
+        assertTrue(PluginLog.isLoggable(Log.ERROR));
+
+        PluginLog.setLevel(Log.DEBUG);
+        assertTrue(PluginLog.isLoggable(Log.DEBUG));
+    }
+
+    @Test
+    public void ringKeepsTheNewestEventsOldestFirst() {
+        PluginLog.setCapacity(3);
+        for (int i = 0; i < 5; i++) {
+            PluginLog.record("purchase", "call" + i, i, i * 1000L);
+        }
+
+        final List<Map<String, Object>> events = PluginLog.dump();
+
+        assertEquals(3, events.size());
+        assertEquals(Arrays.asList("call2", "call3", "call4"),
+                Arrays.asList(events.get(0).get("method"), events.get(1).get("method"), events.get(2).get("method")));
+        assertEquals(4, events.get(2).get("code"));
+        assertEquals(4L, events.get(2).get("durationMicros"));
+
+        PluginLog.clear();
+        assertTrue(PluginLog.dump().isEmpty());
+    }
+
+    @Test
+    public void replyCodes() {
+        assertEquals(PluginLog.CODE_OK, PluginLog.codeOfReply(null));
+        assertEquals(PluginLog.CODE_OK, PluginLog.codeOfReply(Collections.singletonMap("status", "granted")));
+        assertEquals(PurchaseClient.ResponseCode.RESULT_ERROR, PluginLog.codeOfReply(Collections.singletonMap(
+                "iapResult", FlutterInAppHelper.fromIapResult(PurchaseClient.ResponseCode.RESULT_ERROR, "failed"))));
+        assertEquals(1009, PluginLog.codeOf("1009"));
+        assertEquals(PluginLog.CODE_ERROR, PluginLog.codeOf("UNAVAILABLE"));
+    }
+
+    @Test
+    public void successfulReplyIsRecordedWithItsResponseCode() {
+        final InstrumentedCallHandler handler = new InstrumentedCallHandler("purchase", (call, result) -> {
+            final Map<String, Object> resultData = new HashMap<>();
+            resultData.put("iapResult", FlutterInAppHelper.fromIapResult(
+                    PurchaseClient.ResponseCode.RESULT_USER_CANCELED, "canceled"));
+            result.success(resultData);
+        }, new CallMetrics());
+
+        handler.onMethodCall(new MethodCall("launchPurchaseFlow", null), new RecordingResult());
+
+        final Map<String, Object> event = PluginLog.dump().get(0);
+        assertEquals("launchPurchaseFlow", event.get("method"));
+        assertEquals(PurchaseClient.ResponseCode.RESULT_USER_CANCELED, event.get("code"));
+    }
+}
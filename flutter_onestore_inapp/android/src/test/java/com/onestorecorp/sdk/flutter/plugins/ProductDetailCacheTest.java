@@ -0,0 +1,101 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.gaa.sdk.iap.ProductDetail;
+import com.gaa.sdk.iap.PurchaseClient;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RobolectricTestRunner.class)
+public class ProductDetailCacheTest {
+    private static final String ALL = PurchaseClient.ProductType.ALL;
+
+    private final FakeStore store = new FakeStore(new FakeStore.Config().catalogSize(8));
+    private final ProductDetailCache cache = new ProductDetailCache();
+
+    @Test
+    public void disabledUntilConfigured() {
+        cache.putAll(store.productDetails(store.productIds(4), ALL));
+        final List<ProductDetail> hits = new ArrayList<>();
+
+        assertFalse(cache.isEnabled());
+        assertEquals(store.productIds(4), cache.partition(ALL, store.productIds(4), hits));
+        assertTrue(hits.isEmpty());
+        assertEquals(0, cache.toStats().get("size"));
+    }
+
+    @Test
+    public void partialHitIsMergedInRequestOrder() {
+        cache.configure(60_000L, ProductDetailCache.DEFAULT_MAX_SIZE);
+        final List<String> productIds = store.productIds(4);
+        cache.putAll(store.productDetails(Arrays.asList(productIds.get(1), productIds.get(3)), ALL));
+
+        final List<ProductDetail> merged = new ArrayList<>();
+        final List<String> missing = cache.partition(ALL, productIds, merged);
+        assertEquals(Arrays.asList(productIds.get(0), productIds.get(2)), missing);
+
+        merged.addAll(store.productDetails(missing, ALL));
+        assertEquals(productIds, productIdsOf(ProductDetailCache.inRequestOrder(productIds, merged)));
+        assertEquals(2L, cache.toStats().get("hitCount"));
+        assertEquals(2L, cache.toStats().get("missCount"));
+    }
+
+    @Test
+    public void unrequestedDetailsFollowTheRequestedOnes() {
+        final List<String> productIds = store.productIds(3);
+        final List<ProductDetail> details = new ArrayList<>(store.productDetails(productIds, ALL));
+        Collections.reverse(details);
+
+        final List<String> ordered = productIdsOf(
+                ProductDetailCache.inRequestOrder(productIds.subList(1, 3), details));
+
+        assertEquals(Arrays.asList(productIds.get(1), productIds.get(2), productIds.get(0)), ordered);
+    }
+
+    @Test
+    public void expiredEntriesAreFetchedAgain() {
+        cache.configure(1000L, ProductDetailCache.DEFAULT_MAX_SIZE);
+        final List<String> productIds = store.productIds(2);
+        cache.putAll(store.productDetails(productIds, ALL));
+
+        ShadowLooper.idleMainLooper(1000L, TimeUnit.MILLISECONDS);
+
+        assertEquals(productIds, cache.partition(ALL, productIds, new ArrayList<>()));
+        assertEquals(0, cache.toStats().get("size"));
+    }
+
+    @Test
+    public void leastRecentlyUsedIsEvictedFirst() {
+        cache.configure(60_000L, 2);
+        final List<String> productIds = store.productIds(3);
+        cache.putAll(store.productDetails(productIds.subList(0, 2), ALL));
+        cache.partition(ALL, productIds.subList(0, 1), new ArrayList<>());
+
+        cache.putAll(store.productDetails(productIds.subList(2, 3), ALL));
+
+        final List<ProductDetail> hits = new ArrayList<>();
+        assertEquals(productIds.subList(1, 2), cache.partition(ALL, productIds, hits));
+        assertEquals(Arrays.asList(productIds.get(0), productIds.get(2)), productIdsOf(hits));
+        assertEquals(1L, cache.toStats().get("evictionCount"));
+    }
+
+    private static List<String> productIdsOf(List<ProductDetail> productDetails) {
+        final List<String> productIds = new ArrayList<>();
+        for (ProductDetail productDetail : productDetails) {
+            productIds.add(productDetail.getProductId());
+        }
+        return productIds;
+    }
+}
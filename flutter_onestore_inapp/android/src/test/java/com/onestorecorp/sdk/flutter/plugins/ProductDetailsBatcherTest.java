@@ -0,0 +1,137 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.gaa.sdk.iap.IapResult;
+import com.gaa.sdk.iap.ProductDetail;
+import com.gaa.sdk.iap.ProductDetailsListener;
+import com.gaa.sdk.iap.ProductDetailsParams;
+import com.gaa.sdk.iap.PurchaseClient;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class ProductDetailsBatcherTest {
+    private static final String TYPE = PurchaseClient.ProductType.ALL;
+
+    private final FakeStore store = new FakeStore(new FakeStore.Config().catalogSize(250).purchaseCount(0));
+    private final List<ProductDetailsParams> fetched = new ArrayList<>();
+    private final List<ProductDetailsListener> listeners = new ArrayList<>();
+    private final ProductDetailsBatcher batcher = new ProductDetailsBatcher((params, listener) -> {
+        fetched.add(params);
+        listeners.add(listener);
+        return true;
+    });
+
+    @Test
+    public void mergedRequestsAboveTheCapAreSplitAndCombined() {
+        final List<String> productIds = store.productIds(250);
+        final Waiter first = enqueue(productIds.subList(0, 150));
+        final Waiter second = enqueue(productIds.subList(100, 250));
+        ShadowLooper.idleMainLooper();
+
+        assertEquals(3, fetched.size());
+        assertEquals(ProductDetailsBatcher.MAX_PRODUCT_IDS, fetched.get(0).getProductIdList().size());
+        assertEquals(ProductDetailsBatcher.MAX_PRODUCT_IDS, fetched.get(1).getProductIdList().size());
+        assertEquals(50, fetched.get(2).getProductIdList().size());
+
+        answer(0);
+        answer(1);
+        assertNull(first.productDetails);
+        assertNull(second.productDetails);
+
+        answer(2);
+        assertEquals(150, first.productDetails.size());
+        assertEquals(productIds.get(0), first.productDetails.get(0).getProductId());
+        assertEquals(150, second.productDetails.size());
+        assertEquals(productIds.get(249), second.productDetails.get(149).getProductId());
+    }
+
+    @Test
+    public void answeredWaitersAreLeftOutOfTheFetch() {
+        final List<String> productIds = store.productIds(3);
+        final Waiter cancelled = enqueue(productIds.subList(0, 1));
+        final Waiter timedOut = enqueue(productIds.subList(1, 2));
+        final Waiter waiting = enqueue(productIds.subList(2, 3));
+        cancelled.answered = true;
+        timedOut.answered = true;
+        ShadowLooper.idleMainLooper();
+
+        assertEquals(1, fetched.size());
+        assertEquals(productIds.subList(2, 3), fetched.get(0).getProductIdList());
+
+        answer(0);
+        assertEquals(1, waiting.productDetails.size());
+        assertNull(cancelled.productDetails);
+    }
+
+    @Test
+    public void waitersAnsweredWhileTheStoreIsBusyGetNoReply() {
+        final List<String> productIds = store.productIds(2);
+        final Waiter cancelled = enqueue(productIds.subList(0, 1));
+        final Waiter waiting = enqueue(productIds);
+        ShadowLooper.idleMainLooper();
+        assertEquals(1, fetched.size());
+
+        cancelled.answered = true;
+        answer(0);
+
+        assertNull(cancelled.productDetails);
+        assertEquals(2, waiting.productDetails.size());
+    }
+
+    @Test
+    public void batchOfAnsweredWaitersIsNotFetched() {
+        final List<String> productIds = store.productIds(2);
+        final Waiter first = enqueue(productIds.subList(0, 1));
+        final Waiter second = enqueue(productIds.subList(1, 2));
+        first.answered = true;
+        second.answered = true;
+        ShadowLooper.idleMainLooper();
+
+        assertEquals(0, fetched.size());
+    }
+
+    private Waiter enqueue(List<String> productIds) {
+        final Waiter waiter = new Waiter();
+        batcher.enqueue(TYPE, new ArrayList<>(productIds), waiter, waiter);
+        return waiter;
+    }
+
+    private void answer(int index) {
+        final List<ProductDetail> list = store.productDetails(fetched.get(index).getProductIdList(), TYPE);
+        FakeStore.deliver(listeners.get(index),
+                FakeStore.result(PurchaseClient.ResponseCode.RESULT_OK, ""), list);
+    }
+
+    /**
+     * A channel call waiting for the batcher, answered elsewhere once {@code answered} is set.
+     */
+    private static final class Waiter extends RecordingResult
+            implements CallTracker.TrackedCall, ProductDetailsBatcher.Callback {
+        boolean answered = false;
+        List<ProductDetail> productDetails;
+
+        @Override
+        public boolean isAnswered() {
+            return answered;
+        }
+
+        @Override
+        public void onProductDetailsResponse(IapResult iapResult, List<ProductDetail> productDetails) {
+            this.productDetails = productDetails;
+        }
+
+        @Override
+        public void onServiceUnavailable() {
+            throw new AssertionError("The fetcher is always available.");
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import static org.junit.Assert.assertEquals;
+
+import com.gaa.sdk.iap.PurchaseClient;
+import com.gaa.sdk.iap.PurchaseData;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RunWith(RobolectricTestRunner.class)
+public class PurchaseBinaryCodecTest {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final FakeStore store = new FakeStore(new FakeStore.Config().catalogSize(4).purchaseCount(8));
+
+    @Test
+    public void purchasesDecodeToTheirFieldValues() {
+        final List<PurchaseData> purchases = store.purchases(PurchaseClient.ProductType.INAPP);
+
+        final Decoded decoded = decode(PurchaseBinaryCodec.encodePurchases(purchases, PayloadFields.PURCHASE_DATA));
+
+        assertEquals(PurchaseBinaryCodec.KIND_PURCHASE_DATA, decoded.kind);
+        assertEquals(purchases.size(), decoded.records.size());
+        for (int i = 0; i < purchases.size(); i++) {
+            final PurchaseData purchaseData = purchases.get(i);
+            final Map<String, Object> record = decoded.records.get(i);
+            assertEquals(purchaseData.getPurchaseToken(), record.get("purchaseToken"));
+            assertEquals(purchaseData.getPurchaseTime(), record.get("purchaseTime"));
+            assertEquals(purchaseData.getQuantity(), record.get("quantity"));
+            assertEquals(purchaseData.isAcknowledged(), record.get("isAcknowledged"));
+            assertEquals(purchaseData.getOriginalJson(), record.get("originalJson"));
+        }
+    }
+
+    @Test
+    public void repeatedStringsAreStoredOnce() {
+        final List<PurchaseData> purchases = store.purchases(PurchaseClient.ProductType.INAPP);
+
+        final Decoded decoded = decode(PurchaseBinaryCodec.encodePurchases(purchases,
+                PayloadFields.select(PayloadFields.PURCHASE_DATA, Arrays.asList("packageName", "purchaseToken"))));
+
+        assertEquals(Arrays.asList("packageName", "purchaseToken"), decoded.fieldNames);
+        // One shared package name plus one token per purchase.
+        assertEquals(1 + purchases.size(), decoded.strings.size());
+    }
+
+    @Test
+    public void productDetailsKeepTheirOrder() {
+        final List<String> productIds = store.productIds(4);
+
+        final Decoded decoded = decode(PurchaseBinaryCodec.encodeProductDetails(
+                store.productDetails(productIds, PurchaseClient.ProductType.ALL), PayloadFields.PRODUCT_DETAIL));
+
+        assertEquals(PurchaseBinaryCodec.KIND_PRODUCT_DETAIL, decoded.kind);
+        for (int i = 0; i < productIds.size(); i++) {
+            assertEquals(productIds.get(i), decoded.records.get(i).get("productId"));
+        }
+        assertEquals(PurchaseClient.ProductType.SUBS, decoded.records.get(0).get("productType"));
+    }
+
+    @Test
+    public void emptyListHasNoRecords() {
+        final Decoded decoded = decode(PurchaseBinaryCodec.encodePurchases(null, PayloadFields.PURCHASE_DATA));
+
+        assertEquals(PayloadFields.PURCHASE_DATA.size(), decoded.fieldNames.size());
+        assertEquals(0, decoded.records.size());
+    }
+
+    /**
+     * Reads the layout documented on {@link PurchaseBinaryCodec}, as purchase_binary_codec.dart does.
+     */
+    private static Decoded decode(byte[] bytes) {
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        final Decoded decoded = new Decoded();
+        assertEquals(PurchaseBinaryCodec.VERSION, buffer.get());
+        decoded.kind = buffer.get();
+
+        final int fieldCount = buffer.getShort();
+        final byte[] types = new byte[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            types[i] = buffer.get();
+            decoded.fieldNames.add(readString(buffer, buffer.getShort()));
+        }
+        final int stringCount = buffer.getInt();
+        for (int i = 0; i < stringCount; i++) {
+            decoded.strings.add(readString(buffer, buffer.getInt()));
+        }
+
+        final int recordCount = buffer.getInt();
+        for (int n = 0; n < recordCount; n++) {
+            final Map<String, Object> record = new HashMap<>();
+            for (int i = 0; i < fieldCount; i++) {
+                final Object value;
+                switch (types[i]) {
+                    case PayloadFields.TYPE_STRING:
+                        final int index = buffer.getInt();
+                        value = (index < 0) ? null : decoded.strings.get(index);
+                        break;
+                    case PayloadFields.TYPE_INT32: value = buffer.getInt(); break;
+                    case PayloadFields.TYPE_INT64: value = buffer.getLong(); break;
+                    default: value = buffer.get() != 0; break;
+                }
+                record.put(decoded.fieldNames.get(i), value);
+            }
+            decoded.records.add(record);
+        }
+        assertEquals(0, buffer.remaining());
+        return decoded;
+    }
+
+    private static String readString(ByteBuffer buffer, int length) {
+        final byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static final class Decoded {
+        byte kind;
+        final List<String> fieldNames = new ArrayList<>();
+        final List<String> strings = new ArrayList<>();
+        final List<Map<String, Object>> records = new ArrayList<>();
+    }
+}
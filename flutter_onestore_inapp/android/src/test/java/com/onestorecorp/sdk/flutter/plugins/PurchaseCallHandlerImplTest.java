@@ -0,0 +1,300 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Activity;
+import android.util.Base64;
+
+import com.gaa.sdk.iap.PurchaseClient;
+import com.gaa.sdk.iap.PurchaseData;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.security.KeyPairGenerator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.MethodChannel;
+
+@RunWith(RobolectricTestRunner.class)
+public class PurchaseCallHandlerImplTest {
+    private FakeStore store;
+    private final List<FakePurchaseClient> clients = new ArrayList<>();
+    private RecordingMessenger messenger;
+    private PurchaseCallHandlerImpl handler;
+
+    @Before
+    public void setUp() {
+        store = new FakeStore(new FakeStore.Config().catalogSize(40).purchaseCount(30));
+        PurchaseClientRegistry.setClientBuilder((context, publicKey, listener) -> {
+            final FakePurchaseClient client = new FakePurchaseClient(store, listener);
+            clients.add(client);
+            return client.client();
+        });
+        messenger = new RecordingMessenger();
+        handler = new PurchaseCallHandlerImpl(RuntimeEnvironment.getApplication(),
+                new MethodChannel(messenger, "com.onestorecorp.sdk.flutter.plugins/purchase"));
+    }
+
+    @After
+    public void tearDown() {
+        handler.dispose();
+        PurchaseClientRegistry.setClientBuilder(null);
+        idle();
+    }
+
+    @Test
+    public void queryPurchasesReturnsTheStoreHistory() {
+        initialize(new HashMap<>());
+        assertEquals(PurchaseClient.ResponseCode.RESULT_OK, connect().responseCode());
+
+        final RecordingResult result = call("queryPurchasesAsync", productType(PurchaseClient.ProductType.INAPP));
+        idle();
+
+        assertEquals(PurchaseClient.ResponseCode.RESULT_OK, result.responseCode());
+        assertEquals(store.purchases(PurchaseClient.ProductType.INAPP).size(),
+                ((List<?>) result.map().get("purchasesList")).size());
+    }
+
+    @Test
+    public void concurrentQueriesShareOneStoreCall() {
+        initialize(new HashMap<>());
+        connect();
+        final int callsBefore = store.calls();
+
+        final RecordingResult first = call("queryPurchasesAsync", productType(PurchaseClient.ProductType.INAPP));
+        final RecordingResult second = call("queryPurchasesAsync", productType(PurchaseClient.ProductType.INAPP));
+        idle();
+
+        assertEquals(1, store.calls() - callsBefore);
+        assertEquals(1, first.replies);
+        assertEquals(1, second.replies);
+    }
+
+    @Test
+    public void batchedProductQueriesAreNotLimitedBySchedulerSlots() {
+        final Map<String, Object> options = new HashMap<>();
+        options.put("normalConcurrency", 1);
+        initialize(options);
+        connect();
+        final int callsBefore = store.calls();
+
+        final List<RecordingResult> results = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            final Map<String, Object> arguments = productType(PurchaseClient.ProductType.INAPP);
+            arguments.put("productIds", store.productIds(i + 1).subList(i, i + 1));
+            results.add(call("queryProductDetailsAsync", arguments));
+        }
+        idle();
+
+        assertEquals(1, store.calls() - callsBefore);
+        for (RecordingResult result : results) {
+            assertEquals(PurchaseClient.ResponseCode.RESULT_OK, result.responseCode());
+        }
+    }
+
+    @Test
+    public void backgroundProductQueriesWaitBehindInteractiveCalls() {
+        store = new FakeStore(new FakeStore.Config().catalogSize(40).purchaseCount(30).latencyMillis(100L));
+        final Map<String, Object> options = new HashMap<>();
+        options.put("backgroundMaxWaitMillis", 1000L);
+        initialize(options);
+        connect();
+
+        final Map<String, Object> purchases = productType(PurchaseClient.ProductType.INAPP);
+        purchases.put("priority", "interactive");
+        final RecordingResult interactive = call("queryPurchasesAsync", purchases);
+        final Map<String, Object> products = productType(PurchaseClient.ProductType.INAPP);
+        products.put("productIds", store.productIds(2));
+        products.put("priority", "background");
+        final RecordingResult background = call("queryProductDetailsAsync", products);
+
+        ShadowLooper.idleMainLooper(100L, TimeUnit.MILLISECONDS);
+        assertTrue(interactive.isReplied());
+        assertFalse(background.isReplied());
+
+        idle();
+        assertEquals(PurchaseClient.ResponseCode.RESULT_OK, background.responseCode());
+    }
+
+    @Test
+    public void deltaRepliesCarryTheVerifiedFlagsOfTheirChanges() throws Exception {
+        final KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(1024);
+        final Map<String, Object> options = new HashMap<>();
+        options.put("publicKey", Base64.encodeToString(
+                generator.generateKeyPair().getPublic().getEncoded(), Base64.NO_WRAP));
+        initialize(options);
+        connect();
+        final Map<String, Object> arguments = productType(PurchaseClient.ProductType.INAPP);
+        arguments.put("sinceVersion", -1L);
+        final RecordingResult first = call("queryPurchasesAsync", arguments);
+        idle();
+
+        store.addPurchase(1, false);
+        arguments.put("sinceVersion", first.map().get("version"));
+        final RecordingResult delta = call("queryPurchasesAsync", arguments);
+        idle();
+
+        assertEquals(false, delta.map().get("full"));
+        assertEquals(1, ((List<?>) delta.map().get("added")).size());
+        // The fake store does not sign its purchases.
+        assertEquals(Collections.singletonList(false), delta.map().get("addedVerified"));
+        assertEquals(Collections.emptyList(), delta.map().get("changedVerified"));
+    }
+
+    @Test
+    public void parkedCallsRunAfterAnInjectedDisconnect() {
+        final Map<String, Object> options = new HashMap<>();
+        options.put("autoReconnect", true);
+        initialize(options);
+        connect();
+
+        clients.get(0).disconnect();
+        final RecordingResult result = call("getStoreInfoAsync", null);
+        assertFalse(result.isReplied());
+        idle();
+
+        assertEquals(PurchaseClient.ResponseCode.RESULT_OK, result.responseCode());
+        assertEquals(FakeStore.STORE_CODE, result.map().get("storeCode"));
+        assertEquals(2, clients.get(0).connections());
+        assertEquals(1, messenger.invocations("onServiceDisconnected").size());
+    }
+
+    @Test
+    public void defaultInitializeOfAnotherEngineKeepsAutoReconnect() {
+        final Map<String, Object> options = new HashMap<>();
+        options.put("autoReconnect", true);
+        initialize(options);
+        connect();
+
+        final PurchaseCallHandlerImpl other = new PurchaseCallHandlerImpl(RuntimeEnvironment.getApplication(),
+                new MethodChannel(messenger, "com.onestorecorp.sdk.flutter.plugins/purchase"));
+        try {
+            initialize(other, new HashMap<>());
+            clients.get(0).disconnect();
+            idle();
+
+            assertEquals(1, clients.size());
+            assertEquals(2, clients.get(0).connections());
+        } finally {
+            other.dispose();
+        }
+    }
+
+    @Test
+    public void consumeBatchReportsEveryPurchase() {
+        initialize(new HashMap<>());
+        connect();
+        final List<PurchaseData> owned = store.purchases(PurchaseClient.ProductType.INAPP);
+
+        final List<Map<String, Object>> purchases = new ArrayList<>();
+        for (PurchaseData purchaseData : owned) {
+            final Map<String, Object> purchase = new HashMap<>();
+            purchase.put("originalJson", purchaseData.getOriginalJson());
+            purchase.put("signature", purchaseData.getSignature());
+            purchases.add(purchase);
+        }
+        final Map<String, Object> arguments = new HashMap<>();
+        arguments.put("purchases", purchases);
+        final RecordingResult result = call("consumeBatch", arguments);
+        idle();
+
+        assertEquals(owned.size(), ((List<?>) result.map().get("results")).size());
+        assertTrue(store.purchases(PurchaseClient.ProductType.INAPP).isEmpty());
+    }
+
+    @Test
+    public void defaultInitializeOfAnotherEngineKeepsTheSnapshot() {
+        final EntitlementStore entitlementStore = EntitlementStore.getInstance(RuntimeEnvironment.getApplication());
+        final Map<String, Object> options = new HashMap<>();
+        options.put("entitlementSnapshot", true);
+        initialize(options);
+
+        final PurchaseCallHandlerImpl other = new PurchaseCallHandlerImpl(RuntimeEnvironment.getApplication(),
+                new MethodChannel(messenger, "com.onestorecorp.sdk.flutter.plugins/purchase"));
+        try {
+            initialize(other, new HashMap<>());
+            assertTrue(entitlementStore.isEnabled());
+        } finally {
+            other.dispose();
+        }
+        assertTrue(entitlementStore.isEnabled());
+
+        initialize(new HashMap<>());
+        assertFalse(entitlementStore.isEnabled());
+    }
+
+    @Test
+    public void purchaseUpdatesWaitForTheReadySignal() {
+        initialize(new HashMap<>());
+        connect();
+        handler.setActivity(Robolectric.buildActivity(Activity.class).get());
+
+        final Map<String, Object> arguments = new HashMap<>();
+        arguments.put("productId", "product_1");
+        arguments.put("productType", PurchaseClient.ProductType.INAPP);
+        call("launchPurchaseFlow", arguments);
+        call("launchPurchaseFlow", arguments);
+        idle();
+        assertTrue(messenger.invocations("onPurchasesUpdatedBatch").isEmpty());
+
+        call("purchasesUpdatedReady", null);
+        idle();
+
+        final List<Object> batches = messenger.invocations("onPurchasesUpdatedBatch");
+        assertEquals(1, batches.size());
+        assertEquals(2, ((List<?>) ((Map<?, ?>) batches.get(0)).get("events")).size());
+    }
+
+    private void initialize(Map<String, Object> options) {
+        initialize(handler, options);
+    }
+
+    private static void initialize(PurchaseCallHandlerImpl target, Map<String, Object> options) {
+        final Map<String, Object> arguments = new HashMap<>(options);
+        if (!arguments.containsKey("publicKey")) {
+            arguments.put("publicKey", "test-key");
+        }
+        arguments.put("marshalOffMainThread", false);
+        target.onMethodCall(new MethodCall("initialize", arguments), new RecordingResult());
+    }
+
+    private RecordingResult connect() {
+        final Map<String, Object> arguments = new HashMap<>();
+        arguments.put("handle", 1);
+        final RecordingResult result = call("startConnection", arguments);
+        idle();
+        return result;
+    }
+
+    private RecordingResult call(String method, Object arguments) {
+        final RecordingResult result = new RecordingResult();
+        handler.onMethodCall(new MethodCall(method, arguments), result);
+        return result;
+    }
+
+    private static Map<String, Object> productType(String productType) {
+        final Map<String, Object> arguments = new HashMap<>();
+        arguments.put("productType", productType);
+        return arguments;
+    }
+
+    static void idle() {
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+    }
+}
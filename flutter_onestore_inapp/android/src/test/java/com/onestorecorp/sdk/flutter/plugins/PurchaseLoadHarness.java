@@ -0,0 +1,224 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import static org.junit.Assert.assertEquals;
+
+import com.gaa.sdk.iap.PurchaseClient;
+import com.gaa.sdk.iap.PurchaseData;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.MethodChannel;
+
+/**
+ * Drives a mixed purchase channel load through {@link PurchaseCallHandlerImpl} against a
+ * {@link FakeStore}, and reports throughput, latency percentiles and allocation per call.
+ *
+ * <p>Skipped unless {@code -Donestore.load=true}. Tune with {@code onestore.load.calls},
+ * {@code .catalog}, {@code .purchases}, {@code .concurrency}, {@code .failureRate},
+ * {@code .disconnectRate}, {@code .latencyMillis} and {@code .seed}. Store latency runs in the
+ * paused looper's virtual time, so the reported latency is the plugin's own processing time for a
+ * wave of {@code concurrency} calls. The report is also written to
+ * {@code build/onestore-load/report.json}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class PurchaseLoadHarness {
+    private static final int PRODUCT_DETAILS_PER_CALL = 50;
+
+    private PurchaseCallHandlerImpl handler;
+
+    @After
+    public void tearDown() {
+        if (handler != null) {
+            handler.dispose();
+        }
+        PurchaseClientRegistry.setClientBuilder(null);
+    }
+
+    @Test
+    public void mixedLoad() throws IOException {
+        Assume.assumeTrue(Boolean.getBoolean("onestore.load"));
+
+        final int calls = Integer.getInteger("onestore.load.calls", 20000);
+        final int concurrency = Math.max(1, Integer.getInteger("onestore.load.concurrency", 64));
+        final FakeStore store = new FakeStore(new FakeStore.Config()
+                .catalogSize(Integer.getInteger("onestore.load.catalog", 5000))
+                .purchaseCount(Integer.getInteger("onestore.load.purchases", 5000))
+                .failureRate(doubleProperty("onestore.load.failureRate", 0.0))
+                .disconnectRate(doubleProperty("onestore.load.disconnectRate", 0.0))
+                .latencyMillis(Long.getLong("onestore.load.latencyMillis", 0L))
+                .seed(Long.getLong("onestore.load.seed", 1L)));
+
+        PurchaseClientRegistry.setClientBuilder((context, publicKey, listener) ->
+                new FakePurchaseClient(store, listener).client());
+        handler = new PurchaseCallHandlerImpl(RuntimeEnvironment.getApplication(),
+                new MethodChannel(new RecordingMessenger(), "com.onestorecorp.sdk.flutter.plugins/purchase"));
+
+        final Map<String, Object> options = new HashMap<>();
+        options.put("publicKey", "load-key");
+        options.put("autoReconnect", true);
+        options.put("marshalOffMainThread", false);
+        handler.onMethodCall(new MethodCall("initialize", options), new RecordingResult());
+        handler.onMethodCall(new MethodCall("purchasesUpdatedReady", null), new RecordingResult());
+        handler.onMethodCall(new MethodCall("startConnection", new HashMap<>()), new RecordingResult());
+        PurchaseCallHandlerImplTest.idle();
+
+        final List<MethodCall> workload = workload(store, calls);
+        final long[] latencies = new long[calls];
+        final Map<String, int[]> errorsByMethod = new HashMap<>();
+        final List<RecordingResult> wave = new ArrayList<>(concurrency);
+
+        final long allocatedBefore = allocatedBytes();
+        final long startedAt = System.nanoTime();
+        int issued = 0;
+        while (issued < calls) {
+            wave.clear();
+            final int waveStart = issued;
+            for (; issued < calls && wave.size() < concurrency; issued++) {
+                final RecordingResult result = new RecordingResult();
+                wave.add(result);
+                handler.onMethodCall(workload.get(issued), result);
+            }
+            PurchaseCallHandlerImplTest.idle();
+            for (int i = 0; i < wave.size(); i++) {
+                final RecordingResult result = wave.get(i);
+                assertEquals("Every call replies exactly once", 1, result.replies);
+                latencies[waveStart + i] = result.repliedAt - result.startedAt;
+                if (isError(result)) {
+                    final String method = workload.get(waveStart + i).method;
+                    final int[] count = errorsByMethod.get(method);
+                    if (count == null) {
+                        errorsByMethod.put(method, new int[] {1});
+                    } else {
+                        count[0]++;
+                    }
+                }
+            }
+        }
+        final long elapsed = System.nanoTime() - startedAt;
+        final long allocated = (allocatedBefore < 0L) ? -1L : allocatedBytes() - allocatedBefore;
+
+        Arrays.sort(latencies);
+        final StringBuilder report = new StringBuilder("{");
+        field(report, "calls", calls);
+        field(report, "concurrency", concurrency);
+        field(report, "catalog", store.config.catalogSize);
+        field(report, "purchases", store.config.purchaseCount);
+        field(report, "storeCalls", store.calls());
+        field(report, "injectedFailures", store.failures());
+        field(report, "injectedDisconnects", store.disconnects());
+        field(report, "elapsedMillis", elapsed / 1000000L);
+        field(report, "callsPerSecond", Math.round(calls * 1e9 / Math.max(1L, elapsed)));
+        field(report, "p50Micros", percentile(latencies, 0.50) / 1000L);
+        field(report, "p90Micros", percentile(latencies, 0.90) / 1000L);
+        field(report, "p99Micros", percentile(latencies, 0.99) / 1000L);
+        field(report, "maxMicros", latencies[latencies.length - 1] / 1000L);
+        field(report, "bytesPerCall", (allocated < 0L) ? -1L : allocated / calls);
+        report.append("\"errors\":{");
+        for (Map.Entry<String, int[]> entry : errorsByMethod.entrySet()) {
+            field(report, entry.getKey(), entry.getValue()[0]);
+        }
+        trimComma(report).append("}}");
+
+        System.out.println("onestore load report: " + report);
+        final File file = new File("build/onestore-load/report.json");
+        file.getParentFile().mkdirs();
+        try (Writer writer = new FileWriter(file)) {
+            writer.write(report.toString());
+        }
+    }
+
+    /**
+     * A seeded mix of the calls an app makes most: purchase history for both product types,
+     * product details pages, store info and acknowledgements.
+     */
+    private static List<MethodCall> workload(FakeStore store, int calls) {
+        final Random random = new Random(store.config.seed);
+        final List<String> productIds = store.productIds(store.config.catalogSize);
+        final List<PurchaseData> owned = store.purchases(PurchaseClient.ProductType.INAPP);
+        final List<MethodCall> workload = new ArrayList<>(calls);
+        for (int i = 0; i < calls; i++) {
+            final Map<String, Object> arguments = new HashMap<>();
+            final int kind = random.nextInt(10);
+            final String method;
+            if (kind < 3) {
+                method = "queryPurchasesAsync";
+                arguments.put("productType", PurchaseClient.ProductType.INAPP);
+            } else if (kind < 4) {
+                method = "queryPurchasesAsync";
+                arguments.put("productType", PurchaseClient.ProductType.SUBS);
+            } else if (kind < 7 && !productIds.isEmpty()) {
+                method = "queryProductDetailsAsync";
+                final int from = random.nextInt(productIds.size());
+                arguments.put("productIds", new ArrayList<>(productIds.subList(
+                        from, Math.min(productIds.size(), from + PRODUCT_DETAILS_PER_CALL))));
+                arguments.put("productType", PurchaseClient.ProductType.ALL);
+            } else if (kind < 8 || owned.isEmpty()) {
+                method = "getStoreInfoAsync";
+            } else {
+                method = "acknowledgeAsync";
+                final PurchaseData purchaseData = owned.get(random.nextInt(owned.size()));
+                arguments.put("originalJson", purchaseData.getOriginalJson());
+                arguments.put("signature", purchaseData.getSignature());
+            }
+            workload.add(new MethodCall(method, arguments));
+        }
+        return workload;
+    }
+
+    private static boolean isError(RecordingResult result) {
+        if (result.errorCode != null || result.notImplemented) {
+            return true;
+        }
+        return result.value instanceof Map
+                && result.map().get("iapResult") instanceof Map
+                && result.responseCode() != PurchaseClient.ResponseCode.RESULT_OK;
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        final int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static long allocatedBytes() {
+        final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1L;
+    }
+
+    private static double doubleProperty(String key, double defaultValue) {
+        final String value = System.getProperty(key);
+        return (value == null) ? defaultValue : Double.parseDouble(value);
+    }
+
+    private static void field(StringBuilder report, String key, long value) {
+        report.append(String.format(Locale.US, "\"%s\":%d,", key, value));
+    }
+
+    private static StringBuilder trimComma(StringBuilder report) {
+        if (report.charAt(report.length() - 1) == ',') {
+            report.setLength(report.length() - 1);
+        }
+        return report;
+    }
+}
@@ -0,0 +1,134 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.gaa.sdk.iap.IapResult;
+import com.gaa.sdk.iap.PurchaseClient;
+import com.gaa.sdk.iap.PurchaseData;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RunWith(RobolectricTestRunner.class)
+public class PurchasePolicyTest {
+    private static final String INAPP = PurchaseClient.ProductType.INAPP;
+    private static final String SUBS = PurchaseClient.ProductType.SUBS;
+    private static final Map<String, String> NO_TYPES = Collections.emptyMap();
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final FakeStore store = new FakeStore(new FakeStore.Config().catalogSize(4).purchaseCount(0));
+
+    @Test
+    public void unknownArgumentsYieldNone() {
+        assertTrue(PurchasePolicy.fromArguments(null).isNone());
+        assertTrue(PurchasePolicy.fromArguments(policy("refund", Collections.emptyMap())).isNone());
+    }
+
+    @Test
+    public void productEntryOverridesTheDefault() {
+        final PurchaseData consumable = store.addPurchase(1, false);
+        final PurchaseData other = store.addPurchase(2, false);
+        final PurchasePolicy policy = PurchasePolicy.fromArguments(policy(PurchasePolicy.ACTION_ACKNOWLEDGE,
+                Collections.singletonMap(consumable.getProductId(), PurchasePolicy.ACTION_CONSUME)));
+
+        assertEquals(PurchasePolicy.ACTION_CONSUME, policy.actionFor(consumable, NO_TYPES));
+        assertEquals(PurchasePolicy.ACTION_ACKNOWLEDGE, policy.actionFor(other, NO_TYPES));
+    }
+
+    @Test
+    public void acknowledgedPurchasesAreStillConsumed() {
+        final PurchaseData acknowledged = store.addPurchase(1, true);
+
+        assertEquals(PurchasePolicy.ACTION_CONSUME, PurchasePolicy.fromArguments(
+                policy(PurchasePolicy.ACTION_CONSUME, Collections.emptyMap())).actionFor(acknowledged, NO_TYPES));
+        assertEquals(PurchasePolicy.ACTION_NONE, PurchasePolicy.fromArguments(
+                policy(PurchasePolicy.ACTION_ACKNOWLEDGE, Collections.emptyMap())).actionFor(acknowledged, NO_TYPES));
+    }
+
+    @Test
+    public void onlyPurchasedStateIsActedOn() {
+        final String json = store.addPurchase(1, false).getOriginalJson().replace(
+                "\"purchaseState\":0", "\"purchaseState\":1");
+        final PurchaseData cancelled = new PurchaseData(json, "signature", null);
+
+        assertEquals(PurchasePolicy.ACTION_NONE, PurchasePolicy.fromArguments(
+                policy(PurchasePolicy.ACTION_CONSUME, Collections.emptyMap())).actionFor(cancelled, NO_TYPES));
+    }
+
+    @Test
+    public void applyRunsTheActionOfEachSelectedPurchase() {
+        final PurchaseData toConsume = store.addPurchase(1, true);
+        final PurchaseData toAcknowledge = store.addPurchase(2, false);
+        final PurchaseData done = store.addPurchase(3, true);
+        final PurchasePolicy policy = PurchasePolicy.fromArguments(policy(PurchasePolicy.ACTION_ACKNOWLEDGE,
+                Collections.singletonMap(toConsume.getProductId(), PurchasePolicy.ACTION_CONSUME)));
+        final List<PurchaseData> selected = policy.select(Arrays.asList(toConsume, toAcknowledge, done), NO_TYPES);
+        assertEquals(Arrays.asList(toConsume, toAcknowledge), selected);
+
+        final List<IapResult> results = new ArrayList<>();
+        policy.apply(new FakePurchaseClient(store, (iapResult, list) -> { }).client(),
+                new EntitlementStore(new File(folder.getRoot(), "entitlements.dat"), new SignatureVerifier(),
+                        Runnable::run),
+                selected, NO_TYPES, results::addAll);
+        PurchaseCallHandlerImplTest.idle();
+
+        assertEquals(2, results.size());
+        final List<String> remaining = new ArrayList<>();
+        for (PurchaseData purchaseData : store.purchases(INAPP)) {
+            remaining.add(purchaseData.getPurchaseToken());
+            if (purchaseData.getPurchaseToken().equals(toAcknowledge.getPurchaseToken())) {
+                assertTrue(purchaseData.isAcknowledged());
+            }
+        }
+        assertEquals(Arrays.asList(toAcknowledge.getPurchaseToken(), done.getPurchaseToken()), remaining);
+    }
+
+    @Test
+    public void subscriptionsAreAcknowledgedInsteadOfConsumed() {
+        final PurchaseData subscription = store.addPurchase(0, false);
+        final PurchaseData acknowledged = store.addPurchase(4, true);
+        final Map<String, String> productTypes = new HashMap<>();
+        productTypes.put(subscription.getPurchaseToken(), SUBS);
+        productTypes.put(acknowledged.getPurchaseToken(), SUBS);
+        final PurchasePolicy policy = PurchasePolicy.fromArguments(
+                policy(PurchasePolicy.ACTION_CONSUME, Collections.emptyMap()));
+
+        assertEquals(PurchasePolicy.ACTION_ACKNOWLEDGE, policy.actionFor(subscription, productTypes));
+        assertEquals(PurchasePolicy.ACTION_NONE, policy.actionFor(acknowledged, productTypes));
+        final List<PurchaseData> selected = policy.select(Arrays.asList(subscription, acknowledged), productTypes);
+        assertEquals(Collections.singletonList(subscription), selected);
+
+        final List<IapResult> results = new ArrayList<>();
+        policy.apply(new FakePurchaseClient(store, (iapResult, list) -> { }).client(),
+                new EntitlementStore(new File(folder.getRoot(), "entitlements.dat"), new SignatureVerifier(),
+                        Runnable::run),
+                selected, productTypes, results::addAll);
+        PurchaseCallHandlerImplTest.idle();
+
+        assertEquals(PurchaseClient.ResponseCode.RESULT_OK, results.get(0).getResponseCode());
+        final List<PurchaseData> subscriptions = store.purchases(SUBS);
+        assertEquals(2, subscriptions.size());
+        assertTrue(subscriptions.get(0).isAcknowledged());
+    }
+
+    private static Map<String, Object> policy(String defaultAction, Map<String, String> productActions) {
+        final Map<String, Object> arguments = new HashMap<>();
+        arguments.put("defaultAction", defaultAction);
+        arguments.put("productActions", productActions);
+        return arguments;
+    }
+}
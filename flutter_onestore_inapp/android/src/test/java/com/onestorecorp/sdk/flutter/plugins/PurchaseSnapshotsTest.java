@@ -0,0 +1,95 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.gaa.sdk.iap.PurchaseClient;
+import com.gaa.sdk.iap.PurchaseData;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class PurchaseSnapshotsTest {
+    private static final String INAPP = PurchaseClient.ProductType.INAPP;
+
+    private final FakeStore store = new FakeStore(new FakeStore.Config().catalogSize(4).purchaseCount(6));
+    private final PurchaseSnapshots snapshots = new PurchaseSnapshots();
+
+    @Test
+    public void unknownVersionFallsBackToFullSnapshot() {
+        assertNull(snapshots.deltaSince(INAPP, 1L));
+        assertEquals(-1L, snapshots.versionOf(INAPP));
+
+        final long version = snapshots.update(INAPP, store.purchases(INAPP));
+
+        assertEquals(version, snapshots.versionOf(INAPP));
+        assertNull(snapshots.deltaSince(INAPP, version - 1L));
+    }
+
+    @Test
+    public void sameVersionHasNoChanges() {
+        final long version = snapshots.update(INAPP, store.purchases(INAPP));
+
+        final PurchaseSnapshots.Delta delta = snapshots.deltaSince(INAPP, version);
+
+        assertEquals(version, delta.version);
+        assertTrue(delta.added.isEmpty());
+        assertTrue(delta.changed.isEmpty());
+        assertTrue(delta.removed.isEmpty());
+    }
+
+    @Test
+    public void unchangedListKeepsTheVersion() {
+        final long version = snapshots.update(INAPP, store.purchases(INAPP));
+
+        assertEquals(version, snapshots.update(INAPP, store.purchases(INAPP)));
+    }
+
+    @Test
+    public void previousVersionReceivesTheLastStep() {
+        final List<PurchaseData> before = store.purchases(INAPP);
+        final long version = snapshots.update(INAPP, before);
+
+        final PurchaseData consumed = before.get(0);
+        final PurchaseData acknowledged = before.get(1);
+        store.consume(consumed);
+        store.acknowledge(acknowledged);
+        final PurchaseData added = store.addPurchase(1, false);
+        final long next = snapshots.update(INAPP, store.purchases(INAPP));
+
+        final PurchaseSnapshots.Delta delta = snapshots.deltaSince(INAPP, version);
+        assertNotEquals(version, next);
+        assertEquals(next, delta.version);
+        assertEquals(Collections.singletonList(added.getPurchaseToken()), tokensOf(delta.added));
+        assertEquals(Collections.singletonList(acknowledged.getPurchaseToken()), tokensOf(delta.changed));
+        assertEquals(Collections.singletonList(consumed.getPurchaseToken()), delta.removed);
+        // Only the most recent step is kept.
+        snapshots.update(INAPP, Collections.emptyList());
+        assertNull(snapshots.deltaSince(INAPP, version));
+    }
+
+    @Test
+    public void clearForgetsEveryVersion() {
+        final long version = snapshots.update(INAPP, store.purchases(INAPP));
+
+        snapshots.clear();
+
+        assertNull(snapshots.deltaSince(INAPP, version));
+    }
+
+    private static List<String> tokensOf(List<PurchaseData> purchases) {
+        final List<String> tokens = new ArrayList<>();
+        for (PurchaseData purchase : purchases) {
+            tokens.add(purchase.getPurchaseToken());
+        }
+        return tokens;
+    }
+}
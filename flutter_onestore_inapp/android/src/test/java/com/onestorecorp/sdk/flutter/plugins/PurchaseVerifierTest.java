@@ -0,0 +1,64 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import android.util.Base64;
+
+import com.gaa.sdk.iap.PurchaseData;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class PurchaseVerifierTest {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Test
+    public void reportsEachPurchaseInListOrderAcrossChunks() throws Exception {
+        final KeyPair keyPair = newKeyPair();
+        final String publicKey = Base64.encodeToString(keyPair.getPublic().getEncoded(), Base64.NO_WRAP);
+        final List<PurchaseData> purchases = new ArrayList<>();
+        final List<Boolean> expected = new ArrayList<>();
+        for (int i = 0; i < PurchaseVerifier.MIN_CHUNK_SIZE * 5; i++) {
+            final String json = "{\"orderId\":\"ORDER" + i + "\",\"purchaseToken\":\"TOKEN" + i + "\"}";
+            // Every seventh purchase carries the signature of a different payload.
+            final boolean valid = i % 7 != 3;
+            purchases.add(new PurchaseData(json, sign(keyPair, valid ? json : json + " "), null));
+            expected.add(valid);
+        }
+
+        assertEquals(expected, new PurchaseVerifier(4).verify(publicKey, purchases));
+        assertEquals(expected, new PurchaseVerifier(1).verify(publicKey, purchases));
+    }
+
+    @Test
+    public void unusableKeyReportsNothing() {
+        final List<PurchaseData> purchases = Collections.emptyList();
+        assertNull(new PurchaseVerifier(2).verify("", purchases));
+        assertNull(new PurchaseVerifier(2).verify("not a key", purchases));
+    }
+
+    private static KeyPair newKeyPair() throws GeneralSecurityException {
+        final KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(1024);
+        return generator.generateKeyPair();
+    }
+
+    private static String sign(KeyPair keyPair, String data) throws GeneralSecurityException {
+        final Signature signature = Signature.getInstance("SHA512withRSA");
+        signature.initSign(keyPair.getPrivate());
+        signature.update(data.getBytes(UTF_8));
+        return Base64.encodeToString(signature.sign(), Base64.NO_WRAP);
+    }
+}
@@ -0,0 +1,51 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.flutter.plugin.common.BinaryMessenger;
+import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.StandardMethodCodec;
+
+/**
+ * A {@link BinaryMessenger} without a Dart side. Decodes and keeps every method the plugin invokes.
+ */
+final class RecordingMessenger implements BinaryMessenger {
+    private final Map<String, List<Object>> invocations = new HashMap<>();
+
+    @Override
+    public void send(String channel, ByteBuffer message) {
+        send(channel, message, null);
+    }
+
+    @Override
+    public void send(String channel, ByteBuffer message, BinaryReply callback) {
+        final ByteBuffer buffer = message.duplicate();
+        buffer.rewind();
+        final MethodCall call = StandardMethodCodec.INSTANCE.decodeMethodCall(buffer);
+        synchronized (invocations) {
+            List<Object> arguments = invocations.get(call.method);
+            if (arguments == null) {
+                arguments = new ArrayList<>();
+                invocations.put(call.method, arguments);
+            }
+            arguments.add(call.arguments);
+        }
+        if (callback != null) {
+            callback.reply(null);
+        }
+    }
+
+    @Override
+    public void setMessageHandler(String channel, BinaryMessageHandler handler) {}
+
+    List<Object> invocations(String method) {
+        synchronized (invocations) {
+            final List<Object> arguments = invocations.get(method);
+            return (arguments == null) ? new ArrayList<>() : new ArrayList<>(arguments);
+        }
+    }
+}
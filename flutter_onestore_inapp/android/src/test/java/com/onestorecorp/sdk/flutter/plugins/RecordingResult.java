@@ -0,0 +1,64 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import java.util.Map;
+
+import io.flutter.plugin.common.MethodChannel;
+
+/**
+ * Keeps the reply of one channel call and when it arrived.
+ */
+class RecordingResult implements MethodChannel.Result {
+    final long startedAt = System.nanoTime();
+    long repliedAt = -1L;
+    int replies = 0;
+    Object value;
+    String errorCode;
+    String errorMessage;
+    Object errorDetails;
+    boolean notImplemented = false;
+
+    @Override
+    public void success(Object value) {
+        this.value = value;
+        onReplied();
+    }
+
+    @Override
+    public void error(String errorCode, String errorMessage, Object errorDetails) {
+        this.errorCode = errorCode;
+        this.errorMessage = errorMessage;
+        this.errorDetails = errorDetails;
+        onReplied();
+    }
+
+    @Override
+    public void notImplemented() {
+        notImplemented = true;
+        onReplied();
+    }
+
+    void onReplied() {
+        replies++;
+        repliedAt = System.nanoTime();
+    }
+
+    boolean isReplied() {
+        return replies > 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    Map<String, Object> map() {
+        return (Map<String, Object>) value;
+    }
+
+    /**
+     * @return the responseCode of the iapResult in the reply, or of the reply itself.
+     */
+    @SuppressWarnings("unchecked")
+    int responseCode() {
+        final Map<String, Object> map = map();
+        final Object iapResult = map.get("iapResult");
+        final Map<String, Object> result = (iapResult instanceof Map) ? (Map<String, Object>) iapResult : map;
+        return (Integer) result.get("responseCode");
+    }
+}
@@ -0,0 +1,78 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RobolectricTestRunner.class)
+public class SingleFlightTest {
+    private final SingleFlight<String> flight = new SingleFlight<>("expired");
+    private final List<String> results = new ArrayList<>();
+
+    @Test
+    public void overlappingCallsShareTheLeaderResult() {
+        assertTrue(flight.join("inapp", results::add));
+        assertFalse(flight.join("inapp", results::add));
+        assertTrue(flight.join("subscription", results::add));
+
+        flight.complete("inapp", "ok", true);
+
+        assertEquals(Arrays.asList("ok", "ok"), results);
+        assertEquals(1, flight.inFlightCount());
+    }
+
+    @Test
+    public void reusableResultIsHandedOutUntilInvalidated() {
+        flight.setReuseMillis(1000L);
+        flight.join("inapp", results::add);
+        flight.complete("inapp", "ok", true);
+
+        assertFalse(flight.join("inapp", results::add));
+        flight.invalidate();
+        assertTrue(flight.join("inapp", results::add));
+
+        assertEquals(Arrays.asList("ok", "ok"), results);
+    }
+
+    @Test
+    public void abortAnswersEveryWaiter() {
+        flight.setReuseMillis(1000L);
+        flight.join("inapp", results::add);
+        flight.join("inapp", results::add);
+        flight.join("subscription", results::add);
+
+        flight.abort("disconnected");
+
+        assertEquals(Collections.nCopies(3, "disconnected"), results);
+        assertEquals(0, flight.inFlightCount());
+        assertTrue(flight.join("inapp", results::add));
+    }
+
+    @Test
+    public void leaderThatNeverCompletesIsEvicted() {
+        flight.setDeadlineMillis(1000L);
+        flight.join("inapp", results::add);
+        flight.join("inapp", results::add);
+
+        ShadowLooper.idleMainLooper(999L, TimeUnit.MILLISECONDS);
+        assertTrue(results.isEmpty());
+        ShadowLooper.idleMainLooper(1L, TimeUnit.MILLISECONDS);
+
+        assertEquals(Arrays.asList("expired", "expired"), results);
+        assertTrue(flight.join("inapp", results::add));
+        // The evicted leader finishing late completes the flight that replaced it.
+        flight.complete("inapp", "late", false);
+        assertEquals(Arrays.asList("expired", "expired", "late"), results);
+    }
+}
@@ -0,0 +1,71 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Intent;
+import android.net.Uri;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.Map;
+
+import io.flutter.plugin.common.MethodChannel;
+
+@RunWith(RobolectricTestRunner.class)
+public class StoreEnvironmentCacheTest {
+    private final RecordingMessenger messenger = new RecordingMessenger();
+    private final StoreEnvironmentCache environment = new StoreEnvironmentCache(RuntimeEnvironment.getApplication(),
+            new MethodChannel(messenger, "com.onestorecorp.sdk.flutter.plugins/base"));
+    private int invalidations = 0;
+
+    @After
+    public void tearDown() {
+        environment.dispose();
+    }
+
+    @Test
+    public void onlyChangesArePushed() {
+        environment.snapshot();
+        environment.setConnected(true);
+        environment.setStoreCode(FakeStore.STORE_CODE);
+        environment.setStoreCode(FakeStore.STORE_CODE);
+
+        assertEquals(2, messenger.invocations("onEnvironmentChanged").size());
+        final Map<?, ?> snapshot = environment.snapshot();
+        assertEquals(true, snapshot.get("connected"));
+        assertEquals(FakeStore.STORE_CODE, snapshot.get("storeCode"));
+        assertEquals(BuildConfig.IAP_SDK_VERSION, snapshot.get("iapSdkVersion"));
+
+        environment.setConnected(false);
+        assertNull(environment.snapshot().get("storeCode"));
+    }
+
+    @Test
+    public void storePackageChangeDropsTheStoreCode() {
+        environment.setListener(() -> invalidations++);
+        environment.snapshot();
+        environment.setConnected(true);
+        environment.setStoreCode(FakeStore.STORE_CODE);
+
+        RuntimeEnvironment.getApplication().sendBroadcast(
+                new Intent(Intent.ACTION_PACKAGE_REPLACED, Uri.parse("package:com.example.app")));
+        PurchaseCallHandlerImplTest.idle();
+        assertEquals(0, invalidations);
+        assertTrue(environment.hasStoreCode());
+
+        RuntimeEnvironment.getApplication().sendBroadcast(
+                new Intent(Intent.ACTION_PACKAGE_REPLACED, Uri.parse("package:com.skt.skaf.A000Z00040")));
+        PurchaseCallHandlerImplTest.idle();
+
+        assertEquals(1, invalidations);
+        assertFalse(environment.hasStoreCode());
+        assertEquals(3, messenger.invocations("onEnvironmentChanged").size());
+    }
+}
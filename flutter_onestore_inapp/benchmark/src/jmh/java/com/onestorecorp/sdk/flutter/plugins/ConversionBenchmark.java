@@ -0,0 +1,73 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import com.gaa.sdk.iap.ProductDetail;
+import com.gaa.sdk.iap.PurchaseData;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.flutter.plugin.common.StandardMessageCodec;
+
+/**
+ * Cost of turning SDK models into channel payloads: the map conversion alone, the map conversion
+ * followed by StandardMessageCodec encoding as done for every reply, and the binary transport.
+ */
+@State(Scope.Benchmark)
+public class ConversionBenchmark {
+
+    @Param({"1", "100", "5000"})
+    public int size;
+
+    private List<PurchaseData> purchases;
+    private List<ProductDetail> productDetails;
+
+    @Setup
+    public void setUp() {
+        purchases = Fixtures.purchases(size);
+        productDetails = Fixtures.productDetails(size);
+    }
+
+    @Benchmark
+    public Object fromPurchasesList() {
+        return FlutterInAppHelper.fromPurchasesList(purchases);
+    }
+
+    @Benchmark
+    public Object fromProductDetailsList() {
+        return FlutterInAppHelper.fromProductDetailsList(productDetails);
+    }
+
+    @Benchmark
+    public ByteBuffer encodePurchasesList() {
+        final Map<String, Object> resultData = new HashMap<>();
+        resultData.put("iapResult", FlutterInAppHelper.fromIapResult(0, ""));
+        resultData.put("purchasesList", FlutterInAppHelper.fromPurchasesList(purchases));
+        return StandardMessageCodec.INSTANCE.encodeMessage(resultData);
+    }
+
+    @Benchmark
+    public ByteBuffer encodeProductDetailsList() {
+        final Map<String, Object> resultData = new HashMap<>();
+        resultData.put("iapResult", FlutterInAppHelper.fromIapResult(0, ""));
+        resultData.put("productDetailsList", FlutterInAppHelper.fromProductDetailsList(productDetails));
+        return StandardMessageCodec.INSTANCE.encodeMessage(resultData);
+    }
+
+    @Benchmark
+    public byte[] encodePurchasesBinary() {
+        return PurchaseBinaryCodec.encodePurchases(purchases, PayloadFields.PURCHASE_DATA);
+    }
+
+    @Benchmark
+    public byte[] encodeProductDetailsBinary() {
+        return PurchaseBinaryCodec.encodeProductDetails(productDetails, PayloadFields.PRODUCT_DETAIL);
+    }
+}
@@ -0,0 +1,107 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import com.gaa.sdk.iap.ProductDetail;
+import com.gaa.sdk.iap.PurchaseData;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Synthetic store payloads. Every value is derived from the item index so that each run measures
+ * exactly the same data.
+ */
+final class Fixtures {
+    static final String PACKAGE_NAME = "com.onestorecorp.sdk.flutter.benchmark";
+
+    private Fixtures() {}
+
+    static List<PurchaseData> purchases(int size) {
+        final List<PurchaseData> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(new PurchaseData(purchaseJson(i), signature(i), null));
+        }
+        return list;
+    }
+
+    static List<ProductDetail> productDetails(int size) {
+        final List<ProductDetail> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            try {
+                list.add(new ProductDetail(productDetailJson(i)));
+            } catch (Exception e) {
+                throw new IllegalStateException("Invalid product detail fixture", e);
+            }
+        }
+        return list;
+    }
+
+    static List<String> productIds(int size) {
+        final List<String> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(productId(i));
+        }
+        return list;
+    }
+
+    static Map<String, Object> purchaseArguments(int index) {
+        final Map<String, Object> arguments = new HashMap<>();
+        arguments.put("originalJson", purchaseJson(index));
+        arguments.put("signature", signature(index));
+        arguments.put("developerPayload", "payload-" + index);
+        return arguments;
+    }
+
+    static String purchaseJson(int index) {
+        return "{"
+                + "\"orderId\":\"ONESTORE7_" + String.format("%016d", index) + "\","
+                + "\"packageName\":\"" + PACKAGE_NAME + "\","
+                + "\"productId\":\"" + productId(index) + "\","
+                + "\"purchaseTime\":" + (1700000000000L + index * 1000L) + ","
+                + "\"purchaseId\":\"SANDBOX" + String.format("%012d", index) + "\","
+                + "\"purchaseToken\":\"" + token(index) + "\","
+                + "\"developerPayload\":\"payload-" + index + "\","
+                + "\"purchaseState\":0,"
+                + "\"recurringState\":" + (index % 2 == 0 ? -1 : 0) + ","
+                + "\"quantity\":1,"
+                + "\"acknowledgeState\":" + (index % 3 == 0 ? 1 : 0)
+                + "}";
+    }
+
+    static String productDetailJson(int index) {
+        final boolean subscription = index % 4 == 0;
+        return "{"
+                + "\"productId\":\"" + productId(index) + "\","
+                + "\"type\":\"" + (subscription ? "subscription" : "inapp") + "\","
+                + "\"title\":\"Benchmark product " + index + "\","
+                + "\"price\":\"" + (1100 + index % 50 * 100) + "\","
+                + "\"priceCurrencyCode\":\"KRW\","
+                + "\"priceAmountMicros\":\"" + (1100 + index % 50 * 100) * 1000000L + "\","
+                + "\"subscriptionPeriodUnitCode\":\"" + (subscription ? "M" : "") + "\","
+                + "\"subscriptionPeriod\":\"" + (subscription ? "1" : "") + "\","
+                + "\"freeTrialPeriod\":\"" + (subscription ? "7" : "") + "\","
+                + "\"promotionPrice\":\"\","
+                + "\"promotionPriceMicros\":\"\","
+                + "\"promotionUsePeriod\":\"\","
+                + "\"paymentGracePeriod\":\"" + (subscription ? "3" : "") + "\""
+                + "}";
+    }
+
+    private static String productId(int index) {
+        return "product_" + index;
+    }
+
+    private static String token(int index) {
+        return "TOKEN" + Integer.toHexString(index * 0x9E3779B9) + String.format("%08d", index);
+    }
+
+    private static String signature(int index) {
+        final StringBuilder builder = new StringBuilder(344);
+        while (builder.length() < 344) {
+            builder.append(Integer.toString(index * 31 + builder.length(), 36));
+        }
+        builder.setLength(344);
+        return builder.toString();
+    }
+}
@@ -0,0 +1,74 @@
+package com.onestorecorp.sdk.flutter.plugins;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import io.flutter.plugin.common.MethodCall;
+
+/**
+ * Cost of building SDK parameters from decoded channel arguments, including the originalJson
+ * parsing done by toPurchaseData.
+ */
+@State(Scope.Benchmark)
+public class ParamsBenchmark {
+
+    private MethodCall purchaseCall;
+    private MethodCall purchaseFlowCall;
+
+    @State(Scope.Benchmark)
+    public static class ProductIds {
+        @Param({"1", "100", "5000"})
+        public int size;
+
+        MethodCall call;
+
+        @Setup
+        public void setUp() {
+            final Map<String, Object> arguments = new HashMap<>();
+            arguments.put("productIds", Fixtures.productIds(size));
+            arguments.put("productType", "inapp");
+            call = new MethodCall("queryProductDetailsAsync", arguments);
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        purchaseCall = new MethodCall("consumeAsync", Fixtures.purchaseArguments(0));
+
+        final Map<String, Object> flowArguments = new HashMap<>();
+        flowArguments.put("productId", "product_0");
+        flowArguments.put("productName", "Benchmark product 0");
+        flowArguments.put("productType", "inapp");
+        flowArguments.put("developerPayload", "payload-0");
+        flowArguments.put("quantity", 1);
+        flowArguments.put("gameUserId", "user-0");
+        flowArguments.put("promotionApplicable", false);
+        purchaseFlowCall = new MethodCall("launchPurchaseFlow", flowArguments);
+    }
+
+    @Benchmark
+    public Object toConsumeParams() {
+        return FlutterInAppHelper.toConsumeParams(purchaseCall);
+    }
+
+    @Benchmark
+    public Object toAcknowledgeParams() {
+        return FlutterInAppHelper.toAcknowledgeParams(purchaseCall);
+    }
+
+    @Benchmark
+    public Object toPurchaseFlowParams() {
+        return FlutterInAppHelper.toPurchaseFlowParams(purchaseFlowCall);
+    }
+
+    @Benchmark
+    public Object toProductDetailParams(ProductIds productIds) {
+        return FlutterInAppHelper.toProductDetailParams(productIds.call);
+    }
+}
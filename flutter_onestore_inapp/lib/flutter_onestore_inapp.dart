@@ -1,4 +1,6 @@
 export 'src/onestore_logger.dart';
+export 'src/onestore_metrics.dart';
+export 'src/onestore_calls.dart';
 export 'src/onestore_enviroment.dart';
 
 export 'src/auth/signin_result.dart';
@@ -9,6 +11,13 @@ export 'src/alc/license_client_wrapper.dart';
 export 'src/iap/iap_enum.dart';
 export 'src/iap/iap_result.dart';
 export 'src/iap/product_detail.dart';
-export 'src/iap/purchase_data.dart';
+export 'src/iap/purchase_background.dart' hide backgroundHandlerArguments;
+export 'src/iap/purchase_batch.dart';
+export 'src/iap/purchase_data.dart' hide withVerifiedFlags;
+export 'src/iap/purchase_reconciliation.dart';
+export 'src/iap/purchases_delta.dart';
 export 'src/iap/purchase_client_manager.dart' hide HasPurchaseResponse;
+export 'src/iap/purchase_client_options.dart';
+export 'src/iap/purchase_connection_state.dart'
+    hide receivePurchaseConnectionEvents;
 export 'src/iap/purchase_client_wrapper.dart' hide PurchaseClient;
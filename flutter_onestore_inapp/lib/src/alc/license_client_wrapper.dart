@@ -15,23 +15,39 @@ abstract class LicenseCallback {
 }
 
 /// ALC 클라이언트
+///
+/// 동시에 요청한 라이선스 확인은 하나로 합쳐지며, 결과는 [LicenseCallback]으로 한 번 전달됩니다.
 class LicenseClient extends OneStoreChannel {
   LicenseCallback? callback;
 
   final String publicKey;
 
-  LicenseClient(this.publicKey, [this.callback]) : super('license') {
+  /// 확인된 라이선스를 재사용하는 시간
+  /// 이 시간 동안 [queryLicense]는 공개키로 서명을 검증해 둔 라이선스로 바로 응답합니다.
+  /// [Duration.zero]인 경우 재사용하지 않으며, [strictQueryLicense]는 항상 스토어에 확인합니다.
+  /// 재사용한 라이선스로 응답한 경우에도 [queryLicense] 호출마다
+  /// [LicenseCallback.onGranted]가 전달됩니다.
+  final Duration cacheValidity;
+
+  LicenseClient(this.publicKey,
+      [this.callback, this.cacheValidity = Duration.zero])
+      : super('license') {
     channel.setMethodCallHandler(methodCallHandler);
   }
 
   Future<void> queryLicense() async {
-    return channel.invokeMethod<void>('queryLicense', publicKey);
+    return channel.invokeMethod<void>('queryLicense', _arguments());
   }
 
   Future<void> strictQueryLicense() async {
-    return channel.invokeMethod<void>('strictQueryLicense', publicKey);
+    return channel.invokeMethod<void>('strictQueryLicense', _arguments());
   }
 
+  Map<String, dynamic> _arguments() => <String, dynamic>{
+        'publicKey': publicKey,
+        'cacheValidityMillis': cacheValidity.inMilliseconds,
+      };
+
   Future<void> dispose() async {
     callback = null;
     return channel.invokeMethod<void>('destroy');
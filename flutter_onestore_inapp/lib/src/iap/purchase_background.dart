@@ -0,0 +1,89 @@
+import 'dart:ui';
+
+import 'package:flutter/widgets.dart';
+import 'package:flutter/services.dart';
+
+import '../onestore_channel.dart';
+import 'purchase_data.dart';
+
+/// 백그라운드 엔진에서 구매 결과를 처리하는 함수입니다.
+/// 최상위 함수 또는 static 함수여야 하며 `@pragma('vm:entry-point')`를 지정해야 합니다.
+typedef BackgroundPurchaseHandler = Future<void> Function(
+    PurchasesResultResponse response);
+
+/// [PurchasePolicy]에 따라 네이티브 영역에서 구매에 수행할 작업
+enum PurchaseAction {
+  /// 아무 것도 하지 않습니다.
+  none,
+
+  /// 구매를 확인(acknowledge)합니다.
+  acknowledge,
+
+  /// 구매를 소비(consume)합니다.
+  /// 정기 결제 상품은 소비할 수 없으므로 [PurchaseClientOptions.reconcilePolicy]에서는 확인(acknowledge)합니다.
+  consume,
+}
+
+/// 네이티브 영역에서 구매를 처리하는 정책입니다.
+///
+/// [PurchaseClientOptions.headlessPolicy]와 [PurchaseClientOptions.reconcilePolicy]에
+/// 사용되며, 구매 완료 상태이고 아직 확인되지 않은 구매에만 적용됩니다.
+@immutable
+class PurchasePolicy {
+  const PurchasePolicy({
+    this.defaultAction = PurchaseAction.none,
+    this.productActions = const <String, PurchaseAction>{},
+  });
+
+  /// [productActions]에 없는 상품에 적용할 작업
+  final PurchaseAction defaultAction;
+
+  /// 상품 ID별로 적용할 작업
+  final Map<String, PurchaseAction> productActions;
+
+  Map<String, dynamic> toArguments() => <String, dynamic>{
+        'defaultAction': defaultAction.name,
+        'productActions': productActions
+            .map((key, value) => MapEntry<String, String>(key, value.name)),
+      };
+}
+
+const String _kBackgroundChannel =
+    '${OneStoreChannel.rootChannel}/purchase_background';
+
+/// [handler]를 백그라운드 엔진에서 실행하기 위한 핸들 값을 만듭니다.
+Map<String, dynamic> backgroundHandlerArguments(
+    BackgroundPurchaseHandler? handler) {
+  if (handler == null) return <String, dynamic>{};
+
+  final CallbackHandle? dispatcher =
+      PluginUtilities.getCallbackHandle(_purchaseBackgroundDispatcher);
+  final CallbackHandle? callback = PluginUtilities.getCallbackHandle(handler);
+  if (dispatcher == null || callback == null) {
+    throw ArgumentError.value(handler, 'handler',
+        'must be a top-level or static function');
+  }
+  return <String, dynamic>{
+    'dispatcherHandle': dispatcher.toRawHandle(),
+    'callbackHandle': callback.toRawHandle(),
+  };
+}
+
+/// 백그라운드 엔진의 진입점입니다.
+/// 네이티브 영역에서 전달한 구매 결과를 등록된 핸들러로 전달합니다.
+@pragma('vm:entry-point')
+void _purchaseBackgroundDispatcher() {
+  WidgetsFlutterBinding.ensureInitialized();
+  const MethodChannel channel = MethodChannel(_kBackgroundChannel);
+
+  channel.setMethodCallHandler((MethodCall call) async {
+    final Map<String, dynamic> arguments =
+        (call.arguments as Map<dynamic, dynamic>).cast<String, dynamic>();
+    final Function? handler = PluginUtilities.getCallbackFromHandle(
+        CallbackHandle.fromRawHandle(arguments['callbackHandle'] as int));
+    if (handler is! BackgroundPurchaseHandler) return;
+
+    await handler(PurchasesResultResponse.fromJson(arguments));
+  });
+  channel.invokeMethod<void>('backgroundReady');
+}
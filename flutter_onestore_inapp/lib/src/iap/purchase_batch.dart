@@ -0,0 +1,66 @@
+import 'package:flutter/material.dart';
+
+import 'iap_enum.dart';
+import 'iap_result.dart';
+import 'purchase_client_manager.dart';
+
+/// 일괄 소비 또는 확인 요청에서 구매 정보 한 건의 처리 결과입니다.
+@immutable
+class PurchaseBatchResult {
+  const PurchaseBatchResult(
+      {required this.purchaseToken, required this.iapResult});
+
+  factory PurchaseBatchResult.fromJson(Map<String, dynamic> map) {
+    return PurchaseBatchResult(
+      purchaseToken: map['purchaseToken'] as String? ?? '',
+      iapResult: IapResult.fromJson((map['iapResult'] as Map<dynamic, dynamic>?)
+          ?.cast<String, dynamic>()),
+    );
+  }
+
+  final String purchaseToken;
+
+  final IapResult iapResult;
+
+  @override
+  String toString() {
+    return 'PurchaseBatchResult(purchaseToken=$purchaseToken, $iapResult)';
+  }
+}
+
+/// [PurchaseClientManager.consumePurchases], [PurchaseClientManager.acknowledgePurchases]의 응답입니다.
+///
+/// [iapResult]는 요청 전체의 처리 결과이며, 구매 정보별 결과는 요청한 순서대로 [results]에 전달됩니다.
+@immutable
+class PurchaseBatchResponse implements HasPurchaseResponse {
+  const PurchaseBatchResponse(
+      {required this.iapResult, this.results = const <PurchaseBatchResult>[]});
+
+  factory PurchaseBatchResponse.fromJson(Map<String, dynamic> map) {
+    return PurchaseBatchResponse(
+      iapResult: IapResult.fromJson((map['iapResult'] as Map<dynamic, dynamic>?)
+          ?.cast<String, dynamic>()),
+      results: (map['results'] as List<dynamic>?)
+              ?.map((e) => PurchaseBatchResult.fromJson(
+                  Map<String, dynamic>.from(e as Map)))
+              .toList() ??
+          const <PurchaseBatchResult>[],
+    );
+  }
+
+  final IapResult iapResult;
+
+  final List<PurchaseBatchResult> results;
+
+  /// 모든 구매 정보가 성공적으로 처리되었는지 여부
+  bool get isAllSuccess =>
+      iapResult.isSuccess() && results.every((e) => e.iapResult.isSuccess());
+
+  @override
+  PurchaseResponse get responseCode => iapResult.responseCode;
+
+  @override
+  String toString() {
+    return 'PurchaseBatchResponse($iapResult, results=${results.length})';
+  }
+}
@@ -0,0 +1,183 @@
+import 'dart:convert';
+import 'dart:typed_data';
+
+import 'iap_enum.dart';
+import 'product_detail.dart';
+import 'purchase_data.dart';
+
+/// 네이티브 `PurchaseBinaryCodec`이 만든 바이너리 페이로드를 해석합니다.
+///
+/// 페이로드는 필드 스키마 헤더, 문자열 테이블, 필드 순서대로 채워진 레코드로 구성됩니다.
+/// 스키마에 없는 필드는 [PurchaseData.fromJson], [ProductDetail.fromJson]과 같은 기본값을 사용합니다.
+class PurchaseBinaryCodec {
+  const PurchaseBinaryCodec._();
+
+  static const int _version = 1;
+  static const int _kindProductDetail = 1;
+  static const int _kindPurchaseData = 2;
+
+  static const int _typeString = 0;
+  static const int _typeInt32 = 1;
+  static const int _typeInt64 = 2;
+  static const int _typeBool = 3;
+
+  static List<ProductDetail> decodeProductDetails(Uint8List bytes) {
+    return _decode(bytes, _kindProductDetail, (_Record r) {
+      return ProductDetail(
+        productId: r.string('productId'),
+        productType: const ProductTypeConverter()
+            .fromJson(r.nullableString('productType')),
+        title: r.string('title'),
+        price: r.string('price'),
+        priceCurrencyCode: r.string('priceCurrencyCode'),
+        priceAmountMicros: r.string('priceAmountMicros'),
+        subscriptionPeriod: r.string('subscriptionPeriod'),
+        subscriptionPeriodUnitCode: r.string('subscriptionPeriodUnitCode'),
+        freeTrialPeriod: r.string('freeTrialPeriod'),
+        promotionPrice: r.string('promotionPrice'),
+        promotionPriceMicros: r.string('promotionPriceMicros'),
+        promotionUsePeriod: r.string('promotionUsePeriod'),
+        paymentGracePeriod: r.string('paymentGracePeriod'),
+      );
+    });
+  }
+
+  static List<PurchaseData> decodePurchases(Uint8List bytes) {
+    return _decode(bytes, _kindPurchaseData, (_Record r) {
+      return PurchaseData(
+        orderId: r.string('orderId'),
+        productId: r.string('productId'),
+        packageName: r.string('packageName'),
+        purchaseTime: r.integer('purchaseTime', 0),
+        purchaseToken: r.string('purchaseToken'),
+        purchaseState: const PurchaseStateConverter()
+            .fromJson(r.nullableInteger('purchaseState')),
+        recurringState: const RecurringStateConverter()
+            .fromJson(r.nullableInteger('recurringState')),
+        quantity: r.integer('quantity', 1),
+        isAcknowledged: r.boolean('isAcknowledged'),
+        developerPayload: r.string('developerPayload'),
+        originalJson: r.string('originalJson'),
+        signature: r.string('signature'),
+      );
+    });
+  }
+
+  static List<T> _decode<T>(
+      Uint8List bytes, int expectedKind, T Function(_Record) build) {
+    final _Reader reader = _Reader(bytes);
+    final int version = reader.uint8();
+    final int kind = reader.uint8();
+    if (version != _version || kind != expectedKind) {
+      throw FormatException(
+          'Unsupported payload(version=$version, kind=$kind)');
+    }
+
+    final int fieldCount = reader.uint16();
+    final List<int> types = List<int>.filled(fieldCount, 0);
+    final Map<String, int> indexes = <String, int>{};
+    for (int i = 0; i < fieldCount; i++) {
+      types[i] = reader.uint8();
+      indexes[reader.utf8String(reader.uint16())] = i;
+    }
+
+    final int stringCount = reader.uint32();
+    final List<String> strings = List<String>.generate(
+        stringCount, (_) => reader.utf8String(reader.uint32()),
+        growable: false);
+
+    final int recordCount = reader.uint32();
+    final List<T> result = <T>[];
+    final _Record record =
+        _Record(indexes, List<Object?>.filled(fieldCount, null));
+    for (int n = 0; n < recordCount; n++) {
+      for (int i = 0; i < fieldCount; i++) {
+        switch (types[i]) {
+          case _typeString:
+            final int index = reader.int32();
+            record.values[i] = index < 0 ? null : strings[index];
+            break;
+          case _typeInt32:
+            record.values[i] = reader.int32();
+            break;
+          case _typeInt64:
+            record.values[i] = reader.int64();
+            break;
+          case _typeBool:
+            record.values[i] = reader.uint8() != 0;
+            break;
+          default:
+            throw FormatException('Unknown field type: ${types[i]}');
+        }
+      }
+      result.add(build(record));
+    }
+    return result;
+  }
+}
+
+class _Record {
+  _Record(this.indexes, this.values);
+
+  final Map<String, int> indexes;
+  final List<Object?> values;
+
+  Object? _value(String name) {
+    final int? index = indexes[name];
+    return index == null ? null : values[index];
+  }
+
+  String? nullableString(String name) => _value(name) as String?;
+
+  String string(String name) => nullableString(name) ?? '';
+
+  int? nullableInteger(String name) => _value(name) as int?;
+
+  int integer(String name, int defaultValue) =>
+      nullableInteger(name) ?? defaultValue;
+
+  bool boolean(String name) => _value(name) as bool? ?? false;
+}
+
+class _Reader {
+  _Reader(Uint8List bytes)
+      : _bytes = bytes,
+        _data = ByteData.sublistView(bytes);
+
+  final Uint8List _bytes;
+  final ByteData _data;
+  int _offset = 0;
+
+  int uint8() => _data.getUint8(_offset++);
+
+  int uint16() {
+    final int value = _data.getUint16(_offset, Endian.little);
+    _offset += 2;
+    return value;
+  }
+
+  int uint32() {
+    final int value = _data.getUint32(_offset, Endian.little);
+    _offset += 4;
+    return value;
+  }
+
+  int int32() {
+    final int value = _data.getInt32(_offset, Endian.little);
+    _offset += 4;
+    return value;
+  }
+
+  int int64() {
+    final int value = _data.getInt64(_offset, Endian.little);
+    _offset += 8;
+    return value;
+  }
+
+  String utf8String(int length) {
+    final String value = utf8.decode(
+        Uint8List.sublistView(_bytes, _offset, _offset + length));
+    _offset += length;
+    return value;
+  }
+}
@@ -3,11 +3,18 @@ import 'dart:io';
 
 import 'package:flutter/services.dart';
 
+import '../onestore_calls.dart';
 import 'iap_enum.dart';
 import 'iap_result.dart';
 import 'product_detail.dart';
+import 'purchase_background.dart';
+import 'purchase_batch.dart';
+import 'purchase_client_options.dart';
 import 'purchase_client_wrapper.dart';
+import 'purchase_connection_state.dart';
 import 'purchase_data.dart';
+import 'purchase_reconciliation.dart';
+import 'purchases_delta.dart';
 
 /// [PurchaseClient]의 응답 결과의 추상 클래스입니다.
 abstract class HasPurchaseResponse {
@@ -32,6 +39,9 @@ class PurchaseClientManager {
   bool _isDisposed = false;
   String storeCode = '';
 
+  final Map<ProductType, PurchasesDeltaResponse> _purchaseSnapshots =
+      <ProductType, PurchasesDeltaResponse>{};
+
   final StreamController<List<PurchaseData>> _purchasesUpdatedController =
       StreamController<List<PurchaseData>>.broadcast();
 
@@ -40,6 +50,18 @@ class PurchaseClientManager {
   late final Stream<List<PurchaseData>> purchasesUpdatedStream =
       _purchasesUpdatedController.stream;
 
+  final StreamController<PurchaseReconcileSummary> _reconciledController =
+      StreamController<PurchaseReconcileSummary>.broadcast();
+
+  /// [PurchaseClientOptions.reconcilePolicy]에 따라 연결 직후 수행한 구매 정리 결과를 전달 받습니다.
+  late final Stream<PurchaseReconcileSummary> reconciledStream =
+      _reconciledController.stream;
+
+  /// 네이티브 영역의 연결 상태(연결중, 연결됨, 연결 끊김)가 바뀔 때마다 전달 받습니다.
+  /// [isReady]를 주기적으로 호출하지 않고 연결 상태를 확인할 수 있습니다.
+  late final Stream<PurchaseConnectionEvent> connectionStateStream =
+      receivePurchaseConnectionEvents();
+
   static PurchaseClientManager _getOrCreateInstance() {
     if (_instance != null) return _instance!;
 
@@ -55,8 +77,13 @@ class PurchaseClientManager {
 
   PurchaseClientManager._();
 
-  void initialize([String? publicKey]) {
-    _client = PurchaseClient(publicKey, _onPurchasesUpdated);
+  void initialize(
+      [String? publicKey,
+      PurchaseClientOptions options = const PurchaseClientOptions()]) {
+    _client = PurchaseClient(publicKey, _onPurchasesUpdated, options);
+    _client.setOnReconciledListener((summary) {
+      if (!_isDisposed) _reconciledController.add(summary);
+    });
   }
 
   void _onPurchasesUpdated(PurchasesResultResponse response) {
@@ -79,6 +106,7 @@ class PurchaseClientManager {
     _isDisposed = true;
     _client.endConnection();
     _purchasesUpdatedController.close();
+    _reconciledController.close();
   }
 
   /// API 호출 시 연결이 끊어졌을 경우 재 연결을 시도하여 요청한 API를 끝까지 수행합니다.
@@ -109,6 +137,22 @@ class PurchaseClientManager {
     }
   }
 
+  /// 일부 구매 정보가 이미 처리되었을 수 있으므로 연결이 끊어져도 요청 전체를 다시 시도하지 않습니다.
+  Future<PurchaseBatchResponse> _executeBatch(
+      Future<PurchaseBatchResponse> Function(PurchaseClient client)
+          action) async {
+    _assertNotDisposed();
+    await _connection();
+    try {
+      return await action(_client);
+    } on PlatformException catch (e) {
+      return PurchaseBatchResponse(
+          iapResult: IapResult(
+              responseCode: PurchaseResponse.error,
+              message: '${e.message}(${e.code})'));
+    }
+  }
+
   /// [dispose] 되면 아무 것도 하지 않습니다.
   /// 연결중이면 완료될 때까지 기다리고, 그렇지 않으면 새 연결을 시작합니다.
   Future<void> _connection() {
@@ -160,6 +204,21 @@ class PurchaseClientManager {
     return _executeNonRetryable((client) => client.isReady());
   }
 
+  /// 네이티브 영역의 버퍼가 가득 차서 [purchasesUpdatedStream]으로 전달되지 못한 이벤트 수
+  /// 0보다 크면 [queryPurchases]로 구매 내역을 다시 확인해야 합니다.
+  int get droppedPurchaseEvents => _client.droppedPurchaseEvents;
+
+  /// 앱 화면이 없는 동안 도착한 구매를 처리할 [handler]를 등록합니다.
+  /// [PurchaseClientOptions.headless]가 true일 때 별도의 백그라운드 엔진에서 실행되며,
+  /// 등록된 핸들러는 앱을 다시 실행해도 유지됩니다. null을 전달하면 등록을 해제합니다.
+  ///
+  /// [handler]는 최상위 함수 또는 static 함수여야 합니다.
+  Future<void> registerBackgroundPurchaseHandler(
+      BackgroundPurchaseHandler? handler) async {
+    _assertNotDisposed();
+    return _client.registerBackgroundHandler(handler);
+  }
+
   /// 구매한 상품을 소비합니다.
   /// 소유한 상품만 소비할 수 있으며, 소비를 진행했던 상품의 경우 재 구매를 진행해야 합니다.
   /// 이 API는 관리형 상품([ProductType.inapp])만 호출 가능합니다.
@@ -184,16 +243,53 @@ class PurchaseClientManager {
     return await _execute((client) => client.acknowledgeAsync(purchaseData));
   }
 
+  /// 여러 구매 정보를 한 번의 요청으로 소비합니다.
+  ///
+  /// 네이티브 영역에서 최대 [maxConcurrency]개씩 동시에 [consumePurchase]를 수행하고,
+  /// 구매 정보별 결과를 요청한 순서대로 [PurchaseBatchResponse.results]에 담아 반환합니다.
+  /// 복원 또는 프로모션 이후 소비할 구매 정보가 많을 때 채널 왕복 횟수를 줄일 수 있습니다.
+  Future<PurchaseBatchResponse> consumePurchases(
+      {required List<PurchaseData> purchases, int? maxConcurrency}) async {
+    return await _executeBatch((client) =>
+        client.consumeBatch(purchases, maxConcurrency: maxConcurrency));
+  }
+
+  /// 여러 구매 정보를 한 번의 요청으로 확인합니다.
+  ///
+  /// 동작 방식은 [consumePurchases]와 같습니다.
+  Future<PurchaseBatchResponse> acknowledgePurchases(
+      {required List<PurchaseData> purchases, int? maxConcurrency}) async {
+    return await _executeBatch((client) =>
+        client.acknowledgeBatch(purchases, maxConcurrency: maxConcurrency));
+  }
+
   /// 상품의 상세정보를 요청합니다.
   ///
+  /// [PurchaseClientOptions.productCacheTtl]로 캐시를 사용하도록 설정한 경우,
+  /// 요청한 상품이 모두 캐시에 유효하게 남아 있으면 스토어에 요청하지 않고 캐시된 정보를 반환합니다.
+  /// 일부만 캐시되어 있다면 나머지 상품만 스토어에 요청하며, 결과는 요청한 [productIds] 순서로 전달됩니다.
+  /// [forceRefresh]가 true이면 캐시를 무시하고 모든 상품을 다시 요청합니다.
+  /// [fields]를 지정하면 해당 필드만 전달 받으며, 나머지 필드는 기본값으로 채워집니다.
+  /// [priority]를 [CallPriority.background]로 지정하면 대기중인 다른 요청이 처리된 뒤에 실행됩니다.
+  /// [callId]에 [OneStoreCalls.newCallId]로 만든 ID를 지정하면 [OneStoreCalls.cancel]로 이 요청을 취소할 수 있습니다.
+  ///
   /// ['PurchaseClient#queryProductDetailsAsync()'](https://onestore-dev.gitbook.io/dev/v/eng/tools/tools/v21/references/en-classes/en-purchaseclient#id-en-purchaseclient-queryproductdetailsasync)
   Future<ProductDetailsResponse> queryProductDetails(
       {required List<String> productIds,
-      required ProductType productType}) async {
+      required ProductType productType,
+      bool forceRefresh = false,
+      List<String>? fields,
+      CallPriority? priority,
+      int? callId}) async {
     ProductDetailsResponse response;
     try {
       response = await _execute((client) => client.queryProductDetails(
-          productIds: productIds, type: productType));
+          productIds: productIds,
+          type: productType,
+          forceRefresh: forceRefresh,
+          fields: fields,
+          priority: priority,
+          callId: callId));
     } on PlatformException catch (e) {
       response = ProductDetailsResponse(
           iapResult: IapResult(
@@ -204,18 +300,36 @@ class PurchaseClientManager {
     return response;
   }
 
+  /// 상품 상세 정보 캐시의 상태(크기, 적중/실패 횟수 등)를 가져옵니다.
+  Future<Map<String, dynamic>> getProductCacheStats() async {
+    return _client.getProductCacheStats();
+  }
+
+  /// 상품 상세 정보 캐시를 비웁니다.
+  Future<void> clearProductCache() async {
+    return _client.clearProductCache();
+  }
+
   /// 소비되지 않은 구매정보를 가져옵니다.
   ///
   /// [consumePurchase]을 요청하였을 경우 해당 상품의 구매정보는 더 이상 응답을 받지 못합니다.
+  /// [fields]를 지정하면 해당 필드만 전달 받으며, 나머지 필드는 기본값으로 채워집니다.
+  /// 예를 들어 보유 여부만 확인할 때는 `['productId', 'purchaseState', 'purchaseToken']`만 요청할 수 있습니다.
+  /// [priority]를 [CallPriority.background]로 지정하면 대기중인 다른 요청이 처리된 뒤에 실행됩니다.
+  /// [callId]에 [OneStoreCalls.newCallId]로 만든 ID를 지정하면 [OneStoreCalls.cancel]로 이 요청을 취소할 수 있습니다.
   /// ['PurchaseClient#queryPurchasesAsync()'](https://onestore-dev.gitbook.io/dev/v/eng/tools/tools/v21/references/en-classes/en-purchaseclient#id-en-purchaseclient-querypurchasesasync)
   ///
   /// 소비된 구매 정보를 포함한 모든 구매 정보를 원할 경우 Server API를 통해 확인할 수 있습니다.
   /// (https://onestore-dev.gitbook.io/dev/v/eng/tools/tools/v21/one-store-iap-server-api-api-v7#onestoreiapserverapi-apiv7-getpurchasedetails-checkpurchasedin-appproductdetails)
   Future<PurchasesResultResponse> queryPurchases(
-      {required ProductType productType}) async {
+      {required ProductType productType,
+      List<String>? fields,
+      CallPriority? priority,
+      int? callId}) async {
     PurchasesResultResponse response;
     try {
-      response = await _execute((client) => client.queryPurchases(productType));
+      response = await _execute((client) => client.queryPurchases(productType,
+          fields: fields, priority: priority, callId: callId));
     } on PlatformException catch (e) {
       response = PurchasesResultResponse(
           iapResult: IapResult(
@@ -226,6 +340,59 @@ class PurchaseClientManager {
     return response;
   }
 
+  /// [queryPurchases]와 같은 결과를 반환하지만, 이전 호출 이후 변경된 구매 정보만 전달 받아
+  /// 보관중인 목록에 적용합니다.
+  ///
+  /// 앱이 재개될 때마다 구매 정보를 확인하는 경우 변경 사항이 없다면 목록 전체를 다시 전달 받지 않습니다.
+  /// [priority]를 [CallPriority.background]로 지정하면 대기중인 다른 요청이 처리된 뒤에 실행됩니다.
+  /// [callId]에 [OneStoreCalls.newCallId]로 만든 ID를 지정하면 [OneStoreCalls.cancel]로 이 요청을 취소할 수 있습니다.
+  Future<PurchasesResultResponse> syncPurchases(
+      {required ProductType productType,
+      CallPriority? priority,
+      int? callId}) async {
+    final PurchasesDeltaResponse? previous = _purchaseSnapshots[productType];
+    PurchasesDeltaResponse delta;
+    try {
+      delta = await _execute((client) => client.queryPurchasesDelta(
+          productType,
+          sinceVersion: previous?.version,
+          priority: priority,
+          callId: callId));
+    } on PlatformException catch (e) {
+      return PurchasesResultResponse(
+          iapResult: IapResult(
+              responseCode: PurchaseResponse.error,
+              message: '${e.message}(${e.code})'),
+          purchasesList: const <PurchaseData>[]);
+    }
+
+    if (!delta.iapResult.isSuccess()) {
+      return PurchasesResultResponse(
+          iapResult: delta.iapResult, purchasesList: const <PurchaseData>[]);
+    }
+
+    final List<PurchaseData> purchases =
+        delta.applyTo(previous?.purchasesList ?? const <PurchaseData>[]);
+    _purchaseSnapshots[productType] = PurchasesDeltaResponse(
+        iapResult: delta.iapResult,
+        version: delta.version,
+        isFull: true,
+        purchasesList: purchases);
+    return PurchasesResultResponse(
+        iapResult: delta.iapResult, purchasesList: purchases);
+  }
+
+  /// 기기에 저장된 마지막 구매 정보를 가져옵니다.
+  ///
+  /// [PurchaseClient]에 연결하지 않고 바로 응답하므로 앱 실행 직후 권한을 부여할 때 사용할 수 있습니다.
+  /// 저장된 정보는 공개키로 서명을 다시 검증한 뒤 전달되며,
+  /// [queryPurchases] 또는 [syncPurchases]의 응답을 받으면 최신 정보로 갱신됩니다.
+  /// [PurchaseClientOptions.entitlementSnapshot]이 false이면 빈 목록을 반환합니다.
+  Future<List<PurchaseData>> getCachedPurchases() async {
+    _assertNotDisposed();
+    return _client.getCachedPurchases();
+  }
+
   /// 입력된 [ProductDetail]상품에 대한 구매 요청을 시도합니다.
   /// [ProductDetail] 정보는 [queryProductDetails]를 통해 미리 가져 와야합니다.
   ///
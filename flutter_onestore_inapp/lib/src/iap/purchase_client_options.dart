@@ -0,0 +1,161 @@
+import 'package:flutter/foundation.dart';
+
+import 'purchase_background.dart';
+
+/// [PurchaseClient] 네이티브 영역의 동작을 설정하는 옵션입니다.
+///
+/// [PurchaseClientManager.initialize]에 전달하며, 지정하지 않은 항목은 기본값을 사용합니다.
+@immutable
+class PurchaseClientOptions {
+  const PurchaseClientOptions({
+    this.productCacheTtl = Duration.zero,
+    this.productCacheMaxSize = 256,
+    this.productDetailsBatchWindow = Duration.zero,
+    this.resultReuseWindow = Duration.zero,
+    this.marshalOffMainThread = true,
+    this.binaryTransport = false,
+    this.entitlementSnapshot = false,
+    this.autoReconnect = false,
+    this.maxPendingCalls = 32,
+    this.callTimeout = const Duration(seconds: 10),
+    this.reconnectInitialBackoff = const Duration(milliseconds: 500),
+    this.reconnectMaxBackoff = const Duration(seconds: 30),
+    this.purchaseEventBufferSize = 64,
+    this.purchaseEventBatchWindow = Duration.zero,
+    this.reconcilePolicy = const PurchasePolicy(),
+    this.headless = false,
+    this.headlessPolicy = const PurchasePolicy(),
+    this.normalConcurrency = 4,
+    this.backgroundConcurrency = 1,
+    this.backgroundMaxWait = const Duration(seconds: 2),
+    this.verifyPurchases = true,
+  });
+
+  /// 상품 상세 정보 캐시의 유효 시간
+  /// 기본값인 [Duration.zero]인 경우 캐시를 사용하지 않습니다.
+  final Duration productCacheTtl;
+
+  /// 상품 상세 정보 캐시에 보관할 최대 상품 수
+  /// 최대 개수를 넘으면 가장 오래 사용되지 않은 상품부터 제거됩니다.
+  final int productCacheMaxSize;
+
+  /// 상품 상세 정보 요청을 하나로 묶기 위해 대기하는 시간
+  /// 이 시간 안에 들어온 요청들은 상품 타입별로 합쳐서 한 번만 스토어에 요청합니다.
+  /// [Duration.zero]인 경우 이미 대기중인 요청들만 묶고, null이면 묶지 않습니다.
+  final Duration? productDetailsBatchWindow;
+
+  /// 구매 내역 조회([PurchaseClientManager.queryPurchases])와 스토어 정보 조회 결과를 재사용하는 시간
+  /// 동시에 들어온 같은 요청은 항상 하나로 합쳐지며, 이 시간 동안에는 완료된 결과를 다시 전달합니다.
+  /// 소비, 확인 또는 구매가 발생하면 재사용하던 결과는 즉시 폐기됩니다.
+  final Duration resultReuseWindow;
+
+  /// 구매 내역과 상품 상세 정보 응답을 백그라운드 스레드에서 변환할지 여부
+  /// false인 경우 기존과 같이 플랫폼 메인 스레드에서 변환합니다.
+  final bool marshalOffMainThread;
+
+  /// 구매 내역과 상품 상세 정보 목록을 압축된 바이너리 형식으로 전달 받을지 여부
+  /// 목록이 큰 경우 채널로 전달되는 데이터 크기와 변환 비용을 줄일 수 있습니다.
+  final bool binaryTransport;
+
+  /// 구매 정보를 기기에 저장하여 연결 전에도 [PurchaseClientManager.getCachedPurchases]로
+  /// 가져올 수 있게 할지 여부
+  /// true로 설정했던 엔진이 다시 false로 초기화하면, 다른 엔진이 사용하고 있지 않을 때 저장된 정보를 삭제합니다.
+  final bool entitlementSnapshot;
+
+  /// 네이티브 영역에서 연결을 자동으로 복구할지 여부
+  /// 연결되지 않은 동안 들어온 요청은 대기열에 보관했다가 연결이 완료되면 실행합니다.
+  /// 연결이 끊어지면 [reconnectInitialBackoff]부터 두 배씩 늘어나는 간격으로 재연결을 시도합니다.
+  /// 여러 엔진이 같은 연결을 공유하면 한 엔진이라도 true로 설정했거나 [headless] 모드인 동안 자동으로 복구합니다.
+  final bool autoReconnect;
+
+  /// 연결을 기다리는 동안 대기열에 보관할 최대 요청 수
+  /// 대기열이 가득 차면 [PurchaseResponse.serviceUnavailable] 오류로 즉시 실패합니다.
+  final int maxPendingCalls;
+
+  /// 대기열에 보관된 요청이 연결을 기다리는 최대 시간
+  final Duration callTimeout;
+
+  /// 첫 번째 재연결 시도 전 대기 시간
+  final Duration reconnectInitialBackoff;
+
+  /// 재연결 시도 간격의 최대값
+  final Duration reconnectMaxBackoff;
+
+  /// 구매 결과 이벤트를 전달하기 전까지 네이티브 영역에 보관할 최대 이벤트 수
+  /// 가득 차면 가장 오래된 이벤트부터 버려지며,
+  /// [PurchaseClientManager.droppedPurchaseEvents]로 버려진 수를 확인할 수 있습니다.
+  final int purchaseEventBufferSize;
+
+  /// 구매 결과 이벤트를 하나로 묶어서 전달하기 위해 대기하는 시간
+  /// [Duration.zero]인 경우 이미 대기중인 이벤트들만 묶습니다.
+  final Duration purchaseEventBatchWindow;
+
+  /// 연결될 때마다 네이티브 영역에서 모든 상품 타입의 구매 내역을 조회하고 적용할 정책
+  /// 처리 결과는 [PurchaseClientManager.reconciledStream]으로 한 번에 전달됩니다.
+  /// 기본값은 아무 작업도 하지 않는 정책이며, 이 경우 조회도 하지 않습니다.
+  final PurchasePolicy reconcilePolicy;
+
+  /// 앱 화면이 없는 동안에도 연결을 유지하고 도착한 구매를 처리할지 여부
+  /// [PurchaseClientManager.registerBackgroundPurchaseHandler]로 등록한 핸들러를
+  /// 백그라운드 엔진에서 실행하고, 핸들러가 없으면 [headlessPolicy]를 적용합니다.
+  /// 연결은 자동으로 복구되며 [PurchaseClientManager.dispose]를 호출하면 종료됩니다.
+  final bool headless;
+
+  /// [headless] 모드에서 백그라운드 핸들러가 없을 때 네이티브 영역에서 적용할 정책
+  final PurchasePolicy headlessPolicy;
+
+  /// 동시에 스토어에 요청할 수 있는 [CallPriority.normal] 요청 수
+  /// 결제 화면 등 [CallPriority.interactive] 요청은 이 제한과 관계없이 바로 실행됩니다.
+  /// [productDetailsBatchWindow]로 묶이는 상품 상세 정보 요청은 묶음에 전달되는 즉시 슬롯을 반환합니다.
+  final int normalConcurrency;
+
+  /// 동시에 스토어에 요청할 수 있는 [CallPriority.background] 요청 수
+  final int backgroundConcurrency;
+
+  /// [CallPriority.background] 요청은 다른 요청이 대기중이면 실행을 미루지만,
+  /// 이 시간 이상 기다린 요청은 바로 실행됩니다.
+  final Duration backgroundMaxWait;
+
+  /// 구매 내역 조회와 구매 결과의 서명을 네이티브 영역에서 공개키로 검증할지 여부
+  /// 검증 결과는 [PurchaseData.isVerified]로 전달되며, 목록이 크면 여러 코어에서 나누어 검증합니다.
+  final bool verifyPurchases;
+
+  Map<String, dynamic> toArguments() => <String, dynamic>{
+        'productCacheTtlMillis': productCacheTtl.inMilliseconds,
+        'productCacheMaxSize': productCacheMaxSize,
+        'productDetailsBatchWindowMillis':
+            productDetailsBatchWindow?.inMilliseconds ?? -1,
+        'resultReuseMillis': resultReuseWindow.inMilliseconds,
+        'marshalOffMainThread': marshalOffMainThread,
+        'entitlementSnapshot': entitlementSnapshot,
+        'autoReconnect': autoReconnect,
+        'maxPendingCalls': maxPendingCalls,
+        'callTimeoutMillis': callTimeout.inMilliseconds,
+        'reconnectInitialBackoffMillis': reconnectInitialBackoff.inMilliseconds,
+        'reconnectMaxBackoffMillis': reconnectMaxBackoff.inMilliseconds,
+        'purchaseEventBufferSize': purchaseEventBufferSize,
+        'purchaseEventBatchWindowMillis':
+            purchaseEventBatchWindow.inMilliseconds,
+        'reconcilePolicy': reconcilePolicy.toArguments(),
+        'headless': headless,
+        'headlessPolicy': headlessPolicy.toArguments(),
+        'normalConcurrency': normalConcurrency,
+        'backgroundConcurrency': backgroundConcurrency,
+        'backgroundMaxWaitMillis': backgroundMaxWait.inMilliseconds,
+        'verifyPurchases': verifyPurchases,
+      };
+}
+
+/// 네이티브 영역에서 스토어 요청을 실행하는 우선순위
+enum CallPriority {
+  /// 사용자가 기다리는 요청으로, 다른 요청과 관계없이 바로 실행됩니다.
+  /// 결제, 구독 관리, 업데이트 화면은 항상 이 우선순위입니다.
+  interactive,
+
+  /// 조회, 소비, 확인 요청의 기본 우선순위
+  normal,
+
+  /// 카탈로그 동기화처럼 급하지 않은 요청
+  /// 다른 요청이 모두 처리된 뒤에 실행됩니다.
+  background,
+}
@@ -1,35 +1,58 @@
+import 'dart:typed_data';
+
 import 'package:flutter/services.dart';
 
 import '../onestore_channel.dart';
 import 'iap_enum.dart';
 import 'iap_result.dart';
 import 'product_detail.dart';
+import 'purchase_background.dart';
+import 'purchase_batch.dart';
+import 'purchase_binary_codec.dart';
+import 'purchase_client_options.dart';
 import 'purchase_data.dart';
+import 'purchase_reconciliation.dart';
+import 'purchases_delta.dart';
 
 typedef OnServiceDisconnected = void Function();
 typedef OnPurchasesUpdatedListener = void Function(
     PurchasesResultResponse result);
+typedef OnReconciledListener = void Function(PurchaseReconcileSummary summary);
 
 const String _kOnPurchasesUpdated = 'onPurchasesUpdated';
+const String _kOnPurchasesUpdatedBatch = 'onPurchasesUpdatedBatch';
 const String _kOnServiceDisconnected = 'onServiceDisconnected';
+const String _kOnReconciled = 'onReconciled';
 
 class PurchaseClient extends OneStoreChannel {
   final Map<String, List<Function>> _callbacks = <String, List<Function>>{};
+  PurchaseClientOptions _options;
+  int _droppedPurchaseEvents = 0;
+
+  /// 네이티브 영역의 버퍼가 가득 차서 전달되지 못한 구매 결과 이벤트 수
+  int get droppedPurchaseEvents => _droppedPurchaseEvents;
 
   PurchaseClient(
-      String? publicKey, OnPurchasesUpdatedListener onPurchasesUpdated)
-      : super('purchase') {
+      String? publicKey, OnPurchasesUpdatedListener onPurchasesUpdated,
+      [PurchaseClientOptions options = const PurchaseClientOptions()])
+      : _options = options,
+        super('purchase') {
     _callbacks[_kOnPurchasesUpdated] = <OnPurchasesUpdatedListener>[
       onPurchasesUpdated
     ];
     channel.setMethodCallHandler(methodCallHandler);
-    initialize(publicKey);
+    initialize(publicKey, options);
   }
 
-  Future<void> initialize(String? publicKey) async {
-    return channel.invokeMethod<void>('initialize', {
+  Future<void> initialize(String? publicKey,
+      [PurchaseClientOptions options = const PurchaseClientOptions()]) async {
+    _options = options;
+    await channel.invokeMethod<void>('initialize', {
       'publicKey': publicKey,
+      ...options.toArguments(),
     });
+    // 핸들러가 준비되었으므로 네이티브 영역에 보관된 이벤트를 전달 받습니다.
+    return channel.invokeMethod<void>('purchasesUpdatedReady');
   }
 
   Future<bool> isReady() async {
@@ -51,16 +74,53 @@ class PurchaseClient extends OneStoreChannel {
     return channel.invokeMethod<void>('endConnection');
   }
 
+  void setOnReconciledListener(OnReconciledListener listener) {
+    _callbacks[_kOnReconciled] = <OnReconciledListener>[listener];
+  }
+
+  Future<void> registerBackgroundHandler(
+      BackgroundPurchaseHandler? handler) async {
+    return channel.invokeMethod<void>(
+        'registerBackgroundHandler', backgroundHandlerArguments(handler));
+  }
+
   Future<ProductDetailsResponse> queryProductDetails(
-      {required List<String> productIds, required ProductType type}) async {
+      {required List<String> productIds,
+      required ProductType type,
+      bool forceRefresh = false,
+      List<String>? fields,
+      CallPriority? priority,
+      int? callId}) async {
     final Map<String, dynamic> arguments = <String, dynamic>{
       'productIds': productIds,
-      'productType': const ProductTypeConverter().toJson(type)
+      'productType': const ProductTypeConverter().toJson(type),
+      'forceRefresh': forceRefresh,
+      'binary': _options.binaryTransport,
+      'fields': fields,
+      'priority': priority?.name,
+      'callId': callId
     };
-    return ProductDetailsResponse.fromJson(
-        (await channel.invokeMapMethod<String, dynamic>(
+    final Map<String, dynamic> json = (await channel
+            .invokeMapMethod<String, dynamic>(
                 'queryProductDetailsAsync', arguments)) ??
-            <String, dynamic>{});
+        <String, dynamic>{};
+    final Object? binary = json['productDetailsBinary'];
+    if (binary is Uint8List) {
+      return ProductDetailsResponse(
+          iapResult: _toIapResult(json),
+          productDetailsList: PurchaseBinaryCodec.decodeProductDetails(binary));
+    }
+    return ProductDetailsResponse.fromJson(json);
+  }
+
+  Future<Map<String, dynamic>> getProductCacheStats() async {
+    return (await channel
+            .invokeMapMethod<String, dynamic>('getProductCacheStats')) ??
+        <String, dynamic>{};
+  }
+
+  Future<void> clearProductCache() async {
+    return channel.invokeMethod<void>('clearProductCache');
   }
 
   Future<IapResult> launchUpdateOrInstallFlow() async {
@@ -89,16 +149,106 @@ class PurchaseClient extends OneStoreChannel {
         <String, dynamic>{});
   }
 
-  Future<PurchasesResultResponse> queryPurchases(ProductType type) async {
+  Future<PurchaseBatchResponse> consumeBatch(List<PurchaseData> purchases,
+      {int? maxConcurrency}) async {
+    return _invokeBatch('consumeBatch', purchases, maxConcurrency);
+  }
+
+  Future<PurchaseBatchResponse> acknowledgeBatch(List<PurchaseData> purchases,
+      {int? maxConcurrency}) async {
+    return _invokeBatch('acknowledgeBatch', purchases, maxConcurrency);
+  }
+
+  Future<PurchaseBatchResponse> _invokeBatch(
+      String method, List<PurchaseData> purchases, int? maxConcurrency) async {
     final Map<String, dynamic> arguments = <String, dynamic>{
-      'productType': const ProductTypeConverter().toJson(type)
+      'purchases': purchases
+          .map((e) => <String, dynamic>{
+                'originalJson': e.originalJson,
+                'signature': e.signature
+              })
+          .toList(),
+      if (maxConcurrency != null) 'maxConcurrency': maxConcurrency,
     };
-    return PurchasesResultResponse.fromJson(
-        (await channel.invokeMapMethod<String, dynamic>(
-                'queryPurchasesAsync', arguments)) ??
+    return PurchaseBatchResponse.fromJson(
+        (await channel.invokeMapMethod<String, dynamic>(method, arguments)) ??
             <String, dynamic>{});
   }
 
+  Future<PurchasesResultResponse> queryPurchases(ProductType type,
+      {List<String>? fields, CallPriority? priority, int? callId}) async {
+    final Map<String, dynamic> arguments = <String, dynamic>{
+      'productType': const ProductTypeConverter().toJson(type),
+      'binary': _options.binaryTransport,
+      'fields': fields,
+      'priority': priority?.name,
+      'callId': callId
+    };
+    final Map<String, dynamic> json = (await channel
+            .invokeMapMethod<String, dynamic>(
+                'queryPurchasesAsync', arguments)) ??
+        <String, dynamic>{};
+    final Object? binary = json['purchasesBinary'];
+    if (binary is Uint8List) {
+      return PurchasesResultResponse(
+          iapResult: _toIapResult(json),
+          purchasesList: withVerifiedFlags(
+              PurchaseBinaryCodec.decodePurchases(binary),
+              json['verifiedList']));
+    }
+    return _toPurchasesResult(json);
+  }
+
+  Future<PurchasesDeltaResponse> queryPurchasesDelta(ProductType type,
+      {int? sinceVersion,
+      List<String>? fields,
+      CallPriority? priority,
+      int? callId}) async {
+    final Map<String, dynamic> arguments = <String, dynamic>{
+      'productType': const ProductTypeConverter().toJson(type),
+      'sinceVersion': sinceVersion,
+      'binary': _options.binaryTransport,
+      'fields': fields,
+      'priority': priority?.name,
+      'callId': callId
+    };
+    final Map<String, dynamic> json = (await channel
+            .invokeMapMethod<String, dynamic>(
+                'queryPurchasesAsync', arguments)) ??
+        <String, dynamic>{};
+    final Object? binary = json['purchasesBinary'];
+    return PurchasesDeltaResponse.fromJson(
+        json,
+        binary is Uint8List
+            ? PurchaseBinaryCodec.decodePurchases(binary)
+            : null);
+  }
+
+  Future<List<PurchaseData>> getCachedPurchases() async {
+    final Map<String, dynamic> json = (await channel
+            .invokeMapMethod<String, dynamic>('getCachedPurchases')) ??
+        <String, dynamic>{};
+    return (json['purchasesList'] as List<dynamic>?)
+            ?.map((e) =>
+                PurchaseData.fromJson(Map<String, dynamic>.from(e as Map)))
+            .toList() ??
+        const <PurchaseData>[];
+  }
+
+  PurchasesResultResponse _toPurchasesResult(Map<String, dynamic> json) {
+    final PurchasesResultResponse response =
+        PurchasesResultResponse.fromJson(json);
+    return PurchasesResultResponse(
+        iapResult: response.iapResult,
+        purchasesList:
+            withVerifiedFlags(response.purchasesList, json['verifiedList']));
+  }
+
+  IapResult _toIapResult(Map<String, dynamic> json) {
+    return IapResult.fromJson(
+        (json['iapResult'] as Map<dynamic, dynamic>?)?.cast<String, dynamic>());
+  }
+
   Future<IapResult> launchPurchaseFlow({
     required String productId,
     required ProductType productType,
@@ -149,10 +299,32 @@ class PurchaseClient extends OneStoreChannel {
             _callbacks[_kOnPurchasesUpdated]!.first
                 as OnPurchasesUpdatedListener;
 
-        onPurchasesUpdated(PurchasesResultResponse.fromJson(
+        onPurchasesUpdated(_toPurchasesResult(
             (call.arguments as Map<dynamic, dynamic>).cast<String, dynamic>()));
         break;
 
+      case _kOnPurchasesUpdatedBatch:
+        final OnPurchasesUpdatedListener onPurchasesUpdated =
+            _callbacks[_kOnPurchasesUpdated]!.first
+                as OnPurchasesUpdatedListener;
+        final Map<dynamic, dynamic> arguments =
+            call.arguments as Map<dynamic, dynamic>;
+        _droppedPurchaseEvents = arguments['dropped'] as int? ?? 0;
+        for (final dynamic event in arguments['events'] as List<dynamic>) {
+          onPurchasesUpdated(_toPurchasesResult(
+              (event as Map<dynamic, dynamic>).cast<String, dynamic>()));
+        }
+        break;
+
+      case _kOnReconciled:
+        final List<Function>? onReconciled = _callbacks[_kOnReconciled];
+        if (onReconciled == null) break;
+        (onReconciled.first as OnReconciledListener)(
+            PurchaseReconcileSummary.fromJson(
+                (call.arguments as Map<dynamic, dynamic>)
+                    .cast<String, dynamic>()));
+        break;
+
       case _kOnServiceDisconnected:
         final int handle =
             (call.arguments as Map<Object?, Object?>)['handle']! as int;
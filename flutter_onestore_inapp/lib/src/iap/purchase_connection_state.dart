@@ -0,0 +1,56 @@
+import 'package:flutter/services.dart';
+
+import '../onestore_channel.dart';
+import 'iap_enum.dart';
+
+const EventChannel _connectionChannel =
+    EventChannel('${OneStoreChannel.rootChannel}/purchase/connection');
+
+/// 네이티브 영역의 결제 모듈 연결 상태가 바뀔 때마다 [PurchaseConnectionEvent]를 전달합니다.
+/// 구독을 시작하면 마지막으로 알려진 상태가 먼저 전달됩니다.
+Stream<PurchaseConnectionEvent> receivePurchaseConnectionEvents() {
+  return _connectionChannel.receiveBroadcastStream().map((dynamic event) =>
+      PurchaseConnectionEvent.fromJson(
+          (event as Map<dynamic, dynamic>).cast<String, dynamic>()));
+}
+
+/// 결제 모듈 연결 상태의 변화
+class PurchaseConnectionEvent {
+  const PurchaseConnectionEvent({
+    required this.status,
+    required this.responseCode,
+    required this.reason,
+    required this.timestamp,
+  });
+
+  factory PurchaseConnectionEvent.fromJson(Map<String, dynamic> map) {
+    final String state = map['state'] as String? ?? '';
+    return PurchaseConnectionEvent(
+      status: ConnectionStatus.values.firstWhere((e) => e.name == state,
+          orElse: () => ConnectionStatus.disconnected),
+      responseCode: const PurchaseResponseConverter()
+          .fromJson(map['responseCode'] as int?),
+      reason: map['reason'] as String? ?? '',
+      timestamp: DateTime.fromMillisecondsSinceEpoch(
+          map['timestamp'] as int? ?? 0),
+    );
+  }
+
+  /// 바뀐 연결 상태
+  final ConnectionStatus status;
+
+  /// 상태와 함께 전달된 응답 코드 (예: 연결 실패 원인)
+  final PurchaseResponse responseCode;
+
+  /// 상태가 바뀐 이유
+  /// `requested`, `reconnect`, `setupFinished`, `setupFailed`,
+  /// `serviceDisconnected`, `ended`, `attached` 중 하나입니다.
+  final String reason;
+
+  /// 상태가 바뀐 시각
+  final DateTime timestamp;
+
+  @override
+  String toString() => 'PurchaseConnectionEvent($status, '
+      'responseCode=$responseCode, reason=$reason, timestamp=$timestamp)';
+}
@@ -26,7 +26,8 @@ class PurchaseData {
       required this.isAcknowledged,
       this.developerPayload,
       required this.originalJson,
-      required this.signature});
+      required this.signature,
+      this.isVerified});
 
   factory PurchaseData.fromJson(Map<String, dynamic> map) =>
       _$PurchaseDataFromJson(map);
@@ -79,6 +80,28 @@ class PurchaseData {
   @JsonKey(defaultValue: '')
   final String? signature;
 
+  /// 네이티브 영역에서 공개키로 [signature]를 검증한 결과
+  /// 공개키가 없거나 `verifyPurchases` 옵션이 false여서 검증하지 않은 경우 null입니다.
+  /// 같은 구매는 검증 여부와 관계없이 같은 값으로 비교되도록 `==`와 [hashCode]에는 포함하지 않습니다.
+  final bool? isVerified;
+
+  PurchaseData _withVerified(bool? isVerified) {
+    return PurchaseData(
+        orderId: orderId,
+        productId: productId,
+        packageName: packageName,
+        purchaseTime: purchaseTime,
+        purchaseToken: purchaseToken,
+        purchaseState: purchaseState,
+        recurringState: recurringState,
+        quantity: quantity,
+        isAcknowledged: isAcknowledged,
+        developerPayload: developerPayload,
+        originalJson: originalJson,
+        signature: signature,
+        isVerified: isVerified);
+  }
+
   @override
   String toString() {
     var pState = const PurchaseStateConverter().toJson(purchaseState);
@@ -86,7 +109,8 @@ class PurchaseData {
     return 'PurchaseData(orderId=$orderId, productId=$productId, '
         'packageName=$packageName, purchaseTime=$purchaseTime, '
         'purchaseToken=$purchaseToken, purchaseState=$pState, '
-        'recurringState=$rState, quantity=$quantity, isAcknowledged=$isAcknowledged)';
+        'recurringState=$rState, quantity=$quantity, '
+        'isAcknowledged=$isAcknowledged, isVerified=$isVerified)';
   }
 
   @override
@@ -123,6 +147,20 @@ class PurchaseData {
       originalJson);
 }
 
+/// 네이티브 영역이 함께 전달한 [verifiedList]의 서명 검증 결과를 같은 순서의
+/// [purchases]에 적용합니다. 검증 결과가 없으면 [purchases]를 그대로 반환합니다.
+List<PurchaseData> withVerifiedFlags(
+    List<PurchaseData> purchases, Object? verifiedList) {
+  if (verifiedList is! List<dynamic> ||
+      verifiedList.length != purchases.length) {
+    return purchases;
+  }
+  return <PurchaseData>[
+    for (int i = 0; i < purchases.length; i++)
+      purchases[i]._withVerified(verifiedList[i] as bool?)
+  ];
+}
+
 @JsonSerializable()
 @immutable
 class PurchasesResultResponse implements HasPurchaseResponse {
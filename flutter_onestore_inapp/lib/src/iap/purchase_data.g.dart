@@ -21,6 +21,7 @@ PurchaseData _$PurchaseDataFromJson(Map json) => PurchaseData(
       developerPayload: json['developerPayload'] as String? ?? '',
       originalJson: json['originalJson'] as String? ?? '',
       signature: json['signature'] as String? ?? '',
+      isVerified: json['isVerified'] as bool?,
     );
 
 PurchasesResultResponse _$PurchasesResultResponseFromJson(Map json) =>
@@ -0,0 +1,100 @@
+import 'package:flutter/material.dart';
+
+import 'iap_result.dart';
+import 'purchase_background.dart';
+
+/// 연결 직후 네이티브 영역에서 처리한 구매 한 건의 결과입니다.
+@immutable
+class PurchaseReconcileResult {
+  const PurchaseReconcileResult({
+    required this.productId,
+    required this.purchaseToken,
+    required this.action,
+    required this.iapResult,
+  });
+
+  factory PurchaseReconcileResult.fromJson(Map<String, dynamic> map) {
+    return PurchaseReconcileResult(
+      productId: map['productId'] as String? ?? '',
+      purchaseToken: map['purchaseToken'] as String? ?? '',
+      action: PurchaseAction.values.firstWhere(
+          (e) => e.name == map['action'],
+          orElse: () => PurchaseAction.none),
+      iapResult: IapResult.fromJson((map['iapResult'] as Map<dynamic, dynamic>?)
+          ?.cast<String, dynamic>()),
+    );
+  }
+
+  final String productId;
+
+  final String purchaseToken;
+
+  /// 적용한 작업
+  final PurchaseAction action;
+
+  final IapResult iapResult;
+
+  @override
+  String toString() {
+    return 'PurchaseReconcileResult(productId=$productId, '
+        'action=${action.name}, $iapResult)';
+  }
+}
+
+/// [PurchaseClientOptions.reconcilePolicy]에 따라 연결 직후 수행한 구매 정리 작업의 요약입니다.
+@immutable
+class PurchaseReconcileSummary {
+  const PurchaseReconcileSummary({
+    required this.iapResult,
+    this.queried = 0,
+    this.acknowledged = 0,
+    this.consumed = 0,
+    this.failed = 0,
+    this.elapsed = Duration.zero,
+    this.results = const <PurchaseReconcileResult>[],
+  });
+
+  factory PurchaseReconcileSummary.fromJson(Map<String, dynamic> map) {
+    return PurchaseReconcileSummary(
+      iapResult: IapResult.fromJson((map['iapResult'] as Map<dynamic, dynamic>?)
+          ?.cast<String, dynamic>()),
+      queried: map['queried'] as int? ?? 0,
+      acknowledged: map['acknowledged'] as int? ?? 0,
+      consumed: map['consumed'] as int? ?? 0,
+      failed: map['failed'] as int? ?? 0,
+      elapsed: Duration(milliseconds: map['elapsedMillis'] as int? ?? 0),
+      results: (map['results'] as List<dynamic>?)
+              ?.map((e) => PurchaseReconcileResult.fromJson(
+                  (e as Map<dynamic, dynamic>).cast<String, dynamic>()))
+              .toList() ??
+          const <PurchaseReconcileResult>[],
+    );
+  }
+
+  /// 구매 내역 조회 결과. 일부 상품 타입의 조회에 실패하면 해당 오류가 전달됩니다.
+  final IapResult iapResult;
+
+  /// 조회된 구매 수
+  final int queried;
+
+  /// 확인(acknowledge)된 구매 수
+  final int acknowledged;
+
+  /// 소비(consume)된 구매 수
+  final int consumed;
+
+  /// 처리에 실패한 구매 수
+  final int failed;
+
+  /// 조회부터 처리 완료까지 걸린 시간
+  final Duration elapsed;
+
+  final List<PurchaseReconcileResult> results;
+
+  @override
+  String toString() {
+    return 'PurchaseReconcileSummary(queried=$queried, '
+        'acknowledged=$acknowledged, consumed=$consumed, failed=$failed, '
+        'elapsed=${elapsed.inMilliseconds}ms, $iapResult)';
+  }
+}
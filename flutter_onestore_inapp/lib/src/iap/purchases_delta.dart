@@ -0,0 +1,100 @@
+import 'package:flutter/foundation.dart';
+
+import 'iap_enum.dart';
+import 'iap_result.dart';
+import 'purchase_client_manager.dart';
+import 'purchase_data.dart';
+
+/// 이전에 받은 버전 이후 변경된 구매 정보만 담은 응답입니다.
+///
+/// [isFull]이 true인 경우 네이티브에 해당 버전의 정보가 남아있지 않아
+/// [purchasesList]에 전체 구매 정보가 전달됩니다.
+@immutable
+class PurchasesDeltaResponse implements HasPurchaseResponse {
+  const PurchasesDeltaResponse({
+    required this.iapResult,
+    required this.version,
+    required this.isFull,
+    this.purchasesList = const <PurchaseData>[],
+    this.added = const <PurchaseData>[],
+    this.changed = const <PurchaseData>[],
+    this.removed = const <String>[],
+  });
+
+  factory PurchasesDeltaResponse.fromJson(Map<String, dynamic> map,
+      [List<PurchaseData>? purchasesList]) {
+    return PurchasesDeltaResponse(
+      iapResult: IapResult.fromJson((map['iapResult'] as Map<dynamic, dynamic>?)
+          ?.cast<String, dynamic>()),
+      version: map['version'] as int? ?? -1,
+      isFull: map['full'] as bool? ?? true,
+      purchasesList: withVerifiedFlags(
+          purchasesList ?? _toPurchases(map['purchasesList']),
+          map['verifiedList']),
+      added: withVerifiedFlags(
+          _toPurchases(map['added']), map['addedVerified']),
+      changed: withVerifiedFlags(
+          _toPurchases(map['changed']), map['changedVerified']),
+      removed: (map['removed'] as List<dynamic>?)?.cast<String>() ??
+          const <String>[],
+    );
+  }
+
+  final IapResult iapResult;
+
+  /// 다음 요청의 `sinceVersion`으로 전달할 스냅샷 버전
+  final int version;
+
+  /// 전체 구매 정보가 전달되었는지 여부
+  final bool isFull;
+
+  /// [isFull]이 true인 경우 전달되는 전체 구매 정보
+  final List<PurchaseData> purchasesList;
+
+  /// 새로 추가된 구매 정보
+  final List<PurchaseData> added;
+
+  /// 내용이 변경된 구매 정보 (예: 구매 확인, 정기 결제 상태 변경)
+  final List<PurchaseData> changed;
+
+  /// 더 이상 조회되지 않는 구매 정보의 purchaseToken
+  final List<String> removed;
+
+  @override
+  PurchaseResponse get responseCode => iapResult.responseCode;
+
+  /// [previous] 구매 정보에 변경 사항을 적용한 결과를 반환합니다.
+  List<PurchaseData> applyTo(List<PurchaseData> previous) {
+    if (isFull) return purchasesList;
+
+    final Map<String, PurchaseData> byToken = <String, PurchaseData>{
+      for (final PurchaseData purchase in previous)
+        purchase.purchaseToken: purchase
+    };
+    for (final String token in removed) {
+      byToken.remove(token);
+    }
+    for (final PurchaseData purchase in changed) {
+      byToken[purchase.purchaseToken] = purchase;
+    }
+    for (final PurchaseData purchase in added) {
+      byToken[purchase.purchaseToken] = purchase;
+    }
+    return byToken.values.toList(growable: false);
+  }
+
+  static List<PurchaseData> _toPurchases(Object? list) {
+    return (list as List<dynamic>?)
+            ?.map((e) =>
+                PurchaseData.fromJson(Map<String, dynamic>.from(e as Map)))
+            .toList() ??
+        const <PurchaseData>[];
+  }
+
+  @override
+  String toString() {
+    return 'PurchasesDeltaResponse($iapResult, version=$version, '
+        'isFull=$isFull, added=${added.length}, changed=${changed.length}, '
+        'removed=${removed.length})';
+  }
+}
@@ -0,0 +1,131 @@
+import 'onestore_base.dart';
+
+/// 네이티브 영역에서 응답을 기다리는 채널 호출을 조회하고 취소합니다.
+///
+/// 모든 호출에는 응답 기한이 있으며, 기한이 지나면 [timeoutErrorCode] 코드의
+/// `PlatformException`으로, 취소되면 [cancelledErrorCode] 코드로 완료됩니다.
+class OneStoreCalls {
+  /// 응답 기한이 지난 호출의 오류 코드
+  static const String timeoutErrorCode = 'timeout';
+
+  /// 취소된 호출의 오류 코드
+  static const String cancelledErrorCode = 'cancelled';
+
+  /// 응답을 기다리는 호출을 오래된 순서로 가져옵니다.
+  static Future<List<PendingCall>> getPendingCalls() async {
+    final List<dynamic>? calls =
+        await baseChannel.invokeMethod<List<dynamic>>('getPendingCalls');
+    return (calls ?? <dynamic>[])
+        .map((e) => PendingCall.fromJson(
+            (e as Map<dynamic, dynamic>).cast<String, dynamic>()))
+        .toList();
+  }
+
+  static int _nextCallId = 1;
+
+  /// 호출할 때 `callId`로 전달할 새 ID를 만듭니다.
+  /// 같은 메서드를 동시에 여러 번 호출하더라도 이 ID로 [cancel]하면 해당 호출만 취소됩니다.
+  static int newCallId() {
+    final int callId = _nextCallId;
+    _nextCallId = callId >= 0x7fffffff ? 1 : callId + 1;
+    return callId;
+  }
+
+  /// [callId] 호출을 취소합니다. 이미 응답한 호출이면 false를 반환합니다.
+  /// `callId`를 지정하지 않은 호출의 ID는 [getPendingCalls]로 확인할 수 있습니다.
+  static Future<bool> cancel(int callId) async {
+    return await baseChannel
+            .invokeMethod<bool>('cancelCall', {'callId': callId}) ??
+        false;
+  }
+
+  /// 응답 기한을 변경합니다. 0 이하는 기한이 없음을 의미합니다.
+  ///
+  /// [methodTimeouts]의 키는 `purchase/queryPurchasesAsync`와 같은 형식이며,
+  /// 지정하지 않은 로그인, 결제 등 사용자 입력을 기다리는 메서드는 10분입니다.
+  static Future<void> setTimeouts({
+    Duration defaultTimeout = const Duration(seconds: 60),
+    Map<String, Duration> methodTimeouts = const <String, Duration>{},
+  }) async {
+    return baseChannel.invokeMethod<void>('setCallTimeouts', {
+      'defaultTimeoutMillis': defaultTimeout.inMilliseconds,
+      'methodTimeoutMillis': methodTimeouts
+          .map((key, value) => MapEntry(key, value.inMilliseconds)),
+    });
+  }
+
+  /// 기한 초과, 취소, 기한이 지난 뒤 도착해 버려진 응답의 누적 횟수를 가져옵니다.
+  static Future<CallStats> getStats() async {
+    final Map<dynamic, dynamic>? stats =
+        await baseChannel.invokeMethod<Map<dynamic, dynamic>>('getCallStats');
+    return CallStats.fromJson(
+        (stats ?? <dynamic, dynamic>{}).cast<String, dynamic>());
+  }
+}
+
+/// 응답을 기다리는 채널 호출 한 건
+class PendingCall {
+  const PendingCall({
+    required this.callId,
+    required this.channel,
+    required this.method,
+    required this.elapsed,
+  });
+
+  factory PendingCall.fromJson(Map<String, dynamic> map) {
+    return PendingCall(
+      callId: map['callId'] as int? ?? 0,
+      channel: map['channel'] as String? ?? '',
+      method: map['method'] as String? ?? '',
+      elapsed: Duration(milliseconds: map['elapsedMillis'] as int? ?? 0),
+    );
+  }
+
+  final int callId;
+
+  final String channel;
+
+  final String method;
+
+  /// 호출 후 지난 시간
+  final Duration elapsed;
+
+  @override
+  String toString() =>
+      'PendingCall($callId $channel/$method ${elapsed.inMilliseconds}ms)';
+}
+
+/// 채널 호출 추적 통계
+class CallStats {
+  const CallStats({
+    this.pending = 0,
+    this.timedOut = 0,
+    this.cancelled = 0,
+    this.lateReplies = 0,
+  });
+
+  factory CallStats.fromJson(Map<String, dynamic> map) {
+    return CallStats(
+      pending: map['pending'] as int? ?? 0,
+      timedOut: map['timedOut'] as int? ?? 0,
+      cancelled: map['cancelled'] as int? ?? 0,
+      lateReplies: map['lateReplies'] as int? ?? 0,
+    );
+  }
+
+  /// 응답을 기다리는 호출 수
+  final int pending;
+
+  /// 응답 기한이 지난 호출 수
+  final int timedOut;
+
+  /// 취소된 호출 수
+  final int cancelled;
+
+  /// 기한 초과나 취소 후에 도착해서 버려진 응답 수
+  final int lateReplies;
+
+  @override
+  String toString() => 'CallStats(pending=$pending, timedOut=$timedOut, '
+      'cancelled=$cancelled, lateReplies=$lateReplies)';
+}
@@ -1,12 +1,81 @@
+import 'dart:async';
+
+import 'package:flutter/services.dart';
 import 'package:flutter_onestore_inapp/src/onestore_base.dart';
 
 
 class OneStoreEnvironment {
+  static final StreamController<StoreEnvironmentSnapshot> _changes =
+      StreamController<StoreEnvironmentSnapshot>.broadcast(
+          onListen: () => baseChannel.setMethodCallHandler(_handleMethodCall),
+          onCancel: () => baseChannel.setMethodCallHandler(null));
+
   static Future<StoreType> getStoreType() async {
     final int? result = await baseChannel.invokeMethod<int?>("getStoreType");
     // result가 null인 경우 0(unknown)으로 처리
     return StoreType.fromValue(result ?? 0);
   }
+
+  /// 스토어 타입, 스토어 코드, 연결 상태, SDK 버전을 한 번의 호출로 가져옵니다.
+  ///
+  /// 네이티브 영역에 보관된 값을 전달하므로 앱 시작 시 여러 번 호출할 필요가 없습니다.
+  /// 스토어 코드는 결제 모듈이 연결된 후에 채워집니다.
+  static Future<StoreEnvironmentSnapshot> getSnapshot() async {
+    final Map<dynamic, dynamic>? snapshot =
+        await baseChannel.invokeMethod<Map<dynamic, dynamic>>('getEnvironment');
+    return StoreEnvironmentSnapshot.fromJson(
+        (snapshot ?? <dynamic, dynamic>{}).cast<String, dynamic>());
+  }
+
+  /// 연결, 재연결 또는 스토어 앱의 설치, 삭제로 환경 정보가 바뀔 때마다 새 스냅샷을 전달합니다.
+  static Stream<StoreEnvironmentSnapshot> get changes => _changes.stream;
+
+  static Future<dynamic> _handleMethodCall(MethodCall call) async {
+    if (call.method == 'onEnvironmentChanged') {
+      _changes.add(StoreEnvironmentSnapshot.fromJson(
+          (call.arguments as Map<dynamic, dynamic>).cast<String, dynamic>()));
+    }
+  }
+}
+
+/// 네이티브 영역에 보관된 스토어 환경 정보
+class StoreEnvironmentSnapshot {
+  const StoreEnvironmentSnapshot({
+    required this.storeType,
+    this.storeCode,
+    this.isConnected = false,
+    this.iapSdkVersion = '',
+    this.licenseSdkVersion = '',
+  });
+
+  factory StoreEnvironmentSnapshot.fromJson(Map<String, dynamic> map) {
+    return StoreEnvironmentSnapshot(
+      storeType: StoreType.fromValue(map['storeType'] as int? ?? 0),
+      storeCode: map['storeCode'] as String?,
+      isConnected: map['connected'] as bool? ?? false,
+      iapSdkVersion: map['iapSdkVersion'] as String? ?? '',
+      licenseSdkVersion: map['licenseSdkVersion'] as String? ?? '',
+    );
+  }
+
+  final StoreType storeType;
+
+  /// 연결된 스토어의 코드, 결제 모듈이 연결되기 전에는 null
+  final String? storeCode;
+
+  /// 결제 모듈이 스토어 서비스에 연결되어 있는지 여부
+  final bool isConnected;
+
+  /// 네이티브 IAP SDK 버전
+  final String iapSdkVersion;
+
+  /// 네이티브 License SDK 버전
+  final String licenseSdkVersion;
+
+  @override
+  String toString() => 'StoreEnvironmentSnapshot(storeType=$storeType, '
+      'storeCode=$storeCode, isConnected=$isConnected, '
+      'iapSdkVersion=$iapSdkVersion, licenseSdkVersion=$licenseSdkVersion)';
 }
 
 enum StoreType {
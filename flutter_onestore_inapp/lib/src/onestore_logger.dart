@@ -4,6 +4,28 @@ class OneStoreLogger {
   static Future<void> setLogLevel(LogLevel logLevel) async {
     return baseChannel.invokeMethod<void>('setLogLevel', logLevel.name);
   }
+
+  /// 네이티브 영역에 기록된 최근 채널 호출 이벤트를 오래된 순서로 가져옵니다.
+  /// 문의 접수 시 진단 정보로 활용할 수 있습니다.
+  static Future<List<LogEvent>> getLogEvents() async {
+    final List<dynamic>? events =
+        await baseChannel.invokeMethod<List<dynamic>>('getLogEvents');
+    return (events ?? <dynamic>[])
+        .map((e) => LogEvent.fromJson(
+            (e as Map<dynamic, dynamic>).cast<String, dynamic>()))
+        .toList();
+  }
+
+  /// 기록된 이벤트를 모두 삭제합니다.
+  static Future<void> clearLogEvents() async {
+    return baseChannel.invokeMethod<void>('clearLogEvents');
+  }
+
+  /// 보관할 최대 이벤트 수를 변경합니다. 기존에 기록된 이벤트는 삭제됩니다.
+  static Future<void> setLogEventCapacity(int capacity) async {
+    return baseChannel
+        .invokeMethod<void>('setLogEventCapacity', {'capacity': capacity});
+  }
 }
 
 enum LogLevel {
@@ -13,3 +35,42 @@ enum LogLevel {
   warning,
   error,
 }
+
+/// 네이티브 영역에서 기록한 채널 호출 한 건
+class LogEvent {
+  const LogEvent({
+    required this.time,
+    required this.channel,
+    required this.method,
+    required this.code,
+    required this.duration,
+  });
+
+  factory LogEvent.fromJson(Map<String, dynamic> map) {
+    return LogEvent(
+      time: DateTime.fromMillisecondsSinceEpoch(map['time'] as int? ?? 0),
+      channel: map['channel'] as String? ?? '',
+      method: map['method'] as String? ?? '',
+      code: map['code'] as int? ?? 0,
+      duration: Duration(microseconds: map['durationMicros'] as int? ?? 0),
+    );
+  }
+
+  /// 응답한 시각
+  final DateTime time;
+
+  final String channel;
+
+  final String method;
+
+  /// 0은 성공, 그 외에는 오류 코드입니다.
+  /// -1은 숫자가 아닌 오류 코드, -2는 지원하지 않는 메서드입니다.
+  final int code;
+
+  /// 호출부터 응답까지 걸린 시간
+  final Duration duration;
+
+  @override
+  String toString() =>
+      '$time $channel/$method code=$code ${duration.inMicroseconds}us';
+}
@@ -0,0 +1,102 @@
+import 'onestore_base.dart';
+
+/// 네이티브 메서드 채널 호출의 횟수와 지연 시간 통계를 조회합니다.
+class OneStoreMetrics {
+  /// 채널과 메서드별 통계를 가져옵니다. 키는 `purchase/queryPurchasesAsync`와 같은 형식입니다.
+  static Future<Map<String, MethodMetrics>> getMetrics() async {
+    final Map<dynamic, dynamic>? result =
+        await baseChannel.invokeMethod<Map<dynamic, dynamic>>('getMetrics');
+    return <String, MethodMetrics>{
+      for (final MapEntry<dynamic, dynamic> entry
+          in (result ?? <dynamic, dynamic>{}).entries)
+        entry.key as String: MethodMetrics.fromJson(
+            Map<String, dynamic>.from(entry.value as Map))
+    };
+  }
+
+  /// 누적된 통계를 초기화합니다. 처리중인 호출 수는 유지됩니다.
+  static Future<void> resetMetrics() async {
+    return baseChannel.invokeMethod<void>('resetMetrics');
+  }
+}
+
+/// 메서드 하나의 호출 통계
+class MethodMetrics {
+  const MethodMetrics({
+    required this.count,
+    required this.errors,
+    required this.inFlight,
+    required this.handler,
+    required this.reply,
+  });
+
+  factory MethodMetrics.fromJson(Map<String, dynamic> map) {
+    return MethodMetrics(
+      count: map['count'] as int? ?? 0,
+      errors: map['errors'] as int? ?? 0,
+      inFlight: map['inFlight'] as int? ?? 0,
+      handler: LatencyHistogram.fromJson(map['handler']),
+      reply: LatencyHistogram.fromJson(map['reply']),
+    );
+  }
+
+  /// 호출 횟수
+  final int count;
+
+  /// 오류로 응답한 횟수
+  final int errors;
+
+  /// 아직 응답하지 않은 호출 수
+  final int inFlight;
+
+  /// 채널 호출부터 네이티브 핸들러가 반환될 때까지 걸린 시간
+  final LatencyHistogram handler;
+
+  /// 핸들러 반환부터 응답까지 걸린 시간
+  ///
+  /// 요청이 네이티브 대기열에서 기다린 시간은 이 값에 포함됩니다.
+  final LatencyHistogram reply;
+
+  @override
+  String toString() {
+    return 'MethodMetrics(count=$count, errors=$errors, inFlight=$inFlight, '
+        'handler=$handler, reply=$reply)';
+  }
+}
+
+/// 마이크로초 단위의 지연 시간 분포
+///
+/// 2의 거듭제곱 구간으로 집계하므로 백분위 값은 해당 구간의 상한값입니다.
+class LatencyHistogram {
+  const LatencyHistogram({
+    this.p50 = 0,
+    this.p90 = 0,
+    this.p99 = 0,
+    this.max = 0,
+    this.buckets = const <int>[],
+  });
+
+  factory LatencyHistogram.fromJson(Object? json) {
+    if (json is! Map) return const LatencyHistogram();
+    return LatencyHistogram(
+      p50: json['p50'] as int? ?? 0,
+      p90: json['p90'] as int? ?? 0,
+      p99: json['p99'] as int? ?? 0,
+      max: json['max'] as int? ?? 0,
+      buckets:
+          (json['buckets'] as List<dynamic>?)?.cast<int>() ?? const <int>[],
+    );
+  }
+
+  final int p50;
+  final int p90;
+  final int p99;
+  final int max;
+
+  /// i번째 값은 [2^(i-1), 2^i) 마이크로초 구간의 호출 수입니다.
+  final List<int> buckets;
+
+  @override
+  String toString() =>
+      'p50=${p50}us, p90=${p90}us, p99=${p99}us, max=${max}us';
+}
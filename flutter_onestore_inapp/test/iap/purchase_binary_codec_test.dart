@@ -0,0 +1,245 @@
+import 'dart:convert';
+import 'dart:typed_data';
+
+import 'package:flutter_onestore_inapp/flutter_onestore_inapp.dart';
+import 'package:flutter_onestore_inapp/src/iap/purchase_binary_codec.dart';
+import 'package:flutter_test/flutter_test.dart';
+
+const int _typeString = 0;
+const int _typeInt32 = 1;
+const int _typeInt64 = 2;
+const int _typeBool = 3;
+
+const List<PurchaseData> purchases = <PurchaseData>[
+  PurchaseData(
+      orderId: 'ORDER0',
+      productId: 'product_0',
+      packageName: 'com.onestorecorp.sdk.flutter.test',
+      purchaseTime: 1700000000000,
+      purchaseToken: 'TOKEN00000000',
+      purchaseState: PurchaseState.purchased,
+      recurringState: RecurringState.notAutoProduct,
+      quantity: 1,
+      isAcknowledged: true,
+      developerPayload: '결제 페이로드',
+      originalJson: '{"orderId":"ORDER0"}',
+      signature: 'signature0'),
+  PurchaseData(
+      orderId: 'ORDER1',
+      productId: 'product_1',
+      packageName: 'com.onestorecorp.sdk.flutter.test',
+      purchaseTime: 1700000001000,
+      purchaseToken: 'TOKEN00000001',
+      purchaseState: PurchaseState.cancel,
+      recurringState: RecurringState.recurring,
+      quantity: 3,
+      isAcknowledged: false,
+      originalJson: '{"orderId":"ORDER1"}',
+      signature: 'signature1'),
+];
+
+const List<ProductDetail> productDetails = <ProductDetail>[
+  ProductDetail(
+      productId: 'product_0',
+      productType: ProductType.subs,
+      title: 'Product 0',
+      price: '1100',
+      priceCurrencyCode: 'KRW',
+      priceAmountMicros: '1100000000',
+      subscriptionPeriodUnitCode: 'M',
+      subscriptionPeriod: '1',
+      freeTrialPeriod: '',
+      promotionPrice: '',
+      promotionPriceMicros: '',
+      promotionUsePeriod: '',
+      paymentGracePeriod: ''),
+  ProductDetail(
+      productId: 'product_1',
+      productType: ProductType.inapp,
+      title: 'Product 1',
+      price: '1200',
+      priceCurrencyCode: 'KRW',
+      priceAmountMicros: '1200000000',
+      subscriptionPeriodUnitCode: '',
+      subscriptionPeriod: '',
+      freeTrialPeriod: '',
+      promotionPrice: '',
+      promotionPriceMicros: '',
+      promotionUsePeriod: '',
+      paymentGracePeriod: ''),
+];
+
+void main() {
+  group('PurchaseBinaryCodec', () {
+    test('decodes every purchase field', () {
+      final Uint8List bytes = _encode(2, _purchaseFields, purchases);
+
+      final List<PurchaseData> decoded =
+          PurchaseBinaryCodec.decodePurchases(bytes);
+
+      expect(decoded, equals(purchases));
+      expect(decoded.first.developerPayload, '결제 페이로드');
+      expect(decoded.last.developerPayload, '');
+    });
+
+    test('decodes every product detail field', () {
+      final Uint8List bytes = _encode(1, _productFields, productDetails);
+
+      final List<ProductDetail> decoded =
+          PurchaseBinaryCodec.decodeProductDetails(bytes);
+
+      expect(decoded, equals(productDetails));
+      expect(decoded.first.subscriptionPeriodUnitCode, 'M');
+    });
+
+    test('fills masked fields with the json defaults', () {
+      final Uint8List bytes = _encode(
+          2,
+          _purchaseFields
+              .where((_Field<PurchaseData> field) =>
+                  field.name == 'productId' || field.name == 'purchaseToken')
+              .toList(),
+          purchases);
+
+      final PurchaseData decoded =
+          PurchaseBinaryCodec.decodePurchases(bytes).first;
+
+      expect(decoded.productId, 'product_0');
+      expect(decoded.purchaseToken, 'TOKEN00000000');
+      expect(decoded.orderId, '');
+      expect(decoded.quantity, 1);
+      expect(decoded.isAcknowledged, isFalse);
+      expect(decoded.purchaseState, PurchaseState.purchased);
+    });
+
+    test('decodes an empty list', () {
+      final Uint8List bytes =
+          _encode(2, _purchaseFields, const <PurchaseData>[]);
+
+      expect(PurchaseBinaryCodec.decodePurchases(bytes), isEmpty);
+    });
+
+    test('rejects a payload of another kind', () {
+      final Uint8List bytes = _encode(1, _productFields, productDetails);
+
+      expect(() => PurchaseBinaryCodec.decodePurchases(bytes),
+          throwsFormatException);
+    });
+  });
+}
+
+class _Field<T> {
+  const _Field(this.name, this.type, this.value);
+
+  final String name;
+  final int type;
+  final Object? Function(T item) value;
+}
+
+final List<_Field<PurchaseData>> _purchaseFields = <_Field<PurchaseData>>[
+  _Field<PurchaseData>('orderId', _typeString, (PurchaseData p) => p.orderId),
+  _Field<PurchaseData>(
+      'productId', _typeString, (PurchaseData p) => p.productId),
+  _Field<PurchaseData>(
+      'packageName', _typeString, (PurchaseData p) => p.packageName),
+  _Field<PurchaseData>(
+      'purchaseTime', _typeInt64, (PurchaseData p) => p.purchaseTime),
+  _Field<PurchaseData>(
+      'purchaseToken', _typeString, (PurchaseData p) => p.purchaseToken),
+  _Field<PurchaseData>('purchaseState', _typeInt32,
+      (PurchaseData p) => const PurchaseStateConverter().toJson(
+          p.purchaseState)),
+  _Field<PurchaseData>('recurringState', _typeInt32,
+      (PurchaseData p) => const RecurringStateConverter().toJson(
+          p.recurringState)),
+  _Field<PurchaseData>(
+      'isAcknowledged', _typeBool, (PurchaseData p) => p.isAcknowledged),
+  _Field<PurchaseData>('developerPayload', _typeString,
+      (PurchaseData p) => p.developerPayload),
+  _Field<PurchaseData>('quantity', _typeInt32, (PurchaseData p) => p.quantity),
+  _Field<PurchaseData>(
+      'originalJson', _typeString, (PurchaseData p) => p.originalJson),
+  _Field<PurchaseData>(
+      'signature', _typeString, (PurchaseData p) => p.signature),
+];
+
+final List<_Field<ProductDetail>> _productFields = <_Field<ProductDetail>>[
+  _Field<ProductDetail>(
+      'productId', _typeString, (ProductDetail p) => p.productId),
+  _Field<ProductDetail>('productType', _typeString,
+      (ProductDetail p) => const ProductTypeConverter().toJson(p.productType)),
+  _Field<ProductDetail>('title', _typeString, (ProductDetail p) => p.title),
+  _Field<ProductDetail>('price', _typeString, (ProductDetail p) => p.price),
+  _Field<ProductDetail>('priceCurrencyCode', _typeString,
+      (ProductDetail p) => p.priceCurrencyCode),
+  _Field<ProductDetail>('priceAmountMicros', _typeString,
+      (ProductDetail p) => p.priceAmountMicros),
+  _Field<ProductDetail>('subscriptionPeriod', _typeString,
+      (ProductDetail p) => p.subscriptionPeriod),
+  _Field<ProductDetail>('subscriptionPeriodUnitCode', _typeString,
+      (ProductDetail p) => p.subscriptionPeriodUnitCode),
+];
+
+/// 네이티브 `PurchaseBinaryCodec.encode`와 같은 배치로 [items]를 기록합니다.
+Uint8List _encode<T>(int kind, List<_Field<T>> fields, List<T> items) {
+  final BytesBuilder header = BytesBuilder();
+  header.addByte(1);
+  header.addByte(kind);
+  header.add(_uint16(fields.length));
+  for (final _Field<T> field in fields) {
+    final List<int> name = utf8.encode(field.name);
+    header.addByte(field.type);
+    header.add(_uint16(name.length));
+    header.add(name);
+  }
+
+  final Map<String, int> stringIndex = <String, int>{};
+  final BytesBuilder strings = BytesBuilder();
+  final BytesBuilder records = BytesBuilder();
+  for (final T item in items) {
+    for (final _Field<T> field in fields) {
+      final Object? value = field.value(item);
+      switch (field.type) {
+        case _typeString:
+          if (value == null) {
+            records.add(_int32(-1));
+            break;
+          }
+          final String string = value as String;
+          final int index = stringIndex.putIfAbsent(string, () {
+            final List<int> bytes = utf8.encode(string);
+            strings.add(_int32(bytes.length));
+            strings.add(bytes);
+            return stringIndex.length;
+          });
+          records.add(_int32(index));
+          break;
+        case _typeInt32:
+          records.add(_int32(value as int));
+          break;
+        case _typeInt64:
+          records.add((ByteData(8)..setInt64(0, value as int, Endian.little))
+              .buffer
+              .asUint8List());
+          break;
+        case _typeBool:
+          records.addByte(value == true ? 1 : 0);
+          break;
+      }
+    }
+  }
+
+  return (BytesBuilder()
+        ..add(header.takeBytes())
+        ..add(_int32(stringIndex.length))
+        ..add(strings.takeBytes())
+        ..add(_int32(items.length))
+        ..add(records.takeBytes()))
+      .takeBytes();
+}
+
+List<int> _uint16(int value) =>
+    (ByteData(2)..setUint16(0, value, Endian.little)).buffer.asUint8List();
+
+List<int> _int32(int value) =>
+    (ByteData(4)..setInt32(0, value, Endian.little)).buffer.asUint8List();
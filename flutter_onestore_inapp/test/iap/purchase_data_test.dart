@@ -1,4 +1,6 @@
 import 'package:flutter_onestore_inapp/flutter_onestore_inapp.dart';
+import 'package:flutter_onestore_inapp/src/iap/purchase_data.dart'
+    show withVerifiedFlags;
 import 'package:flutter_test/flutter_test.dart';
 
 const PurchaseData dummyPurchase = PurchaseData(
@@ -24,6 +26,16 @@ void main() {
 
       expect(parsed, equals(expected));
     });
+
+    test('equality ignores the verification result', () {
+      final PurchaseData verified =
+          withVerifiedFlags(<PurchaseData>[dummyPurchase], <bool>[true]).single;
+
+      expect(verified.isVerified, isTrue);
+      expect(verified, equals(dummyPurchase));
+      expect(verified.hashCode, dummyPurchase.hashCode);
+      expect(<PurchaseData>{dummyPurchase, verified}, hasLength(1));
+    });
   });
 
   group('PurchaseResultResponse', () {
@@ -0,0 +1,81 @@
+import 'package:flutter_onestore_inapp/flutter_onestore_inapp.dart';
+import 'package:flutter_test/flutter_test.dart';
+
+Map<String, dynamic> _purchase(String token) => <String, dynamic>{
+      'orderId': 'order_$token',
+      'productId': 'productId',
+      'packageName': 'packageName',
+      'purchaseTime': 0,
+      'purchaseToken': token,
+      'purchaseState': 0,
+      'recurringState': -1,
+      'quantity': 1,
+      'isAcknowledged': false,
+      'originalJson': '',
+      'signature': 'signature',
+    };
+
+void main() {
+  group('PurchasesDeltaResponse', () {
+    test('applies the verified flags of a delta', () {
+      final PurchasesDeltaResponse parsed =
+          PurchasesDeltaResponse.fromJson(<String, dynamic>{
+        'iapResult': <String, dynamic>{'responseCode': 0, 'message': ''},
+        'version': 2,
+        'full': false,
+        'added': <Map<String, dynamic>>[_purchase('a'), _purchase('b')],
+        'addedVerified': <bool>[true, false],
+        'changed': <Map<String, dynamic>>[_purchase('c')],
+        'changedVerified': <bool>[true],
+        'removed': <String>['d'],
+      });
+
+      expect(parsed.isFull, isFalse);
+      expect(parsed.added.map((PurchaseData p) => p.isVerified),
+          <bool>[true, false]);
+      expect(parsed.changed.single.isVerified, isTrue);
+      expect(parsed.removed, <String>['d']);
+    });
+
+    test('leaves the flags unset without verification', () {
+      final PurchasesDeltaResponse parsed =
+          PurchasesDeltaResponse.fromJson(<String, dynamic>{
+        'version': 1,
+        'full': false,
+        'added': <Map<String, dynamic>>[_purchase('a')],
+      });
+
+      expect(parsed.added.single.isVerified, isNull);
+      expect(parsed.changed, isEmpty);
+    });
+
+    test('applies a delta to the previous purchases', () {
+      final PurchasesDeltaResponse full =
+          PurchasesDeltaResponse.fromJson(<String, dynamic>{
+        'version': 1,
+        'full': true,
+        'purchasesList': <Map<String, dynamic>>[
+          _purchase('a'),
+          _purchase('b')
+        ],
+        'verifiedList': <bool>[true, true],
+      });
+      final PurchasesDeltaResponse delta =
+          PurchasesDeltaResponse.fromJson(<String, dynamic>{
+        'version': 2,
+        'full': false,
+        'added': <Map<String, dynamic>>[_purchase('c')],
+        'addedVerified': <bool>[false],
+        'removed': <String>['a'],
+      });
+
+      final List<PurchaseData> purchases =
+          delta.applyTo(full.applyTo(const <PurchaseData>[]));
+
+      expect(purchases.map((PurchaseData p) => p.purchaseToken),
+          <String>['b', 'c']);
+      expect(purchases.map((PurchaseData p) => p.isVerified),
+          <bool>[true, false]);
+    });
+  });
+}